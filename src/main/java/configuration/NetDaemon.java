@@ -0,0 +1,141 @@
+/**
+ * Copyright 2012-2013-2014. The SimGrid Team. All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the license (GNU LGPL) which comes with this package.
+ *
+ * This class implements the process that simulates the network traffic of a VM.
+ * Similarly to the Daemon (CPU load), the NetDaemon runs inside the VM during the whole simulation: it continuously
+ * sends communication tasks to the NetSink of the VM. Each task carries NET_PERIOD seconds of traffic and is bounded by
+ * the network demand of the VM (see XVM.setNetDemand), so that the traffic shares the links of the hosts with the other
+ * communications (and in particular with the live migrations).
+ * The NetSink runs on the peer of the host of the VM, i.e. the next hosting host that is on (by id, in a ring): the
+ * traffic of the VMs is hence spread over the links of all hosts instead of converging on a single node. The sink is
+ * moved (i.e. restarted) when the peer changes (migration of the VM, peer turned off or another host turned on).
+ * When the network demand of the VM is 0, the process is suspended (it is resumed by XVM.setNetDemand).
+ */
+
+package configuration;
+
+import org.simgrid.msg.Host;
+import org.simgrid.msg.HostFailureException;
+import org.simgrid.msg.HostNotFoundException;
+import org.simgrid.msg.MsgException;
+import org.simgrid.msg.Process;
+import org.simgrid.msg.Task;
+import org.simgrid.msg.TimeoutException;
+import org.simgrid.msg.TransferFailureException;
+import simulation.SimulatorManager;
+
+public class NetDaemon extends Process {
+
+    /**
+     * Amount of traffic (expressed in seconds at the current network demand) carried by one communication task.
+     * A change of the network demand is taken into account at the end of the on-going task.
+     */
+    public static final double NET_PERIOD = 1.0;
+
+    /**
+     * Number of bytes in one MByte (the bandwidths of the simulator are expressed in MBytes per second)
+     */
+    public static final double MBYTE = 1024 * 1024;
+
+    /**
+     * Timeout of a communication task (in sec), it prevents the daemon from waiting forever for a sink that has been
+     * killed (e.g. its host has been turned off)
+     */
+    private static final double SEND_TIMEOUT = 10 * NET_PERIOD;
+
+    /**
+     * The VM whose traffic is simulated
+     */
+    private final XVM vm;
+
+    /**
+     * The mailbox of the NetSink that receives the traffic
+     */
+    private final String mailbox;
+
+    /**
+     * The NetSink that receives the traffic (null if it has not been started yet), the host on which it runs and the
+     * number of times this host had been turned off when the sink was started (the sink is killed with its host)
+     */
+    private NetSink sink = null;
+    private XHost sinkHost = null;
+    private int sinkHostTurnOffNb = -1;
+
+    /**
+     * Constructor
+     * @param host the host on which the process is running (in our case, the host is a VM)
+     * @param vm the XVM whose network demand is simulated
+     * @param mailbox the mailbox of the NetSink of the VM
+     */
+    public NetDaemon(Host host, XVM vm, String mailbox) {
+        super(host, "NetDaemon");
+        this.vm = vm;
+        this.mailbox = mailbox;
+    }
+
+    public void main(String[] args) throws MsgException {
+        int i = 0;
+
+        while (!SimulatorManager.isEndOfInjection()) {
+            int netDemand = vm.getNetDemand();
+            if (netDemand <= 0) {
+                suspend(); // Resumed as soon as the network demand is positive again
+                continue;
+            }
+            XHost peer = peerOf(vm.getLocation());
+            if (peer != sinkHost || peer.getTurnOffNb() != sinkHostTurnOffNb)
+                startSink(peer);
+            Task task = new Task(this.getHost().getName() + "-net-" + (i++), 0, netDemand * MBYTE * NET_PERIOD);
+            try {
+                task.sendBounded(mailbox, SEND_TIMEOUT, netDemand * MBYTE);
+            } catch (HostFailureException e) {
+                // The host of the VM has been turned off, wait for the next change of the network demand
+                suspend();
+            } catch (TransferFailureException | TimeoutException e) {
+                // The communication has been interrupted, the traffic is simply resumed with a new task
+            }
+        }
+    }
+
+    /**
+     * @return the next hosting host (by id, in a ring) that is on, or host itself if it is the only one
+     */
+    private static XHost peerOf(XHost host) {
+        int nbOfHostingHosts = SimulatorProperties.getNbOfHostingNodes();
+        for (int k = 1; k < nbOfHostingHosts; k++) {
+            XHost peer = StateTable.getXHost((host.getId() + k) % nbOfHostingHosts);
+            if (peer.isOn())
+                return peer;
+        }
+        return host;
+    }
+
+    /**
+     * Start the sink of the VM on the given host (the previous one is killed)
+     */
+    private void startSink(XHost host) {
+        killSink();
+        sink = new NetSink(host.getSGHost(), mailbox);
+        sinkHost = host;
+        sinkHostTurnOffNb = host.getTurnOffNb();
+        try {
+            sink.start();
+        } catch (HostNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Kill the sink of the VM, if it is still running (see XVM.killNetDaemon)
+     */
+    void killSink() {
+        if (sink != null && sinkHost.isOn() && sinkHost.getTurnOffNb() == sinkHostTurnOffNb)
+            sink.kill();
+        sink = null;
+        sinkHost = null;
+        sinkHostTurnOffNb = -1;
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2012-2013-2014. The SimGrid Team. All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the license (GNU LGPL) which comes with this package.
+ *
+ * This class implements the receiving side of the network traffic of a VM (see NetDaemon).
+ * The NetSink runs on the peer of the host of the VM (it is started by the NetDaemon) and discards the communication
+ * tasks sent by the NetDaemon of this VM. There is one sink per VM, so that the transfers of the different VMs are not
+ * serialized by a shared receiver.
+ */
+
+package configuration;
+
+import org.simgrid.msg.Host;
+import org.simgrid.msg.HostFailureException;
+import org.simgrid.msg.MsgException;
+import org.simgrid.msg.Process;
+import org.simgrid.msg.Task;
+import org.simgrid.msg.TimeoutException;
+import org.simgrid.msg.TransferFailureException;
+import simulation.SimulatorManager;
+
+public class NetSink extends Process {
+
+    /**
+     * Timeout of a reception (in sec), it enables the sink to notice the end of the injection
+     */
+    private static final double RECEIVE_TIMEOUT = 10;
+
+    /**
+     * The mailbox on which the traffic is received
+     */
+    private final String mailbox;
+
+    /**
+     * Constructor
+     * @param host the host on which the sink is running (i.e. the peer of the host of the VM)
+     * @param mailbox the mailbox on which the traffic is received
+     */
+    public NetSink(Host host, String mailbox) {
+        super(host, "NetSink");
+        this.mailbox = mailbox;
+    }
+
+    public void main(String[] args) throws MsgException {
+        while (!SimulatorManager.isEndOfInjection()) {
+            try {
+                Task.receive(mailbox, RECEIVE_TIMEOUT);
+            } catch (TimeoutException | TransferFailureException | HostFailureException e) {
+                // Nothing to do, the traffic is simply discarded
+            }
+        }
+    }
+}
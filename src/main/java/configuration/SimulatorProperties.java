@@ -89,6 +89,10 @@ public class SimulatorProperties extends Properties {
      * the consumption of one VM
      */
 	public final static String VM_MAXCPU_CONSUMPTION = "vm.cpuconsumption";
+	public final static String CHURN_ARRIVAL_RATE = "vm.churn.arrivalrate";
+	public final static String CHURN_LIFETIME_DISTRIBUTION = "vm.churn.lifetime.distribution";
+	public final static String CHURN_LIFETIME_MEAN = "vm.churn.lifetime.mean";
+	public final static String CHURN_LIFETIME_SHAPE = "vm.churn.lifetime.shape";
 
 	
 	//Other keys
@@ -100,6 +104,22 @@ public class SimulatorProperties extends Properties {
 
 	public final static String MEAN_LOAD = "load.mean";
 	public final static String STD_LOAD = "load.std";
+	public final static String MEMORY_PERIOD = "simulator.memoryperiod";
+	public final static String MEAN_MEMORY = "memory.mean";
+	public final static String STD_MEMORY = "memory.std";
+	public final static String NETWORK_PERIOD = "simulator.netperiod";
+	public final static String MEAN_NETWORK = "net.mean";
+	public final static String STD_NETWORK = "net.std";
+	public final static String LOAD_MODEL = "load.model";
+	public final static String BETA_ALPHA = "load.beta.alpha";
+	public final static String BETA_BETA = "load.beta.beta";
+	public final static String GAMMA_SHAPE = "load.gamma.shape";
+	public final static String GAMMA_SCALE = "load.gamma.scale";
+	public final static String DIURNAL_AMPLITUDE = "load.diurnal.amplitude";
+	public final static String DIURNAL_PERIOD = "load.diurnal.period";
+	public final static String BURST_MEAN = "load.burst.mean";
+	public final static String BURST_ENTER = "load.burst.enter";
+	public final static String BURST_EXIT = "load.burst.exit";
 	
 	
 	public final static String SIMULATION = "simulation";
@@ -114,6 +134,11 @@ public class SimulatorProperties extends Properties {
 	public final static String MIN_PERCENTAGE_OF_ACTIVE_VMS = "loadinjector.minimumpercentageactive";
 	public final static String MAX_PERCENTAGE_OF_ACTIVE_VMS = "loadinjector.maximumpercentageactive";
 	public final static String STEP_BY_STEP = "loadinjector.stepbystep";
+	public final static String LOAD_GENERATION = "loadinjector.generation";
+	public final static String LOAD_GENERATION_THREADS = "loadinjector.threads";
+	public final static String LOAD_SOURCE = "loadinjector.source";
+	public final static String LOAD_TRACE_FILE = "loadinjector.trace.file";
+	public final static String LOAD_TRACE_READAHEAD = "loadinjector.trace.readahead";
 	
 	//Keys related to scripts used when the simulator is deployed on a real system
 	public final static String SCRIPT_CREATE_VMS = "script.createvms";
@@ -122,6 +147,19 @@ public class SimulatorProperties extends Properties {
 	private static final String SIMU_ALGO = "simulator.algorithm";
 	private static final String SIMU_IMPL = "simulator.implementation";
 	private static final String STATIONARY_STATUS = "simulator.gotostationarystatus";
+	private static final String CHECK_CPU_DEMAND = "simulator.checkcpudemand";
+	private static final String EVENT_QUEUE_FILE = "simulator.eventqueue.file";
+	private static final String BATCH_EPSILON = "simulator.batchepsilon";
+	private static final String EVENT_QUEUE_REPLAY = "simulator.eventqueue.replay";
+	private static final String EVENT_QUEUE_CACHE = "simulator.eventqueue.cache";
+	private static final String EVENT_QUEUE_CACHE_DIR = "simulator.eventqueue.cachedir";
+	private static final String TRACE_BUFFER_SIZE = "simulator.trace.buffersize";
+	private static final String TRACE_BACKPRESSURE = "simulator.trace.backpressure";
+	private static final String TRACE_FORMAT = "simulator.trace.format";
+	private static final String TRACE_SAMPLING = "simulator.trace.sampling.";
+	private static final String METRICS = "simulator.metrics";
+	private static final String OUTPUT_COMPRESSION = "simulator.output.compression";
+	private static final String OUTPUT_COMPRESSION_LEVEL = "simulator.output.compression.level";
 
 	//////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 	//Property default values
@@ -144,6 +182,10 @@ public class SimulatorProperties extends Properties {
 	public final static int DEFAULT_VMMAX_CPU_CONSUMPTION = 2000;
 	public final static int DEFAULT_VM_MEMORY_CONSUMPTION = 1024;
 	public final static int DEFAULT_NB_OF_CPU_CONSUMPTION_SLOTS = 2;
+	public final static double DEFAULT_CHURN_ARRIVAL_RATE = 0;
+	public final static String DEFAULT_CHURN_LIFETIME_DISTRIBUTION = "exponential";
+	public final static double DEFAULT_CHURN_LIFETIME_MEAN = 3600; // in sec
+	public final static double DEFAULT_CHURN_LIFETIME_SHAPE = 2;
 	
 	//Other default values
 	public final static String DEFAULT_CONFIGURATION_FILE = "config" + File.separator + "initialConfiguration.txt";
@@ -154,9 +196,30 @@ public class SimulatorProperties extends Properties {
 
 	public final static String DEFAULT_MEAN_LOAD = "50.0";
 	public final static String DEFAULT_STD_LOAD = "50.0";	
+	public final static int DEFAULT_MEMORY_PERIOD = 0; // in sec (0: the memory demand of the VMs does not change)
+	public final static double DEFAULT_MEAN_MEMORY = 70.0;
+	public final static double DEFAULT_STD_MEMORY = 20.0;
+	public final static int DEFAULT_NETWORK_PERIOD = 0; // in sec (0: the VMs do not generate network traffic)
+	public final static double DEFAULT_MEAN_NETWORK = 30.0;
+	public final static double DEFAULT_STD_NETWORK = 20.0;
+	public final static String DEFAULT_LOAD_MODEL = "gaussian";
+	public final static double DEFAULT_BETA_ALPHA = 2.0;
+	public final static double DEFAULT_BETA_BETA = 2.0;
+	public final static double DEFAULT_GAMMA_SHAPE = 2.0;
+	public final static double DEFAULT_GAMMA_SCALE = 25.0;
+	public final static double DEFAULT_DIURNAL_AMPLITUDE = 30.0;
+	public final static double DEFAULT_DIURNAL_PERIOD = 86400.0; // in sec (one day)
+	public final static double DEFAULT_BURST_MEAN = 90.0;
+	public final static double DEFAULT_BURST_ENTER = 0.05;
+	public final static double DEFAULT_BURST_EXIT = 0.3;
 	
 	public static final long DEFAULT_SEED = 23;
 	public final static boolean DEFAULT_STEP_BY_STEP = false;
+	public final static String DEFAULT_LOAD_GENERATION = "sequential";
+	public final static int DEFAULT_LOAD_GENERATION_THREADS = 0;
+	public final static String DEFAULT_LOAD_SOURCE = "synthetic";
+	public final static String DEFAULT_LOAD_TRACE_FILE = null;
+	public final static int DEFAULT_LOAD_TRACE_READAHEAD = 65536;
 	public final static String DEFAULT_VIRTUAL_NODES_NAMES_FILE = null;
 	public final static boolean DEFAULT_SIMULATION = true;
 	public final static boolean DEFAULT_MONITORING = false;
@@ -170,6 +233,19 @@ public class SimulatorProperties extends Properties {
 	private static final String DEFAULT_SIMU_ALGO = "centralized";
     private static final String DEFAULT_SIMU_IMPL = "scheduling.centralized.entropy2.Entropy2RP";
 	private static final boolean DEFAULT_STATIONARY_STATUS = false;
+	private static final boolean DEFAULT_CHECK_CPU_DEMAND = false;
+	private static final String DEFAULT_BATCH_EPSILON = "-1";
+	private static final String DEFAULT_EVENT_QUEUE_FILE = "logs" + File.separator + "events-queue.bin";
+	private static final boolean DEFAULT_EVENT_QUEUE_REPLAY = false;
+	private static final boolean DEFAULT_EVENT_QUEUE_CACHE = false;
+	private static final String DEFAULT_EVENT_QUEUE_CACHE_DIR = "cache";
+	private static final int DEFAULT_TRACE_BUFFER_SIZE = 65536;
+	private static final String DEFAULT_TRACE_BACKPRESSURE = "block";
+	private static final String DEFAULT_TRACE_FORMAT = "json";
+	private static final String DEFAULT_TRACE_SAMPLING = "all";
+	private static final boolean DEFAULT_METRICS = true;
+	private static final String DEFAULT_OUTPUT_COMPRESSION = "none";
+	private static final int DEFAULT_OUTPUT_COMPRESSION_LEVEL = 1;
 
 
 
@@ -235,6 +311,19 @@ public class SimulatorProperties extends Properties {
 			return defaultValue;
 	}
 	
+	public static double getPropertyAsDouble(String key, double defaultValue){
+		String value = INSTANCE.getProperty(key);
+
+		if(System.getProperty(key) != null)
+			value = System.getProperty(key);
+
+		if(value != null)
+			return Double.parseDouble(value);
+
+		else
+			return defaultValue;
+	}
+
 	public static boolean getPropertyAsBoolean(String key, boolean defaultValue){
 		String value = INSTANCE.getProperty(key);
 
@@ -312,6 +401,34 @@ public class SimulatorProperties extends Properties {
 	public static int getNbOfCPUConsumptionSlots(){
 		return getPropertyAsInt(NB_OF_CPU_CONSUMPTION_SLOTS, DEFAULT_NB_OF_CPU_CONSUMPTION_SLOTS);
 	}
+
+	/**
+	 * @return the number of VM arrivals per second (VM churn, 0 means that the VM population does not change)
+	 */
+	public static double getChurnArrivalRate(){
+		return getPropertyAsDouble(CHURN_ARRIVAL_RATE, DEFAULT_CHURN_ARRIVAL_RATE);
+	}
+
+	/**
+	 * @return the distribution of the lifetime of the VMs created by the churn: exponential, gamma or fixed
+	 */
+	public static String getChurnLifetimeDistribution(){
+		return INSTANCE.getProperty(CHURN_LIFETIME_DISTRIBUTION, DEFAULT_CHURN_LIFETIME_DISTRIBUTION);
+	}
+
+	/**
+	 * @return the mean lifetime (in sec) of the VMs created by the churn
+	 */
+	public static double getChurnLifetimeMean(){
+		return getPropertyAsDouble(CHURN_LIFETIME_MEAN, DEFAULT_CHURN_LIFETIME_MEAN);
+	}
+
+	/**
+	 * @return the shape of the gamma distribution of the lifetimes
+	 */
+	public static double getChurnLifetimeShape(){
+		return getPropertyAsDouble(CHURN_LIFETIME_SHAPE, DEFAULT_CHURN_LIFETIME_SHAPE);
+	}
 	
 	
 	//////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -346,6 +463,41 @@ public class SimulatorProperties extends Properties {
 		return getPropertyAsBoolean(STEP_BY_STEP, DEFAULT_STEP_BY_STEP);
 	}
 
+	/**
+	 * @return the load generation mode: sequential (one random stream for all VMs) or parallel (one stream per VM)
+	 */
+	public static String getLoadGeneration(){
+		return INSTANCE.getProperty(LOAD_GENERATION, DEFAULT_LOAD_GENERATION);
+	}
+
+	/**
+	 * @return the number of threads used by the parallel load generation (0 means one per available core)
+	 */
+	public static int getLoadGenerationThreads(){
+		return getPropertyAsInt(LOAD_GENERATION_THREADS, DEFAULT_LOAD_GENERATION_THREADS);
+	}
+
+	/**
+	 * @return the source of the load events: synthetic (generated) or trace (replayed from loadinjector.trace.file)
+	 */
+	public static String getLoadSource(){
+		return INSTANCE.getProperty(LOAD_SOURCE, DEFAULT_LOAD_SOURCE);
+	}
+
+	/**
+	 * @return the CPU utilisation trace (CSV or gzip compressed CSV) replayed when the load source is trace
+	 */
+	public static String getLoadTraceFile(){
+		return INSTANCE.getProperty(LOAD_TRACE_FILE, DEFAULT_LOAD_TRACE_FILE);
+	}
+
+	/**
+	 * @return the maximum number of trace samples parsed in advance
+	 */
+	public static int getLoadTraceReadAhead(){
+		return getPropertyAsInt(LOAD_TRACE_READAHEAD, DEFAULT_LOAD_TRACE_READAHEAD);
+	}
+
 	public static double getMeanLoad(){
 		return Double.parseDouble(INSTANCE.getProperty(MEAN_LOAD, DEFAULT_MEAN_LOAD));
 	}
@@ -353,6 +505,110 @@ public class SimulatorProperties extends Properties {
 	public static double getStandardDeviationLoad(){
 		return Double.parseDouble(INSTANCE.getProperty(STD_LOAD, DEFAULT_STD_LOAD));
 	}
+
+	/**
+	 * @return the period (in sec) of the memory demand changes for a VM (0 means that the memory demand does not change)
+	 */
+	public static int getMemoryPeriod(){
+		return getPropertyAsInt(MEMORY_PERIOD, DEFAULT_MEMORY_PERIOD);
+	}
+
+	/**
+	 * @return the mean memory demand of a VM (in percent of its RAM)
+	 */
+	public static double getMeanMemory(){
+		return getPropertyAsDouble(MEAN_MEMORY, DEFAULT_MEAN_MEMORY);
+	}
+
+	/**
+	 * @return the standard deviation of the memory demand of a VM (in percent of its RAM)
+	 */
+	public static double getStandardDeviationMemory(){
+		return getPropertyAsDouble(STD_MEMORY, DEFAULT_STD_MEMORY);
+	}
+
+	/**
+	 * @return the period (in sec) of the network demand changes for a VM (0 means that the VMs do not generate traffic)
+	 */
+	public static int getNetworkPeriod(){
+		return getPropertyAsInt(NETWORK_PERIOD, DEFAULT_NETWORK_PERIOD);
+	}
+
+	/**
+	 * @return the mean network demand of a VM (in percent of the bandwidth of its NIC)
+	 */
+	public static double getMeanNetwork(){
+		return getPropertyAsDouble(MEAN_NETWORK, DEFAULT_MEAN_NETWORK);
+	}
+
+	/**
+	 * @return the standard deviation of the network demand of a VM (in percent of the bandwidth of its NIC)
+	 */
+	public static double getStandardDeviationNetwork(){
+		return getPropertyAsDouble(STD_NETWORK, DEFAULT_STD_NETWORK);
+	}
+
+	/**
+	 * @return the load model: gaussian, beta, gamma, diurnal, markov or the full name of a class implementing
+	 * injector.LoadModel
+	 */
+	public static String getLoadModel(){
+		return INSTANCE.getProperty(LOAD_MODEL, DEFAULT_LOAD_MODEL);
+	}
+
+	public static double getBetaAlpha(){
+		return getPropertyAsDouble(BETA_ALPHA, DEFAULT_BETA_ALPHA);
+	}
+
+	public static double getBetaBeta(){
+		return getPropertyAsDouble(BETA_BETA, DEFAULT_BETA_BETA);
+	}
+
+	public static double getGammaShape(){
+		return getPropertyAsDouble(GAMMA_SHAPE, DEFAULT_GAMMA_SHAPE);
+	}
+
+	/**
+	 * @return the scale of the gamma law (in percent of the VM capacity)
+	 */
+	public static double getGammaScale(){
+		return getPropertyAsDouble(GAMMA_SCALE, DEFAULT_GAMMA_SCALE);
+	}
+
+	/**
+	 * @return the amplitude (in percent) of the diurnal sinusoid around load.mean
+	 */
+	public static double getDiurnalAmplitude(){
+		return getPropertyAsDouble(DIURNAL_AMPLITUDE, DEFAULT_DIURNAL_AMPLITUDE);
+	}
+
+	/**
+	 * @return the period (in sec) of the diurnal sinusoid
+	 */
+	public static double getDiurnalPeriod(){
+		return getPropertyAsDouble(DIURNAL_PERIOD, DEFAULT_DIURNAL_PERIOD);
+	}
+
+	/**
+	 * @return the mean load (in percent) of a VM in the burst state (markov model)
+	 */
+	public static double getBurstMean(){
+		return getPropertyAsDouble(BURST_MEAN, DEFAULT_BURST_MEAN);
+	}
+
+	/**
+	 * @return the probability for a VM to enter the burst state at each load change (markov model)
+	 */
+	public static double getBurstEnterProbability(){
+		return getPropertyAsDouble(BURST_ENTER, DEFAULT_BURST_ENTER);
+	}
+
+	/**
+	 * @return the probability for a VM to leave the burst state at each load change (markov model)
+	 */
+	public static double getBurstExitProbability(){
+		return getPropertyAsDouble(BURST_EXIT, DEFAULT_BURST_EXIT);
+	}
 	
 	
 	
@@ -384,6 +640,87 @@ public class SimulatorProperties extends Properties {
 	public static boolean goToStationaryStatus() {
 		return getPropertyAsBoolean(STATIONARY_STATUS, DEFAULT_STATIONARY_STATUS);
 	}
+	/**
+	 * @return whether the incremental global CPU demand should be cross-checked against the full recomputation
+	 * (debug mode, O(n) for each access to the global CPU demand)
+	 */
+	public static boolean checkCPUDemand() {
+		return getPropertyAsBoolean(CHECK_CPU_DEMAND, DEFAULT_CHECK_CPU_DEMAND);
+	}
+	/**
+	 * @return the width (in sec) of the window used to batch the events played by the injector (negative: no batching)
+	 */
+	public static double getBatchEpsilon() {
+		return Double.parseDouble(INSTANCE.getProperty(BATCH_EPSILON, DEFAULT_BATCH_EPSILON));
+	}
+	/**
+	 * @return the path of the binary event queue (written by the injector, or read in replay mode)
+	 */
+	public static String getEventQueueFile() {
+		return INSTANCE.getProperty(EVENT_QUEUE_FILE, DEFAULT_EVENT_QUEUE_FILE);
+	}
+	/**
+	 * @return whether the injector should replay the event queue file instead of generating the events
+	 */
+	public static boolean replayEventQueue() {
+		return getPropertyAsBoolean(EVENT_QUEUE_REPLAY, DEFAULT_EVENT_QUEUE_REPLAY);
+	}
+	/**
+	 * @return whether the generated event queues should be stored in/reused from the event queue cache
+	 */
+	public static boolean useEventQueueCache() {
+		return getPropertyAsBoolean(EVENT_QUEUE_CACHE, DEFAULT_EVENT_QUEUE_CACHE);
+	}
+	/**
+	 * @return the directory of the event queue cache
+	 */
+	public static String getEventQueueCacheDir() {
+		return INSTANCE.getProperty(EVENT_QUEUE_CACHE_DIR, DEFAULT_EVENT_QUEUE_CACHE_DIR);
+	}
+	/**
+	 * @return the number of trace records that can be buffered before being written by the background writer of events.json
+	 */
+	public static int getTraceBufferSize() {
+		return getPropertyAsInt(TRACE_BUFFER_SIZE, DEFAULT_TRACE_BUFFER_SIZE);
+	}
+	/**
+	 * @return what to do when the trace buffer is full: "block" (wait for the background writer) or "drop" (the record
+	 * is discarded and counted)
+	 */
+	public static String getTraceBackpressure() {
+		return INSTANCE.getProperty(TRACE_BACKPRESSURE, DEFAULT_TRACE_BACKPRESSURE);
+	}
+	/**
+	 * @return the format of the trace: "json" (events.json) or "binary" (events.bin, see BinaryTraceFormat)
+	 */
+	public static String getTraceFormat() {
+		return INSTANCE.getProperty(TRACE_FORMAT, DEFAULT_TRACE_FORMAT);
+	}
+	/**
+	 * @param variable the name of a trace variable (e.g. LOAD)
+	 * @return the sampling policy of the variable: "all", "delta:D", "period:P" or "average:P" (see VariableSampling)
+	 */
+	public static String getTraceSampling(String variable) {
+		return INSTANCE.getProperty(TRACE_SAMPLING + variable, DEFAULT_TRACE_SAMPLING);
+	}
+	/**
+	 * @return whether the metrics of the simulation are aggregated online (metrics.json and metrics.csv)
+	 */
+	public static boolean getMetrics() {
+		return getPropertyAsBoolean(METRICS, DEFAULT_METRICS);
+	}
+	/**
+	 * @return the compression of the output files: "none" or "gzip" (see simulation.OutputFiles)
+	 */
+	public static String getOutputCompression() {
+		return INSTANCE.getProperty(OUTPUT_COMPRESSION, DEFAULT_OUTPUT_COMPRESSION);
+	}
+	/**
+	 * @return the gzip compression level of the output files (1: fastest, 9: smallest)
+	 */
+	public static int getOutputCompressionLevel() {
+		return getPropertyAsInt(OUTPUT_COMPRESSION_LEVEL, DEFAULT_OUTPUT_COMPRESSION_LEVEL);
+	}
 	public static boolean getWaitForUserInput(){
 		return getPropertyAsBoolean(WAIT_FOR_USER_INPUT, DEFAULT_WAIT_FOR_USER_INPUT);
 	}
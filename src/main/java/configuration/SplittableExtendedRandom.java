@@ -0,0 +1,25 @@
+package configuration;
+
+import java.util.SplittableRandom;
+
+/**
+ * An ExtendedRandom whose random bits are drawn from a SplittableRandom stream, so that independent streams (e.g. one
+ * per VM) can be derived from a single seed and used by the samplers of ExtendedRandom (gaussian, gamma, beta...).
+ * Like SplittableRandom, an instance must not be shared between threads.
+ */
+public class SplittableExtendedRandom extends ExtendedRandom {
+
+    private final SplittableRandom stream;
+
+    public SplittableExtendedRandom(SplittableRandom stream) {
+        super(0);
+        this.stream = stream;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return stream.nextInt() >>> (32 - bits);
+    }
+
+    private static final long serialVersionUID = 1L;
+}
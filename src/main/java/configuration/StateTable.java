@@ -0,0 +1,223 @@
+/**
+ * Copyright 2012-2013-2014. The SimGrid Team. All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the license (GNU LGPL) which comes with this package.
+ *
+ * This class stores the numeric state of the XHosts and XVMs in primitive arrays (struct-of-arrays layout).
+ * Each XHost/XVM receives a dense integer id when it is created (0, 1, 2, ... in the creation order) and its state
+ * (CPU demand, memory, network, capacity, on/off, location) is stored at that index.
+ * Name to id lookups should only be performed at the edges (i.e. when a message/file gives a name), the hot paths of
+ * the simulator directly manipulate the ids.
+ *
+ * Similarly to the SimulatorManager, it is mainly composed of static methods.
+ */
+
+package configuration;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class StateTable {
+
+    /**
+     * Initial size of the arrays (they grow automatically when required)
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // Hosts
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Number of registered hosts (i.e. the next host id)
+     */
+    private static int nbOfHosts = 0;
+
+    /**
+     * The XHosts indexed by their id
+     */
+    private static XHost[] hosts = new XHost[INITIAL_CAPACITY];
+
+    /**
+     * Name to XHost lookup (edges only)
+     */
+    private static HashMap<String, XHost> hostsByName = new HashMap<>();
+
+    /**
+     * Current CPU demand of each host
+     */
+    static double[] hostCPUDemand = new double[INITIAL_CAPACITY];
+
+    /**
+     * Total CPU capacity of each host
+     */
+    static int[] hostCPUCapacity = new int[INITIAL_CAPACITY];
+
+    /**
+     * Memory size of each host
+     */
+    static int[] hostMemSize = new int[INITIAL_CAPACITY];
+
+    /**
+     * Memory demand of each host (sum of the memory demand of the hosted VMs)
+     */
+    static int[] hostMemDemand = new int[INITIAL_CAPACITY];
+
+    /**
+     * Network demand of each host in MBytes per second (sum of the network demand of the hosted VMs)
+     */
+    static int[] hostNetDemand = new int[INITIAL_CAPACITY];
+
+    /**
+     * Whether each host is off
+     */
+    static boolean[] hostOff = new boolean[INITIAL_CAPACITY];
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // VMs
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Number of registered VMs (i.e. the next VM id)
+     */
+    private static int nbOfVMs = 0;
+
+    /**
+     * The XVMs indexed by their id
+     */
+    private static XVM[] vms = new XVM[INITIAL_CAPACITY];
+
+    /**
+     * Name to XVM lookup (edges only)
+     */
+    private static HashMap<String, XVM> vmsByName = new HashMap<>();
+
+    /**
+     * Current load (i.e. CPU demand) of each VM
+     */
+    static int[] vmCPUDemand = new int[INITIAL_CAPACITY];
+
+    /**
+     * Memory size of each VM
+     */
+    static int[] vmMemSize = new int[INITIAL_CAPACITY];
+
+    /**
+     * Memory demand (i.e. the memory actually used, at most vmMemSize) of each VM
+     */
+    static int[] vmMemDemand = new int[INITIAL_CAPACITY];
+
+    /**
+     * Network demand (i.e. the throughput of the VM, at most its NIC bandwidth) of each VM in MBytes per second
+     */
+    static int[] vmNetDemand = new int[INITIAL_CAPACITY];
+
+    /**
+     * Id of the XHost currently hosting each VM
+     */
+    static int[] vmLocation = new int[INITIAL_CAPACITY];
+
+    /**
+     * Whether each VM has to be destroyed at the end of its current migration (its departure occurred meanwhile)
+     */
+    static boolean[] vmDestroyPending = new boolean[INITIAL_CAPACITY];
+
+
+    /**
+     * Register a new host and assign its id.
+     * @param host the host to register
+     * @return the id of the host
+     */
+    static int registerHost(XHost host) {
+        if (nbOfHosts == hosts.length) {
+            int capacity = hosts.length * 2;
+            hosts = Arrays.copyOf(hosts, capacity);
+            hostCPUDemand = Arrays.copyOf(hostCPUDemand, capacity);
+            hostCPUCapacity = Arrays.copyOf(hostCPUCapacity, capacity);
+            hostMemSize = Arrays.copyOf(hostMemSize, capacity);
+            hostMemDemand = Arrays.copyOf(hostMemDemand, capacity);
+            hostNetDemand = Arrays.copyOf(hostNetDemand, capacity);
+            hostOff = Arrays.copyOf(hostOff, capacity);
+        }
+        hosts[nbOfHosts] = host;
+        hostsByName.put(host.getName(), host);
+        return nbOfHosts++;
+    }
+
+    /**
+     * Register a new VM and assign its id.
+     * @param vm the VM to register
+     * @return the id of the VM
+     */
+    static int registerVM(XVM vm) {
+        if (nbOfVMs == vms.length) {
+            int capacity = vms.length * 2;
+            vms = Arrays.copyOf(vms, capacity);
+            vmCPUDemand = Arrays.copyOf(vmCPUDemand, capacity);
+            vmMemSize = Arrays.copyOf(vmMemSize, capacity);
+            vmMemDemand = Arrays.copyOf(vmMemDemand, capacity);
+            vmNetDemand = Arrays.copyOf(vmNetDemand, capacity);
+            vmLocation = Arrays.copyOf(vmLocation, capacity);
+            vmDestroyPending = Arrays.copyOf(vmDestroyPending, capacity);
+        }
+        vms[nbOfVMs] = vm;
+        vmsByName.put(vm.getName(), vm);
+        return nbOfVMs++;
+    }
+
+    /**
+     * @return the number of registered hosts (ids are in [0, getNbOfHosts()[)
+     */
+    public static int getNbOfHosts() {
+        return nbOfHosts;
+    }
+
+    /**
+     * @return the number of registered VMs (ids are in [0, getNbOfVMs()[)
+     */
+    public static int getNbOfVMs() {
+        return nbOfVMs;
+    }
+
+    /**
+     * @param id the id of the host
+     * @return the corresponding XHost
+     */
+    public static XHost getXHost(int id) {
+        return hosts[id];
+    }
+
+    /**
+     * @param id the id of the VM
+     * @return the corresponding XVM
+     */
+    public static XVM getXVM(int id) {
+        return vms[id];
+    }
+
+    /**
+     * @param name the name of the host
+     * @return the corresponding XHost (null if there is no host entitled ''name'')
+     */
+    public static XHost getXHostByName(String name) {
+        return hostsByName.get(name);
+    }
+
+    /**
+     * @param name the name of the VM
+     * @return the corresponding XVM (null if there is no VM entitled ''name'')
+     */
+    public static XVM getXVMByName(String name) {
+        return vmsByName.get(name);
+    }
+
+    /**
+     * @param name the name of the host
+     * @return the id of the host entitled ''name'' (-1 if there is no such host)
+     */
+    public static int getHostId(String name) {
+        XHost host = hostsByName.get(name);
+        return (host == null) ? -1 : host.getId();
+    }
+}
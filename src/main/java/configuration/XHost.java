@@ -15,34 +15,36 @@ package configuration;
 
 import org.simgrid.msg.Host;
 import org.simgrid.msg.Msg;
+import simulation.SimulatorManager;
 
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 
 public class XHost{
 
     /**
      * The VMs currently hosted on the VMs. Please note that a VM that is currently migrated to the host does not appear
      * in that list (i.e. this list contains only the VMs that are really hosted on the node).
+     * A LinkedHashSet is used to get O(1) add/remove/lookup while preserving the order in which the VMs have been added.
      */
-    private ArrayList<XVM> hostedVMs = null;
+    private LinkedHashSet<XVM> hostedVMs = null;
 
     /**
-     * The MSG Host to extend (extension by aggregation)
+     * The dense id of the host (assigned at creation, index of the host state in the StateTable)
+     * The size of the memory, the total CPU capacity, the current CPU demand and the on/off status of the host are
+     * stored in the StateTable.
+     * @see configuration.StateTable
      */
-    private Host sgHost = null;
+    private final int id;
+
     /**
-     * the size of the host
+     * The MSG Host to extend (extension by aggregation)
      */
-    private int memSize;
+    private Host sgHost = null;
     /**
      * the number of cores available on the host
      */
     private int ncores;
-    /**
-     * The total CPU capacity of the host (totalCPUCapa=ncores*capacity of one core)
-     */
-    private int totalCPUCapa;
     /**
      * the network bandwidth of the host NIC
      */
@@ -52,11 +54,6 @@ public class XHost{
      */
     private String ip;
 
-    /**
-     * is the MSG host off (1) or on (0)
-     */
-    private boolean off;
-
     /**
      * A counter to check how many times a host has been turn off
      */
@@ -67,11 +64,6 @@ public class XHost{
      */
     private int nbOfViolations;
 
-    /**
-     * current CPU Demand (a simple hack to avoid computing the CPU demand by going throughout all hosting VMs
-     */
-    private double currentCPUDemand;
-
     /**
      * Stupid boolean to prevent turning off a node that is performing migrations (this is an ugly way to prevent the migration crash bug
      * TODO fix the migration crash bug - Adrien
@@ -90,20 +82,30 @@ public class XHost{
      */
     public XHost(Host h, int memSize, int ncores,  int totalCPUCapa, int netBW, String ip) {
        this.sgHost = h ;
-       this.memSize = memSize;
+       this.id = StateTable.registerHost(this);
+       StateTable.hostMemSize[id] = memSize;
        this.ncores = ncores;
-       this.totalCPUCapa = totalCPUCapa;
+       StateTable.hostCPUCapacity[id] = totalCPUCapa;
        this.netBW = netBW;
        this.ip = ip;
-       this.hostedVMs = new ArrayList<XVM>();
-       this.off = true;
+       this.hostedVMs = new LinkedHashSet<XVM>();
+       StateTable.hostOff[id] = true;
        this.turnOffNb = 0;
        this.nbOfViolations = 0;
-       this.currentCPUDemand = 0;
+       StateTable.hostCPUDemand[id] = 0;
+       StateTable.hostMemDemand[id] = 0;
+       StateTable.hostNetDemand[id] = 0;
 
        this.onGoingMigration = false ;
     }
 
+    /**
+     * @return the dense id of the host (see StateTable)
+     */
+    public int getId(){
+        return this.id;
+    }
+
     /**
      * @return the MSG host abstraction
      */
@@ -114,14 +116,14 @@ public class XHost{
      * @return the size of the memory in MBytes (rigid value)
      */
     public int getMemSize(){
-        return this.memSize;
+        return StateTable.hostMemSize[id];
     }
 
     /**
      * @return total CPU capacity
      */
     public int getCPUCapacity(){
-        return this.totalCPUCapa;
+        return StateTable.hostCPUCapacity[id];
     }
 
     /**
@@ -146,13 +148,23 @@ public class XHost{
     }
 
     /**
-     * check whether a pm is viable or not (currently only for the CPU dimension)
-     * @return boolean true if the PM is non viable (i.e. overloaded from the CPU viewpoint)
+     * check whether a pm is viable or not (CPU, memory and network dimensions)
+     * @return boolean true if the PM is viable (i.e. neither overloaded from the CPU viewpoint nor under memory pressure
+     * nor with a saturated NIC)
      */
      public boolean isViable(){
-        return (this.getCPUDemand()<=this.getCPUCapacity());
+        return (this.getCPUDemand()<=this.getCPUCapacity()) && (this.getMemDemand()<=this.getMemSize())
+                && (this.getNetDemand()<=this.getNetBW());
      }
 
+    /**
+     * check whether a pm is viable from the CPU viewpoint only (the memory and network dimensions are ignored)
+     * @return boolean true if the CPU demand of the PM does not exceed its CPU capacity
+     */
+    public boolean isCPUViable(){
+        return this.getCPUDemand()<=this.getCPUCapacity();
+    }
+
     /**
      * @return the sum of all CPU demands of the hosted VMs
      */
@@ -164,50 +176,137 @@ public class XHost{
     }
 
     public double getCPUDemand(){
-        return this.currentCPUDemand;
+        return StateTable.hostCPUDemand[id];
     }
 
+    /**
+     * Change the current CPU demand of the host.
+     * Please note that the global CPU demand and the index of violated hosts maintained by the SimulatorManager are
+     * updated accordingly (O(1)).
+     * @param newDemand the new CPU demand
+     */
     public void setCPUDemand(double newDemand){
-        this.currentCPUDemand = newDemand;
+        double previousDemand = StateTable.hostCPUDemand[id];
+        StateTable.hostCPUDemand[id] = newDemand;
+        SimulatorManager.hostCPUDemandChanged(this, newDemand - previousDemand);
     }
 
     /**
      * @return the sum of all memory demands of the hosted VMs
      */
+    public int computeMemDemand(){
+        int cons=0;
+        for (XVM vm: this.getRunnings())
+            cons+=vm.getMemDemand();
+        return cons;
+    }
+
+    /**
+     * @return the sum of all memory demands of the hosted VMs (maintained incrementally, O(1))
+     */
     public int getMemDemand(){
+        return StateTable.hostMemDemand[id];
+    }
+
+    /**
+     * Change the current memory demand of the host.
+     * Please note that the index of violated hosts maintained by the SimulatorManager is updated accordingly (O(1)).
+     * @param newDemand the new memory demand
+     */
+    public void setMemDemand(int newDemand){
+        StateTable.hostMemDemand[id] = newDemand;
+        SimulatorManager.hostMemDemandChanged(this);
+    }
+
+    /**
+     * @return the sum of all network demands of the hosted VMs
+     */
+    public int computeNetDemand(){
         int cons=0;
         for (XVM vm: this.getRunnings())
-            cons+=vm.getMemSize();
+            cons+=vm.getNetDemand();
         return cons;
     }
 
+    /**
+     * @return the sum of all network demands of the hosted VMs in MBytes per second (maintained incrementally, O(1))
+     */
+    public int getNetDemand(){
+        return StateTable.hostNetDemand[id];
+    }
+
+    /**
+     * Change the current network demand of the host.
+     * Please note that the index of violated hosts maintained by the SimulatorManager is updated accordingly (O(1)).
+     * @param newDemand the new network demand
+     */
+    public void setNetDemand(int newDemand){
+        StateTable.hostNetDemand[id] = newDemand;
+        SimulatorManager.hostNetDemandChanged(this);
+    }
+
     /**
      * Link the VM to the host and start it
      * @param sgVM
      */
     public void start(XVM sgVM) {
        hostedVMs.add(sgVM);
+       this.setMemDemand(this.getMemDemand() + sgVM.getMemDemand());
        sgVM.start();
     }
 
+    /**
+     * Stop the VM sgVM and remove it from the host (the VM leaves the system).
+     * The memory and CPU demands of the host are updated accordingly.
+     * @param sgVM the VM to stop
+     */
+    public void stop(XVM sgVM) {
+        if (!hostedVMs.remove(sgVM)) {
+            System.err.println("You are trying to manipulate a wrong  object (VM "+sgVM.getName()+" is not on node "+this.getName());
+            System.exit(-1);
+        }
+        StateTable.hostMemDemand[id] -= sgVM.getMemDemand();
+        StateTable.hostNetDemand[id] -= sgVM.getNetDemand();
+        this.setCPUDemand(this.getCPUDemand() - sgVM.getCPUDemand());
+        sgVM.shutdown(this.isOn());
+    }
+
     /**
      * Migrate the vm vmName from this host to the dest one.
+     * If the departure of the VM occurred during the migration (see SimulatorManager.destroyVM), the VM is destroyed
+     * once the migration is over.
      * @param vmName
      * @param dest
      * @return 0 if the migration succeeded -1 if it crashed
      */
     public int migrate(String vmName, XHost dest) {
+        int res = migrateVM(vmName, dest);
+        XVM vm = StateTable.getXVMByName(vmName);
+        // The host of the VM may not know it if the migration crashed (see below), the VM cannot be stopped then
+        if (vm != null && vm.isDestroyPending() && !vm.isMigrating() && vm.getLocation().hostedVMs.contains(vm))
+            SimulatorManager.destroyVM(vm);
+        return res;
+    }
+
+    /**
+     * Migrate the vm vmName from this host to the dest one (see migrate, the pending departures are not handled here).
+     */
+    private int migrateVM(String vmName, XHost dest) {
 
         // Ugly patch to prevent migration crash when a node is turned off.
         this.onGoingMigration = true;
         dest.setOnGoingMigration(true);
 
-        XVM vm = null ;
-        for(XVM tmp : getRunnings()){
-            if (tmp.getName().equals(vmName))
-                vm = tmp ;
+        // O(1) lookup: retrieve the VM by its name and check that it is hosted on this node
+        XVM vm = StateTable.getXVMByName(vmName);
+        if (vm != null && vm.isDestroyed()) {
+            // The VM left the system since the reconfiguration plan has been computed
+            Msg.info("VM "+vmName+" has been destroyed, it cannot be migrated");
+            this.onGoingMigration = false;
+            dest.setOnGoingMigration(false);
+            return -1;
         }
-        if (vm == null){
+        if (vm == null || !hostedVMs.contains(vm)){
             System.err.println("You are trying to manipulate a wrong  object (VM "+vmName+" is not on node "+this.getName());
             System.exit(-1);
         }
@@ -225,10 +324,15 @@ public class XHost{
             System.err.println("Dammed the migration may have crash");
             return -1;
         }
+        // Update the demands by delta (the CPU demand of the source includes the current load of the VM)
         hostedVMs.remove(vm);
-        this.setCPUDemand(computeCPUDemand());
+        StateTable.hostMemDemand[id] -= vm.getMemDemand();
+        StateTable.hostNetDemand[id] -= vm.getNetDemand();
+        this.setCPUDemand(this.getCPUDemand() - vm.getCPUDemand());
         dest.hostedVMs.add(vm);
-        dest.setCPUDemand(dest.computeCPUDemand());
+        StateTable.hostMemDemand[dest.id] += vm.getMemDemand();
+        StateTable.hostNetDemand[dest.id] += vm.getNetDemand();
+        dest.setCPUDemand(dest.getCPUDemand() + vm.getCPUDemand());
         this.onGoingMigration = false;
         dest.setOnGoingMigration(false);
         return 0;
@@ -265,9 +369,9 @@ public class XHost{
             System.err.println("This should not be possible. You probably invoked turnOff without passing through the simulatorManager... bye bye");
             System.exit(-1);
         }
-        if(!this.off) {
+        if(!StateTable.hostOff[id]) {
          //   Msg.info("Turn off " + this.sgHost.getName());
-            this.off=true;
+            StateTable.hostOff[id]=true;
             this.turnOffNb++;
             this.sgHost.off();
         }
@@ -277,9 +381,9 @@ public class XHost{
      * Turn on a host (the host should have been turn off previously), otherwise nothing happens
      */
     public void turnOn() {
-        if (this.off){
+        if (StateTable.hostOff[id]){
             Msg.info("Turn on "+this.getName());
-            this.off=false;
+            StateTable.hostOff[id]=false;
             this.sgHost.on();
         }
     }
@@ -288,14 +392,14 @@ public class XHost{
      * @return whether the MSG host is off
      */
     public boolean isOff(){
-        return this.off;
+        return StateTable.hostOff[id];
     }
 
     /**
      * @return whether the MSG host is on
      */
     public boolean isOn() {
-        return !this.off ;
+        return !StateTable.hostOff[id] ;
     }
     /**
      * @return the number of times the host has been turned off since the beginning of the simulation
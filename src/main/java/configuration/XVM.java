@@ -17,9 +17,17 @@ import org.simgrid.msg.HostFailureException;
 import org.simgrid.msg.HostNotFoundException;
 import org.simgrid.msg.Msg;
 import org.simgrid.msg.VM;
+import simulation.SimulatorManager;
 
 public class XVM {
 
+    /**
+     * The dense id of the VM (assigned at creation, index of the VM state in the StateTable)
+     * The current load, the size of the RAM and the location of the VM are stored in the StateTable.
+     * @see configuration.StateTable
+     */
+    private final int id;
+
     /**
      * The MSG VM to extend (extension by aggregation)
      */
@@ -34,22 +42,22 @@ public class XVM {
      *  The bandwidth network capability of the VM (expressed as MBytes).
      */
     private int netBW;
+
     /**
-     * The ramsize of the VM
+     * The number of times the load has been changed during the simulation.
+     * This metric is relevant to check whether one particular VM is more affected than the others
      */
-    private int ramsize;
+    private int NbOfLoadChanges;
+
     /**
-     * The current load of the VM (i.e. how the CPU is loaded).
-     * Please note that for the moment, one VM can have only have one vcpu.
-     * Hence, this value represents the current load of the vcpu (i.e. between 0 and 100%)
+     * The number of times the memory demand has been changed during the simulation.
      */
-    private int currentLoadDemand;
+    private int NbOfMemChanges;
 
     /**
-     * The number of times the load has been changed during the simulation.
-     * This metric is relevant to check whether one particular VM is more affected than the others
+     * The number of times the network demand has been changed during the simulation.
      */
-    private int NbOfLoadChanges;
+    private int NbOfNetChanges;
 
     /**
      * The number of times the VM has been migrated during the simulation.
@@ -61,19 +69,23 @@ public class XVM {
      * The daemon that runs inside the VM in order to simulate the load.
      */
     private Daemon daemon;
+
     /**
-     * the XHost (i.e the physical machine) of the VM.
-     * Similarly to the VM abstraction, the MSG Host abstraction has been extended in order to save/manipulate
-     * additional states in an easier way.
+     * The process that runs inside the VM in order to simulate its network traffic (null if the network demand of the
+     * VMs does not change, see simulator.netperiod). It manages the NetSink that receives this traffic.
      */
-    private XHost host;
-
+    private NetDaemon netDaemon;
     /**
      * Temporary fix due to a simgrid issue
      * See https://gforge.inria.fr/tracker/index.php?func=detail&aid=17636&group_id=12&atid=165
      */
     private boolean isMigrating; //Temporary fix to prevent migrating the same VM twice
 
+    /**
+     * Whether the VM has been destroyed (i.e. it left the system, see XHost.stop)
+     */
+    private boolean destroyed = false;
+
     /**
      * Construcor
      * @param host the XHost (i.e. the PM where the VM is currently running)
@@ -100,17 +112,29 @@ public class XVM {
             int nbCores, int ramsize, int netBW, String diskPath, int diskSize, int migNetBW, int dpIntensity){
         // TODO, why should we reduce the migNetBW ? (i.e. interest of multiplying the value by 0.9)
         this.vm = new VM (host.getSGHost(), name, nbCores, ramsize, netBW, diskPath, diskSize, (int)(migNetBW*0.9), dpIntensity);
-        this.currentLoadDemand = 0;
+        this.id = StateTable.registerVM(this);
+        StateTable.vmCPUDemand[id] = 0;
         this.netBW = netBW ;
         this. dpIntensity = dpIntensity ;
-        this.ramsize= ramsize;
+        StateTable.vmMemSize[id] = ramsize;
+        StateTable.vmMemDemand[id] = ramsize; // The whole RAM is used until the first memory change
         this.daemon = new Daemon(this.vm, 100);
-        this.host = host;
+        StateTable.vmNetDemand[id] = 0; // No traffic until the first network change
+        if (SimulatorProperties.getNetworkPeriod() > 0)
+            this.netDaemon = new NetDaemon(this.vm, this, name + "-net");
+        StateTable.vmLocation[id] = host.getId();
         this.NbOfLoadChanges = 0;
          this.NbOfMigrations = 0;
         this.isMigrating = false;
    }
 
+    /**
+     * @return the dense id of the VM (see StateTable)
+     */
+    public int getId() {
+        return this.id;
+    }
+
     /* Delegation method from MSG VM */
 
     /**
@@ -139,13 +163,13 @@ public class XVM {
         else{
             daemon.suspend();
         }
-        currentLoadDemand = expectedLoad ;
+        StateTable.vmCPUDemand[id] = expectedLoad ;
         NbOfLoadChanges++;
     }
 
     // TODO c'est crade
     public int getLoad(){
-        return this.currentLoadDemand;
+        return StateTable.vmCPUDemand[id];
     }
 
     /**
@@ -177,10 +201,46 @@ public class XVM {
         this.vm.start();
         try {
             daemon.start();
+            if (netDaemon != null)
+                netDaemon.start();
         } catch (HostNotFoundException e) {
             e.printStackTrace();
         }
-        this.setLoad(currentLoadDemand);
+        this.setLoad(StateTable.vmCPUDemand[id]);
+    }
+
+    /**
+     * Shut the VM down: the daemon is killed and the MSG VM is destroyed. The VM cannot be restarted.
+     * Please note that this method should only be invoked by XHost.stop (the host keeps track of its VMs).
+     * @param hostIsOn whether the host of the VM is running (otherwise the MSG VM is already down)
+     */
+    void shutdown(boolean hostIsOn) {
+        this.destroyed = true;
+        daemon.kill();
+        killNetDaemon();
+        if (hostIsOn)
+            this.vm.destroy(); // The VM is shut down if it is running
+        StateTable.vmCPUDemand[id] = 0;
+        StateTable.vmNetDemand[id] = 0;
+    }
+
+    /**
+     * Kill the processes that simulate the network traffic of the VM (the NetDaemon, even if it is suspended, and its
+     * NetSink), see shutdown and SimulatorManager.setEndOfInjection.
+     */
+    public void killNetDaemon() {
+        if (netDaemon != null) {
+            netDaemon.kill();
+            netDaemon.killSink();
+            netDaemon = null;
+        }
+    }
+
+    /**
+     * @return whether the VM has been destroyed
+     */
+    public boolean isDestroyed() {
+        return destroyed;
     }
 
     /**
@@ -191,18 +251,20 @@ public class XVM {
         if (!this.isMigrating) {
             this.isMigrating = true;
             Msg.info("Start migration of VM " + this.getName() + " to " + host.getName());
-            Msg.info("    currentLoadDemand:" + this.currentLoadDemand + "/ramSize:" + this.ramsize + "/dpIntensity:" + this.dpIntensity + "/remaining:" + this.daemon.getRemaining());
+            Msg.info("    currentLoadDemand:" + this.getLoad() + "/ramSize:" + this.getMemSize() + "/dpIntensity:" + this.dpIntensity + "/remaining:" + this.daemon.getRemaining());
             try {
                 this.vm.migrate(host.getSGHost());
                 this.NbOfMigrations++;
-                this.host = host;
-                this.setLoad(this.currentLoadDemand);   //TODO temporary fixed (setBound is not correctly propagated to the new node at the surf level)
+                StateTable.vmLocation[id] = host.getId();
+                this.setLoad(StateTable.vmCPUDemand[id]);   //TODO temporary fixed (setBound is not correctly propagated to the new node at the surf level)
                 //The dummy cpu action is not bounded.
                 Msg.info("End of migration of VM " + this.getName() + " to node " + host.getName());
             } catch (Exception e){
                 e.printStackTrace();
                 Msg.info("Something strange occurs during the migration");
                 Msg.info("TODO Adrien, migrate should return 0 or -1, -2, ... according to whether the migration succeeded or not.");
+                // The migration is over (the VM stays on its host), so that the VM can be migrated or destroyed later
+                this.isMigrating = false;
                 throw new HostFailureException();
                 // TODO Adrien, migrate should return 0 or -1, -2, ... according to whether the migration succeeded or not.
                 // This value can be then use at highler level to check whether the reconfiguration plan has been aborted or not.
@@ -222,12 +284,14 @@ public class XVM {
         // Todo check if 0 means false & if CPU load should be 0 when vm is suspended
         if (this.vm.isSuspended() == 0) {
             try {
-                Msg.info("Start suspension of VM " + this.getName() + " on " + this.host.getName());
-                Msg.info("    currentLoadDemand:" + this.currentLoadDemand + "/ramSize:" + this.ramsize + "/dpIntensity:" + this.dpIntensity + "/remaining:" + this.daemon.getRemaining());
+                Msg.info("Start suspension of VM " + this.getName() + " on " + this.getLocation().getName());
+                Msg.info("    currentLoadDemand:" + this.getLoad() + "/ramSize:" + this.getMemSize() + "/dpIntensity:" + this.dpIntensity + "/remaining:" + this.daemon.getRemaining());
                 this.vm.suspend();
                 // VM is suspended - we suspend the daemon simulating CPU demand
                 this.daemon.suspend();
-                Msg.info("End of suspension of VM " + this.getName() + " on " + this.host.getName());
+                if (this.netDaemon != null)
+                    this.netDaemon.suspend();
+                Msg.info("End of suspension of VM " + this.getName() + " on " + this.getLocation().getName());
                 return 0;
             } catch (Exception e) {
                 e.printStackTrace();
@@ -248,12 +312,14 @@ public class XVM {
     public int resume() {
         if (this.vm.isRunning() == 0) {
             try {
-                Msg.info("Start resuming VM " + this.getName() + " on " + this.host.getName());
+                Msg.info("Start resuming VM " + this.getName() + " on " + this.getLocation().getName());
                 this.vm.resume();
                 // VM is resumed - we resume the daemon simulating CPU demand
                 this.daemon.resume();
-                Msg.info("    currentLoadDemand:" + this.currentLoadDemand + "/ramSize:" + this.ramsize + "/dpIntensity:" + this.dpIntensity + "/remaining:" + this.daemon.getRemaining());
-                Msg.info("End of suspension of VM " + this.getName() + " on " + this.host.getName());
+                if (this.netDaemon != null)
+                    this.netDaemon.resume(); // It suspends itself again if the VM has no network demand
+                Msg.info("    currentLoadDemand:" + this.getLoad() + "/ramSize:" + this.getMemSize() + "/dpIntensity:" + this.dpIntensity + "/remaining:" + this.daemon.getRemaining());
+                Msg.info("End of suspension of VM " + this.getName() + " on " + this.getLocation().getName());
                 return 0;
             } catch (Exception e) {
                 e.printStackTrace();
@@ -271,30 +337,97 @@ public class XVM {
      * @return the size of the RAM in MBytes
      */
     public int getMemSize(){
-        return this.ramsize;
+        return StateTable.vmMemSize[id];
     }
 
 
     /**
-     * @return the size of the RAM in MBytes
+     * @return the memory demand of the VM (i.e. the memory actually used) in MBytes
+     */
+    public int getMemDemand(){
+        return StateTable.vmMemDemand[id];
+    }
+
+    /**
+     * Change the memory demand of the VM (it is bounded by the size of the RAM).
+     * Please note that the memory demand of the host should be updated accordingly (see SimulatorManager.updateVMMemory).
+     * @param memDemand the new memory demand in MBytes
+     */
+    public void setMemDemand(int memDemand){
+        StateTable.vmMemDemand[id] = Math.max(0, Math.min(memDemand, StateTable.vmMemSize[id]));
+        NbOfMemChanges++;
+    }
+
+    /**
+     * @return the number of times the memory demand has been changed since the begining of the simulation
+     */
+    public int getNbOfMemChanges() {
+        return NbOfMemChanges;
+    }
+
+    /**
+     * @return the network demand of the VM (i.e. its current throughput) in MBytes per second
+     */
+    public int getNetDemand(){
+        return StateTable.vmNetDemand[id];
+    }
+
+    /**
+     * Change the network demand of the VM (it is bounded by the bandwidth of its NIC).
+     * The traffic is generated by the NetDaemon of the VM, the new demand is taken into account at the end of the
+     * on-going communication task (see NetDaemon.NET_PERIOD).
+     * Please note that the network demand of the host should be updated accordingly (see SimulatorManager.updateVMNetwork).
+     * @param netDemand the new network demand in MBytes per second
+     */
+    public void setNetDemand(int netDemand){
+        StateTable.vmNetDemand[id] = Math.max(0, Math.min(netDemand, this.netBW));
+        if (netDaemon != null && StateTable.vmNetDemand[id] > 0)
+            netDaemon.resume();
+        NbOfNetChanges++;
+    }
+
+    /**
+     * @return the number of times the network demand has been changed since the begining of the simulation
+     */
+    public int getNbOfNetChanges() {
+        return NbOfNetChanges;
+    }
+
+    /**
+     * @return whether the VM is being migrated
      */
     public boolean isMigrating(){
         return isMigrating;
     }
 
+    /**
+     * @return whether the VM has to be destroyed at the end of its current migration (see SimulatorManager.destroyVM)
+     */
+    public boolean isDestroyPending() {
+        return StateTable.vmDestroyPending[id];
+    }
+
+    /**
+     * Mark (or unmark) the VM as to be destroyed at the end of its current migration.
+     * @param pending whether the VM has to be destroyed once migrated
+     */
+    public void setDestroyPending(boolean pending) {
+        StateTable.vmDestroyPending[id] = pending;
+    }
+
 
     /**
      * @return the current load of the VM
      */
     public double getCPUDemand() {
-        return this.currentLoadDemand;
+        return StateTable.vmCPUDemand[id];
     }
 
     /**
      * @return the current location of the VM (i.e. its XHost)
      */
     public XHost getLocation() {
-        return this.host;
+        return StateTable.getXHost(StateTable.vmLocation[id]);
     }
 
     /**
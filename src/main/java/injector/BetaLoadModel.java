@@ -0,0 +1,22 @@
+package injector;
+
+import configuration.ExtendedRandom;
+import configuration.SimulatorProperties;
+
+/**
+ * Beta law of parameters load.beta.alpha and load.beta.beta scaled to [0, 100].
+ */
+public class BetaLoadModel implements LoadModel {
+
+    private final double alpha = SimulatorProperties.getBetaAlpha();
+    private final double beta = SimulatorProperties.getBetaBeta();
+
+    @Override
+    public void init(int nbOfVMs) {
+    }
+
+    @Override
+    public double nextLoad(int vm, double time, ExtendedRandom rand) {
+        return 100 * rand.nextBeta(alpha, beta);
+    }
+}
@@ -0,0 +1,149 @@
+package injector;
+
+import configuration.ExtendedRandom;
+import configuration.SimulatorProperties;
+import configuration.SplittableExtendedRandom;
+import configuration.VMClasses;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * Pull-based generator of the VM churn events (vm.churn.* in simulator.properties).
+ * VMs arrive following a Poisson process (vm.churn.arrivalrate VMs per second), each new VM gets a random class, an
+ * initial load (gaussian law, load.mean/load.std) and a lifetime drawn from the lifetime distribution
+ * (vm.churn.lifetime.distribution: exponential, gamma or fixed, of mean vm.churn.lifetime.mean). Its departure is
+ * scheduled at the end of its lifetime (if it occurs before the end of the simulation).
+ * Only the pending departures are kept in memory (i.e. the memory footprint depends on the VM population, not on the
+ * duration of the simulation). When an arrival and a departure occur at the same time, the departure comes first.
+ */
+public class ChurnEventGenerator implements Iterator<InjectorEvent> {
+
+    private final long duration;
+    private final double arrivalRate;
+
+    private final String lifetimeDistribution;
+    private final double lifetimeMean;
+    private final double lifetimeShape;
+
+    private final int maxCPUDemand;
+    private final int nbOfCPUDemandSlots;
+
+    /**
+     * Salt of the seed of the churn streams, so that they differ from the streams of the load generators (which are
+     * split from the seed itself, see ParallelLoadEventGenerator)
+     */
+    private static final long CHURN_SEED_SALT = 0x436875726EL;
+
+    /**
+     * Random generators (arrival times, lifetimes, VM classes and loads), independent streams split from the seed
+     */
+    private final ExtendedRandom randArrival;
+    private final ExtendedRandom randLifetime;
+    private final ExtendedRandom randClass;
+    private final ExtendedRandom randLoad;
+
+    private final LoadModel loadModel = new GaussianLoadModel();
+
+    /**
+     * Departures of the VMs that have arrived, ordered by time
+     */
+    private final PriorityQueue<VMDepartureEvent> departures = new PriorityQueue<VMDepartureEvent>(64, new Comparator<VMDepartureEvent>() {
+        @Override
+        public int compare(VMDepartureEvent e1, VMDepartureEvent e2) {
+            int res = Double.compare(e1.getTime(), e2.getTime());
+            return (res != 0) ? res : Long.compare(e1.getId(), e2.getId());
+        }
+    });
+
+    /**
+     * Time of the next arrival
+     */
+    private double nextArrival = 0;
+
+    /**
+     * Number of VMs that have arrived
+     */
+    private int nbOfArrivals = 0;
+
+    /**
+     * Id of the next event
+     */
+    private long id = 0;
+
+    /**
+     * @param duration duration of the simulated time in second
+     * @param arrivalRate number of VM arrivals per second (average)
+     */
+    public ChurnEventGenerator(long duration, double arrivalRate) {
+        this.duration = duration;
+        this.arrivalRate = arrivalRate;
+        this.lifetimeDistribution = SimulatorProperties.getChurnLifetimeDistribution();
+        this.lifetimeMean = SimulatorProperties.getChurnLifetimeMean();
+        this.lifetimeShape = SimulatorProperties.getChurnLifetimeShape();
+        this.maxCPUDemand = SimulatorProperties.getVMMAXCPUConsumption();
+        this.nbOfCPUDemandSlots = SimulatorProperties.getNbOfCPUConsumptionSlots();
+
+        SplittableRandom root = new SplittableRandom(SimulatorProperties.getSeed() ^ CHURN_SEED_SALT);
+        this.randArrival = new SplittableExtendedRandom(root.split());
+        this.randLifetime = new SplittableExtendedRandom(root.split());
+        this.randClass = new SplittableExtendedRandom(root.split());
+        this.randLoad = new SplittableExtendedRandom(root.split());
+        this.loadModel.init(1);
+
+        this.nextArrival += Injector.exponentialDis(randArrival, arrivalRate);
+    }
+
+    /**
+     * @return the lifetime of a new VM (in sec)
+     */
+    private double nextLifetime() {
+        switch (lifetimeDistribution) {
+            case "fixed":
+                return lifetimeMean;
+            case "gamma":
+                return randLifetime.nextGamma(lifetimeShape, lifetimeMean / lifetimeShape);
+            default: // exponential
+                return lifetimeMean * randLifetime.nextExp();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextArrival < duration || !departures.isEmpty();
+    }
+
+    @Override
+    public InjectorEvent next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        if (!departures.isEmpty() && (departures.peek().getTime() <= nextArrival || nextArrival >= duration))
+            return departures.poll();
+
+        // select the class of the VM
+        int vmClass = randClass.nextInt(VMClasses.CLASSES.size());
+        int nbOfCPUs = VMClasses.CLASSES.get(vmClass).getNbOfCPUs();
+
+        int cpuConsumptionSlot = maxCPUDemand / nbOfCPUDemandSlots;
+        double gLoad = Math.max(loadModel.nextLoad(0, nextArrival, randLoad), 0);
+        int slot = (int) Math.round(Math.min(100, gLoad) * nbOfCPUDemandSlots / 100);
+        int vmCPUDemand = slot * cpuConsumptionSlot * nbOfCPUs;
+
+        VMArrivalEvent arrival = new VMArrivalEvent(id++, nextArrival, nbOfArrivals++, vmClass, vmCPUDemand);
+        double departureTime = nextArrival + nextLifetime();
+        if (departureTime < duration)
+            departures.add(new VMDepartureEvent(id++, departureTime, arrival));
+
+        nextArrival += Injector.exponentialDis(randArrival, arrivalRate);
+        return arrival;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,27 @@
+package injector;
+
+import configuration.ExtendedRandom;
+import configuration.SimulatorProperties;
+
+/**
+ * Diurnal load: a sinusoid of period load.diurnal.period and amplitude load.diurnal.amplitude around load.mean, plus a
+ * gaussian noise of standard deviation load.std. All the VMs follow the same cycle (the day/night pattern of a data
+ * center), the first peak occurs at a quarter of the period.
+ */
+public class DiurnalLoadModel implements LoadModel {
+
+    private final double mean = SimulatorProperties.getMeanLoad();
+    private final double sigma = SimulatorProperties.getStandardDeviationLoad();
+    private final double amplitude = SimulatorProperties.getDiurnalAmplitude();
+    private final double period = SimulatorProperties.getDiurnalPeriod();
+
+    @Override
+    public void init(int nbOfVMs) {
+    }
+
+    @Override
+    public double nextLoad(int vm, double time, ExtendedRandom rand) {
+        double cycle = mean + amplitude * Math.sin(2 * Math.PI * time / period);
+        return Math.max((rand.nextGaussian() * sigma) + cycle, 0);
+    }
+}
@@ -0,0 +1,79 @@
+package injector;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Merge several event streams (each one sorted by timestamp) into a single stream sorted by timestamp.
+ * The merge relies on a small priority queue containing the head of each stream (i.e. O(log(#streams)) per event).
+ * When two events occur at the same time, the event coming from the stream registered first is returned first
+ * (e.g. load events before fault events).
+ */
+public class EventMerger implements Iterator<InjectorEvent> {
+
+    /**
+     * The head of one stream
+     */
+    private static class Head {
+        private final InjectorEvent event;
+        private final int stream;
+
+        private Head(InjectorEvent event, int stream) {
+            this.event = event;
+            this.stream = stream;
+        }
+    }
+
+    private final List<Iterator<? extends InjectorEvent>> streams;
+
+    private final PriorityQueue<Head> heads;
+
+    /**
+     * @param streams the streams to merge (each stream should be sorted by timestamp), the order of the list gives the
+     *                priority in case of ties
+     */
+    public EventMerger(List<Iterator<? extends InjectorEvent>> streams) {
+        this.streams = streams;
+        this.heads = new PriorityQueue<>(Math.max(1, streams.size()), new Comparator<Head>() {
+            @Override
+            public int compare(Head h1, Head h2) {
+                int res = Double.compare(h1.event.getTime(), h2.event.getTime());
+                return (res != 0) ? res : Integer.compare(h1.stream, h2.stream);
+            }
+        });
+
+        for (int i = 0; i < streams.size(); i++)
+            pull(i);
+    }
+
+    /**
+     * Put the next event of the stream (if any) in the priority queue
+     */
+    private void pull(int stream) {
+        Iterator<? extends InjectorEvent> it = streams.get(stream);
+        if (it != null && it.hasNext())
+            heads.add(new Head(it.next(), stream));
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public InjectorEvent next() {
+        Head head = heads.poll();
+        if (head == null)
+            throw new NoSuchElementException();
+        pull(head.stream);
+        return head.event;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,135 @@
+package injector;
+
+import configuration.SimulatorProperties;
+import configuration.VMClasses;
+import configuration.XHost;
+import configuration.XVM;
+import scheduling.hierarchical.snooze.SnoozeProperties;
+import simulation.SimulatorManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Local cache of the generated event queues (see EventQueueWriter for the format).
+ * A queue is stored under the cache directory in a file named after the fingerprint of every parameter that affects
+ * the generation of the load and fault events (seed, duration, periods, load law, VMs and hosts, ...).
+ * Later runs with the same fingerprint replay the cached queue instead of generating it again.
+ */
+public class EventQueueCache {
+
+    /**
+     * Version of the generation code, it should be incremented each time the generators
+     * (LoadEventGenerator, Injector.generateFaultQueue, ...) produce different events for the same parameters or when
+     * the format of the queue changes (including a new kind of events, see EventQueueWriter.VERSION).
+     */
+    private static final int GENERATION_VERSION = 6;
+
+    /**
+     * Compute the fingerprint of the event queue generation
+     * @param vms the VMs whose load is injected (in the order used by the load generator)
+     * @param xhosts the hosts that may crash (in the order used by the fault generator)
+     * @return an hexadecimal SHA-1 digest
+     */
+    public static String fingerprint(XVM[] vms, XHost[] xhosts) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("version=").append(GENERATION_VERSION).append('\n');
+        sb.append("seed=").append(SimulatorProperties.getSeed()).append('\n');
+        sb.append("source=").append(SimulatorProperties.getLoadSource()).append('\n');
+        if (SimulatorProperties.getLoadSource().equals("trace") && SimulatorProperties.getLoadTraceFile() != null) {
+            File trace = new File(SimulatorProperties.getLoadTraceFile());
+            sb.append("trace=").append(trace.getAbsolutePath()).append('/').append(trace.length())
+                    .append('/').append(trace.lastModified()).append('\n');
+        } else {
+            sb.append("generation=").append(SimulatorProperties.getLoadGeneration()).append('\n');
+            // The parameters of every model are included (only the ones of the selected model matter)
+            sb.append("load.model=").append(SimulatorProperties.getLoadModel()).append('\n');
+            sb.append("load.beta=").append(SimulatorProperties.getBetaAlpha()).append('/').append(SimulatorProperties.getBetaBeta()).append('\n');
+            sb.append("load.gamma=").append(SimulatorProperties.getGammaShape()).append('/').append(SimulatorProperties.getGammaScale()).append('\n');
+            sb.append("load.diurnal=").append(SimulatorProperties.getDiurnalAmplitude()).append('/').append(SimulatorProperties.getDiurnalPeriod()).append('\n');
+            sb.append("load.burst=").append(SimulatorProperties.getBurstMean()).append('/').append(SimulatorProperties.getBurstEnterProbability())
+                    .append('/').append(SimulatorProperties.getBurstExitProbability()).append('\n');
+        }
+        sb.append("duration=").append(SimulatorProperties.getDuration()).append('\n');
+        sb.append("loadperiod=").append(SimulatorProperties.getLoadPeriod()).append('\n');
+        sb.append("crashperiod=").append(SimulatorProperties.getCrashPeriod()).append('\n');
+        sb.append("crashduration=").append(SimulatorProperties.getCrashDuration()).append('\n');
+        sb.append("load.mean=").append(SimulatorProperties.getMeanLoad()).append('\n');
+        sb.append("load.std=").append(SimulatorProperties.getStandardDeviationLoad()).append('\n');
+        sb.append("vm.cpuconsumption=").append(SimulatorProperties.getVMMAXCPUConsumption()).append('\n');
+        sb.append("nbcpuconsumptionslots=").append(SimulatorProperties.getNbOfCPUConsumptionSlots()).append('\n');
+        if (SimulatorProperties.getAlgo().equals("hierarchical") && SnoozeProperties.faultMode()) {
+            sb.append("snooze.faultmode=true").append('\n');
+            sb.append("snooze.glperiod=").append(SnoozeProperties.getGLFaultPeriodicity()).append('\n');
+            sb.append("snooze.gmperiod=").append(SnoozeProperties.getGMFaultPeriodicity()).append('\n');
+            sb.append("hostinghosts=").append(SimulatorManager.getSGHostingHosts().size()).append('\n');
+            sb.append("servicehosts=").append(SimulatorManager.getSGServiceHosts().size()).append('\n');
+        }
+        sb.append("memory=").append(SimulatorProperties.getMemoryPeriod()).append('/')
+                .append(SimulatorProperties.getMeanMemory()).append('/')
+                .append(SimulatorProperties.getStandardDeviationMemory()).append('\n');
+        sb.append("network=").append(SimulatorProperties.getNetworkPeriod()).append('/')
+                .append(SimulatorProperties.getMeanNetwork()).append('/')
+                .append(SimulatorProperties.getStandardDeviationNetwork()).append('\n');
+        sb.append("churn=").append(SimulatorProperties.getChurnArrivalRate()).append('/')
+                .append(SimulatorProperties.getChurnLifetimeDistribution()).append('/')
+                .append(SimulatorProperties.getChurnLifetimeMean()).append('/')
+                .append(SimulatorProperties.getChurnLifetimeShape()).append('/')
+                .append(SimulatorProperties.getNbOfVMs()).append('\n');
+        // The churn draws the classes of the new VMs among the VM classes
+        for (VMClasses.VMClass vmClass : VMClasses.CLASSES)
+            sb.append("vmclass=").append(vmClass.getName()).append('/').append(vmClass.getNbOfCPUs()).append('/')
+                    .append(vmClass.getMemSize()).append('/').append(vmClass.getNetBW()).append('/')
+                    .append(vmClass.getMigNetBW()).append('/').append(vmClass.getMemIntensity()).append('\n');
+        // The VM classes are randomly assigned, so the load of each VM depends on its number of cores and its memory
+        // and network demands are bounded by its memory size and its bandwidth
+        for (XVM vm : vms)
+            sb.append("vm=").append(vm.getName()).append('/').append(vm.getId()).append('/').append(vm.getCoreNumber())
+                    .append('/').append(vm.getMemSize()).append('/').append(vm.getNetBW()).append('\n');
+        for (XHost host : xhosts)
+            sb.append("host=").append(host.getName()).append('/').append(host.getId()).append('\n');
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash)
+                hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is available on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param fingerprint the fingerprint of the queue
+     * @return the cache file of the queue (it may not exist)
+     */
+    public static File getCacheFile(String fingerprint) {
+        return new File(SimulatorProperties.getEventQueueCacheDir(), "events-queue-" + fingerprint + ".bin");
+    }
+
+    /**
+     * Store a complete event queue in the cache.
+     * The file is first copied in a temporary file and then renamed, so concurrent runs never see a partial queue.
+     * @param queueFile the event queue written by the Injector
+     * @param fingerprint the fingerprint of the queue
+     */
+    public static void store(File queueFile, String fingerprint) {
+        File cacheFile = getCacheFile(fingerprint);
+        try {
+            cacheFile.getParentFile().mkdirs();
+            File tmp = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getParentFile());
+            Files.copy(queueFile.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Unable to store the event queue in the cache: " + e.getMessage());
+        }
+    }
+}
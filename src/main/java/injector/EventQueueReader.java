@@ -0,0 +1,176 @@
+package injector;
+
+import configuration.StateTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Replay an event queue written by EventQueueWriter (see the format description there).
+ * The file is memory-mapped by windows of WINDOW_SIZE blocks (so that queues larger than 2GB can be replayed), the
+ * events are rebuilt on demand from the columns of each block. The VM/host indexes
+ * are resolved through the StateTable, hence the queue can only be replayed on the same configuration (i.e. the same
+ * number of hosts and VMs, created in the same order).
+ */
+public class EventQueueReader implements Iterator<InjectorEvent> {
+
+    /**
+     * Number of blocks mapped at once
+     */
+    private static final int WINDOW_SIZE = 256;
+
+    private final File path;
+
+    /**
+     * The mapped window of the file and the index of its first block
+     */
+    private MappedByteBuffer buffer;
+    private long windowFirstBlock = -1;
+
+    private final int blockSize;
+
+    private final long nbOfEvents;
+
+    /**
+     * Index of the next event
+     */
+    private long next = 0;
+
+    /**
+     * Arrivals of the VMs created by the churn that have not left yet (indexed by their churn index)
+     */
+    private final HashMap<Integer, VMArrivalEvent> arrivals = new HashMap<Integer, VMArrivalEvent>();
+
+    /**
+     * Offset of the columns of the current block (in the mapped window)
+     */
+    private int timesOffset;
+    private int idsOffset;
+    private int indexesOffset;
+    private int valuesOffset;
+    private int extrasOffset;
+    private int kindsOffset;
+
+    public EventQueueReader(File path) throws IOException {
+        this.path = path;
+        MappedByteBuffer header = map(0, EventQueueWriter.HEADER_SIZE);
+        if (header.capacity() < EventQueueWriter.HEADER_SIZE || header.getInt(0) != EventQueueWriter.MAGIC || header.getInt(4) != EventQueueWriter.VERSION)
+            throw new IOException(path + " is not a valid event queue (wrong magic number or version)");
+        this.blockSize = header.getInt(8);
+        this.nbOfEvents = header.getLong(16);
+    }
+
+    /**
+     * Map a part of the file (the mapping remains valid once the file is closed)
+     * @param position the offset of the part in the file
+     * @param size the size of the part (it is truncated at the end of the file)
+     */
+    private MappedByteBuffer map(long position, long size) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size, channel.size() - position));
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * @return the number of events in the queue
+     */
+    public long getNbOfEvents() {
+        return nbOfEvents;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next < nbOfEvents;
+    }
+
+    @Override
+    public InjectorEvent next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        int i = (int) (next % blockSize);
+        if (i == 0)
+            locateBlock(next / blockSize);
+        next++;
+
+        double time = buffer.getDouble(timesOffset + i * 8);
+        long id = buffer.getLong(idsOffset + i * 8);
+        int index = buffer.getInt(indexesOffset + i * 4);
+        int value = buffer.getInt(valuesOffset + i * 4);
+        int extra = buffer.getInt(extrasOffset + i * 4);
+        byte kind = buffer.get(kindsOffset + i);
+
+        switch (kind) {
+            case EventQueueWriter.KIND_LOAD:
+                if (index >= StateTable.getNbOfVMs())
+                    inconsistent("VM", index);
+                return new LoadEvent(id, time, StateTable.getXVM(index), value);
+            case EventQueueWriter.KIND_FAULT:
+                if (index >= StateTable.getNbOfHosts())
+                    inconsistent("host", index);
+                return new FaultEvent(id, time, StateTable.getXHost(index), value == 1);
+            case EventQueueWriter.KIND_MEMORY:
+                if (index >= StateTable.getNbOfVMs())
+                    inconsistent("VM", index);
+                return new MemoryEvent(id, time, StateTable.getXVM(index), value);
+            case EventQueueWriter.KIND_NETWORK:
+                if (index >= StateTable.getNbOfVMs())
+                    inconsistent("VM", index);
+                return new NetworkEvent(id, time, StateTable.getXVM(index), value);
+            case EventQueueWriter.KIND_VM_ARRIVAL:
+                VMArrivalEvent arrival = new VMArrivalEvent(id, time, index, extra, value);
+                arrivals.put(index, arrival);
+                return arrival;
+            case EventQueueWriter.KIND_VM_DEPARTURE:
+                if (!arrivals.containsKey(index))
+                    inconsistent("churn VM", index);
+                return new VMDepartureEvent(id, time, arrivals.remove(index));
+            default:
+                throw new IllegalStateException("Unknown event kind " + kind + " in the event queue");
+        }
+    }
+
+    /**
+     * Compute the offset of each column of the given block (the next window is mapped if required)
+     */
+    private void locateBlock(long block) {
+        long blockBytes = (long) blockSize * EventQueueWriter.EVENT_SIZE;
+        if (windowFirstBlock < 0 || block >= windowFirstBlock + WINDOW_SIZE) {
+            try {
+                buffer = null; // The previous window can be unmapped
+                buffer = map(EventQueueWriter.HEADER_SIZE + block * blockBytes, WINDOW_SIZE * blockBytes);
+                windowFirstBlock = block;
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to map the event queue " + path + ": " + e.getMessage(), e);
+            }
+        }
+        int nbInBlock = (int) Math.min(blockSize, nbOfEvents - block * blockSize);
+        timesOffset = (int) ((block - windowFirstBlock) * blockBytes);
+        idsOffset = timesOffset + nbInBlock * 8;
+        indexesOffset = idsOffset + nbInBlock * 8;
+        valuesOffset = indexesOffset + nbInBlock * 4;
+        extrasOffset = valuesOffset + nbInBlock * 4;
+        kindsOffset = extrasOffset + nbInBlock * 4;
+    }
+
+    private void inconsistent(String type, int index) {
+        System.err.println("The replayed event queue refers to " + type + " " + index +
+                " which does not exist in the current configuration (or has not arrived yet)");
+        System.exit(-1);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
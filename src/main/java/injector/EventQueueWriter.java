@@ -0,0 +1,162 @@
+package injector;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Streaming writer of the binary event queue format (read back by EventQueueReader).
+ *
+ * The file starts with a header (magic number, version, block size, number of events) followed by blocks of at most
+ * BLOCK_SIZE events. Inside a block, the events are stored column by column (primitive arrays):
+ *  - timestamps (double)
+ *  - ids (long)
+ *  - indexes (int): the id of the XVM for a load/memory/network event, the id of the XHost for a fault event (see StateTable), the
+ *    churn index of the VM for an arrival/departure event
+ *  - values (int): the new CPU load for a load event, 1 (on) / 0 (off) for a fault event, the initial CPU load for an
+ *    arrival event, the new memory demand for a memory event, the new network demand for a network event
+ *  - extras (int): the VM class (index in VMClasses.CLASSES) for an arrival event, 0 otherwise
+ *  - kinds (byte): KIND_LOAD, KIND_FAULT, KIND_VM_ARRIVAL, KIND_VM_DEPARTURE, KIND_MEMORY or KIND_NETWORK
+ * Only the last block may be incomplete. The number of events is patched in the header when the writer is closed.
+ */
+public class EventQueueWriter {
+
+    static final int MAGIC = 0x56515545; // "VQUE"
+    /**
+     * Version of the format, it should be incremented (as EventQueueCache.GENERATION_VERSION) each time the layout of
+     * the blocks or the kinds of events change
+     */
+    static final int VERSION = 3;
+    static final int HEADER_SIZE = 24;
+    static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Size (in bytes) of one event in a block (i.e. the sum of the size of each column)
+     */
+    static final int EVENT_SIZE = 8 + 8 + 4 + 4 + 4 + 1;
+
+    static final byte KIND_LOAD = 0;
+    static final byte KIND_FAULT = 1;
+    static final byte KIND_VM_ARRIVAL = 2;
+    static final byte KIND_VM_DEPARTURE = 3;
+    static final byte KIND_MEMORY = 4;
+    static final byte KIND_NETWORK = 5;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+
+    /**
+     * The columns of the current block
+     */
+    private final ByteBuffer times = ByteBuffer.allocateDirect(BLOCK_SIZE * 8);
+    private final ByteBuffer ids = ByteBuffer.allocateDirect(BLOCK_SIZE * 8);
+    private final ByteBuffer indexes = ByteBuffer.allocateDirect(BLOCK_SIZE * 4);
+    private final ByteBuffer values = ByteBuffer.allocateDirect(BLOCK_SIZE * 4);
+    private final ByteBuffer extras = ByteBuffer.allocateDirect(BLOCK_SIZE * 4);
+    private final ByteBuffer kinds = ByteBuffer.allocateDirect(BLOCK_SIZE);
+
+    /**
+     * Number of events in the current block
+     */
+    private int nbInBlock = 0;
+
+    /**
+     * Total number of written events
+     */
+    private long nbOfEvents = 0;
+
+    public EventQueueWriter(File path) throws IOException {
+        if (path.getParentFile() != null)
+            path.getParentFile().mkdirs();
+        this.file = new RandomAccessFile(path, "rw");
+        this.file.setLength(0);
+        this.channel = file.getChannel();
+        // The number of events is unknown yet (see close)
+        writeHeader();
+    }
+
+    /**
+     * Append one event to the queue
+     * @param evt a LoadEvent, a FaultEvent, a VMArrivalEvent, a VMDepartureEvent, a MemoryEvent or a NetworkEvent
+     */
+    public void write(InjectorEvent evt) throws IOException {
+        if (evt instanceof LoadEvent) {
+            LoadEvent loadEvent = (LoadEvent) evt;
+            append(evt.getTime(), evt.getId(), loadEvent.getVm().getId(), loadEvent.getCPULoad(), 0, KIND_LOAD);
+        } else if (evt instanceof FaultEvent) {
+            FaultEvent faultEvent = (FaultEvent) evt;
+            append(evt.getTime(), evt.getId(), faultEvent.getHost().getId(), faultEvent.getState() ? 1 : 0, 0, KIND_FAULT);
+        } else if (evt instanceof MemoryEvent) {
+            MemoryEvent memoryEvent = (MemoryEvent) evt;
+            append(evt.getTime(), evt.getId(), memoryEvent.getVm().getId(), memoryEvent.getMemDemand(), 0, KIND_MEMORY);
+        } else if (evt instanceof NetworkEvent) {
+            NetworkEvent networkEvent = (NetworkEvent) evt;
+            append(evt.getTime(), evt.getId(), networkEvent.getVm().getId(), networkEvent.getNetDemand(), 0, KIND_NETWORK);
+        } else if (evt instanceof VMArrivalEvent) {
+            VMArrivalEvent arrival = (VMArrivalEvent) evt;
+            append(evt.getTime(), evt.getId(), arrival.getChurnIndex(), arrival.getCPULoad(), arrival.getVMClass(), KIND_VM_ARRIVAL);
+        } else if (evt instanceof VMDepartureEvent) {
+            VMDepartureEvent departure = (VMDepartureEvent) evt;
+            append(evt.getTime(), evt.getId(), departure.getArrival().getChurnIndex(), 0, 0, KIND_VM_DEPARTURE);
+        } else {
+            throw new IllegalArgumentException("Unsupported event type: " + evt.getClass().getName());
+        }
+    }
+
+    private void append(double time, long id, int index, int value, int extra, byte kind) throws IOException {
+        times.putDouble(time);
+        ids.putLong(id);
+        indexes.putInt(index);
+        values.putInt(value);
+        extras.putInt(extra);
+        kinds.put(kind);
+        nbOfEvents++;
+        if (++nbInBlock == BLOCK_SIZE)
+            flushBlock();
+    }
+
+    /**
+     * Write the current block (column by column)
+     */
+    private void flushBlock() throws IOException {
+        if (nbInBlock == 0)
+            return;
+        for (ByteBuffer column : new ByteBuffer[]{times, ids, indexes, values, extras, kinds}) {
+            column.flip();
+            while (column.hasRemaining())
+                channel.write(column);
+            column.clear();
+        }
+        nbInBlock = 0;
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(BLOCK_SIZE).putInt(0).putLong(nbOfEvents);
+        header.flip();
+        long position = 0;
+        while (header.hasRemaining())
+            position += channel.write(header, position);
+        if (channel.position() < HEADER_SIZE)
+            channel.position(HEADER_SIZE);
+    }
+
+    /**
+     * @return the number of events written so far
+     */
+    public long getNbOfEvents() {
+        return nbOfEvents;
+    }
+
+    /**
+     * Flush the last (incomplete) block, write the number of events in the header and close the file
+     */
+    public void close() throws IOException {
+        flushBlock();
+        writeHeader();
+        channel.close();
+        file.close();
+    }
+}
@@ -0,0 +1,121 @@
+package injector;
+
+import configuration.StateTable;
+import configuration.XHost;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Build a fault queue (crash and recovery events) sorted by timestamp.
+ * The pending recovery (turn on) event of each host is indexed by host id, so postponing a recovery is O(1).
+ * Crashes and recoveries are kept in two lists; when each list is generated in chronological order (the usual case),
+ * the final queue is obtained by a linear merge instead of a sort.
+ */
+class FaultQueueBuilder {
+
+    private static final Comparator<FaultEvent> ORDER = new Comparator<FaultEvent>() {
+        @Override
+        public int compare(FaultEvent e1, FaultEvent e2) {
+            int res = Double.compare(e1.getTime(), e2.getTime());
+            // Ids are assigned in the insertion order (i.e. same order as a stable sort of the insertion order)
+            return (res != 0) ? res : Long.compare(e1.getId(), e2.getId());
+        }
+    };
+
+    private final List<FaultEvent> crashes = new ArrayList<FaultEvent>();
+
+    /**
+     * Recoveries in the insertion order (a cancelled recovery is replaced by null)
+     */
+    private final List<FaultEvent> recoveries = new ArrayList<FaultEvent>();
+
+    /**
+     * Index (in recoveries) of the pending recovery of each host, -1 if none
+     */
+    private final int[] pendingRecovery;
+
+    /**
+     * Whether each list has been filled in chronological order
+     */
+    private boolean crashesSorted = true;
+    private boolean recoveriesSorted = true;
+
+    private int nbOfCancelledRecoveries = 0;
+
+    /**
+     * Last added recovery (even if it has been cancelled since)
+     */
+    private FaultEvent lastRecovery = null;
+
+    FaultQueueBuilder() {
+        pendingRecovery = new int[StateTable.getNbOfHosts()];
+        Arrays.fill(pendingRecovery, -1);
+    }
+
+    /**
+     * If the host is still off at currentTime, its pending recovery is removed (the caller postpones it)
+     * @return true if the host is still off at currentTime
+     */
+    boolean cancelPendingRecovery(XHost host, double currentTime) {
+        int index = pendingRecovery[host.getId()];
+        if (index == -1 || recoveries.get(index).getTime() < currentTime)
+            return false;
+        recoveries.set(index, null);
+        pendingRecovery[host.getId()] = -1;
+        nbOfCancelledRecoveries++;
+        return true;
+    }
+
+    void addCrash(FaultEvent evt) {
+        if (!crashes.isEmpty() && ORDER.compare(crashes.get(crashes.size() - 1), evt) > 0)
+            crashesSorted = false;
+        crashes.add(evt);
+    }
+
+    void addRecovery(FaultEvent evt) {
+        if (!recoveries.isEmpty() && ORDER.compare(lastRecovery, evt) > 0)
+            recoveriesSorted = false;
+        pendingRecovery[evt.getHost().getId()] = recoveries.size();
+        recoveries.add(evt);
+        lastRecovery = evt;
+    }
+
+    /**
+     * @return the number of events of the queue
+     */
+    int size() {
+        return crashes.size() + recoveries.size() - nbOfCancelledRecoveries;
+    }
+
+    /**
+     * @return the fault queue sorted by timestamp
+     */
+    LinkedList<FaultEvent> build() {
+        LinkedList<FaultEvent> queue = new LinkedList<FaultEvent>();
+        if (!crashesSorted || !recoveriesSorted) {
+            queue.addAll(crashes);
+            for (FaultEvent evt : recoveries)
+                if (evt != null)
+                    queue.add(evt);
+            Collections.sort(queue, ORDER);
+            return queue;
+        }
+
+        int c = 0, r = 0;
+        while (c < crashes.size() || r < recoveries.size()) {
+            if (r < recoveries.size() && recoveries.get(r) == null) {
+                r++;
+            } else if (r == recoveries.size() || (c < crashes.size() && ORDER.compare(crashes.get(c), recoveries.get(r)) < 0)) {
+                queue.add(crashes.get(c++));
+            } else {
+                queue.add(recoveries.get(r++));
+            }
+        }
+        return queue;
+    }
+}
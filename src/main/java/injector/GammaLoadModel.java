@@ -0,0 +1,22 @@
+package injector;
+
+import configuration.ExtendedRandom;
+import configuration.SimulatorProperties;
+
+/**
+ * Gamma law of parameters load.gamma.shape and load.gamma.scale (in percent), i.e. a heavy-tailed load.
+ */
+public class GammaLoadModel implements LoadModel {
+
+    private final double shape = SimulatorProperties.getGammaShape();
+    private final double scale = SimulatorProperties.getGammaScale();
+
+    @Override
+    public void init(int nbOfVMs) {
+    }
+
+    @Override
+    public double nextLoad(int vm, double time, ExtendedRandom rand) {
+        return rand.nextGamma(shape, scale);
+    }
+}
@@ -0,0 +1,22 @@
+package injector;
+
+import configuration.ExtendedRandom;
+import configuration.SimulatorProperties;
+
+/**
+ * Gaussian law of mean load.mean and standard deviation load.std (the historical load model).
+ */
+public class GaussianLoadModel implements LoadModel {
+
+    private final double mean = SimulatorProperties.getMeanLoad();
+    private final double sigma = SimulatorProperties.getStandardDeviationLoad();
+
+    @Override
+    public void init(int nbOfVMs) {
+    }
+
+    @Override
+    public double nextLoad(int vm, double time, ExtendedRandom rand) {
+        return Math.max((rand.nextGaussian() * sigma) + mean, 0);
+    }
+}
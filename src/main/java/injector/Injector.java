@@ -14,117 +14,111 @@ import trace.Trace;
 import scheduling.centralized.entropy2.EntropyProperties;
 import simulation.*;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.*;
 
 
 public class Injector extends Process {
 
-    private Deque<InjectorEvent> evtQueue = null ;
-    private Deque<LoadEvent> loadQueue = null ;
+    /**
+     * The stream of events (load and fault events merged by timestamp), events are generated on demand
+     */
+    private Iterator<InjectorEvent> evtQueue = null ;
     private Deque<FaultEvent> faultQueue = null ;
 
+    /**
+     * Writer used to serialize the events in the binary event queue when they are pulled from the queue
+     * (null in replay mode)
+     */
+    private EventQueueWriter queueWriter = null;
+    private File queueFile = null;
+
+    /**
+     * Fingerprint of the generated queue (null when the event queue cache is disabled or when the queue is replayed)
+     */
+    private String queueFingerprint = null;
+
 	Injector(Host host, String name, String[] args) throws HostNotFoundException, NativeException  {
 	    super(host, name, args);
+        queueFile = new File(SimulatorProperties.getEventQueueFile());
+
+        // Replay an event queue serialized by a previous run
+        if (SimulatorProperties.replayEventQueue()) {
+            try {
+                EventQueueReader reader = new EventQueueReader(queueFile);
+                System.out.println("Replay the event queue "+queueFile+" ("+reader.getNbOfEvents()+" events)");
+                evtQueue = reader;
+                return;
+            } catch (IOException e) {
+                System.err.println("Unable to replay the event queue "+queueFile+": "+e.getMessage());
+                System.exit(-1);
+            }
+        }
+
+        // Reuse the queue generated by a previous run with the same parameters
+        if (SimulatorProperties.useEventQueueCache()) {
+            String fingerprint = EventQueueCache.fingerprint(SimulatorManager.getSGVMsToArray(), SimulatorManager.getSGHostsToArray());
+            File cacheFile = EventQueueCache.getCacheFile(fingerprint);
+            if (cacheFile.exists()) {
+                try {
+                    EventQueueReader reader = new EventQueueReader(cacheFile);
+                    System.out.println("Reuse the cached event queue "+cacheFile+" ("+reader.getNbOfEvents()+" events)");
+                    evtQueue = reader;
+                    return;
+                } catch (IOException e) {
+                    System.err.println("Unable to read the cached event queue "+cacheFile+", it will be regenerated: "+e.getMessage());
+                }
+            }
+            queueFingerprint = fingerprint;
+        }
+
        // System.out.println("Create the event queues");
-        loadQueue = generateLoadQueue(SimulatorManager.getSGVMs().toArray(new XVM[SimulatorManager.getSGVMs().size()]), SimulatorProperties.getDuration(), SimulatorProperties.getLoadPeriod());
-        //System.out.println("Size of getCPUDemand queue:"+loadQueue.size());
+        // The load events are generated lazily (see LoadEventGenerator, ParallelLoadEventGenerator and TraceLoadEventSource)
+        Iterator<LoadEvent> loadQueue;
+        if (SimulatorProperties.getLoadSource().equals("trace"))
+            loadQueue = new TraceLoadEventSource(SimulatorManager.getSGVMsToArray(), SimulatorProperties.getDuration(), SimulatorProperties.getLoadTraceFile(), SimulatorProperties.getLoadTraceReadAhead());
+        else if (SimulatorProperties.getLoadGeneration().equals("parallel"))
+            loadQueue = new ParallelLoadEventGenerator(SimulatorManager.getSGVMsToArray(), SimulatorProperties.getDuration(), SimulatorProperties.getLoadPeriod(), SimulatorProperties.getLoadGenerationThreads());
+        else
+            loadQueue = new LoadEventGenerator(SimulatorManager.getSGVMsToArray(), SimulatorProperties.getDuration(), SimulatorProperties.getLoadPeriod());
         // Stupid code to stress Snooze service nodes - Used for the paper submission
         if(SimulatorProperties.getAlgo().equals("hierarchical") && SnoozeProperties.faultMode())
             faultQueue =generateSnoozeFaultQueue(SimulatorManager.getSGHostsToArray(), SimulatorProperties.getDuration());
         else
             faultQueue =generateFaultQueue(SimulatorManager.getSGHostsToArray(), SimulatorProperties.getDuration(), SimulatorProperties.getCrashPeriod());
          System.out.println("Size of fault queue:"+faultQueue.size());
-        evtQueue = mergeQueues(loadQueue,faultQueue);
-       // System.out.println("Size of event queue:"+evtQueue.size());
-
-        // Serialize eventqueue in a file.
-        File f = new File ("injector_queue.txt");
-        try
-        {
-            FileWriter fw = new FileWriter (f);
-
-            for (InjectorEvent evt: evtQueue)
-                fw.write (evt.toString()+"\n");
-            fw.close();
-        }
-        catch (IOException exception)
-        {
-            System.out.println ("Erreur lors de la lecture : " + exception.getMessage());
+        List<Iterator<? extends InjectorEvent>> streams = new ArrayList<>();
+        streams.add(loadQueue);
+        streams.add(faultQueue.iterator());
+        // Memory demand changes
+        if (SimulatorProperties.getMemoryPeriod() > 0)
+            streams.add(new MemoryEventGenerator(SimulatorManager.getSGVMsToArray(), SimulatorProperties.getDuration(), SimulatorProperties.getMemoryPeriod()));
+        // Network demand changes
+        if (SimulatorProperties.getNetworkPeriod() > 0)
+            streams.add(new NetworkEventGenerator(SimulatorManager.getSGVMsToArray(), SimulatorProperties.getDuration(), SimulatorProperties.getNetworkPeriod()));
+        // VM arrivals and departures
+        if (SimulatorProperties.getChurnArrivalRate() > 0)
+            streams.add(new ChurnEventGenerator(SimulatorProperties.getDuration(), SimulatorProperties.getChurnArrivalRate()));
+        evtQueue = new EventMerger(streams);
+
+        // Serialize the event queue (the events are written when they are pulled, see nextEvent)
+        try {
+            queueWriter = new EventQueueWriter(queueFile);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
 
-    /**
-     *
-     * @param vms, Simgrid VMs that have been instanciated
-     * @param duration int, duration of the simulated time in second
-     * @param injectionPeriod int,  frequency of event occurrence in seconds
-     * @return the queue of the VM changes
-     */
-    public static Deque<LoadEvent> generateLoadQueue(XVM[] vms, long duration, int injectionPeriod) {
-
-        LinkedList<LoadEvent> eventQueue = new LinkedList<LoadEvent>();
-        Random randExpDis=new Random(SimulatorProperties.getSeed());
-        double currentTime = 0 ;
-        double lambdaPerVM=1.0/injectionPeriod ; // Nb Evt per VM (average)
-
-        Random randGaussian=new Random(SimulatorProperties.getSeed());
-
-        double mean = SimulatorProperties.getMeanLoad();
-        double sigma = SimulatorProperties.getStandardDeviationLoad();
-
-        double gLoad = 0;
-
-        double lambda=lambdaPerVM*vms.length;
-
-       // int maxCPUDemand = SimulatorProperties.getCPUCapacity()/SimulatorProperties.getNbOfCPUs();
-        int maxCPUDemand = SimulatorProperties.getVMMAXCPUConsumption();
-        int nbOfCPUDemandSlots = SimulatorProperties.getNbOfCPUConsumptionSlots();
-        int vmCPUDemand;
-        long id=0;
-        XVM tempVM;
-
-        currentTime+=exponentialDis(randExpDis, lambda);
-
-        Random randVMPicker = new Random(SimulatorProperties.getSeed());
-        int nbOfVMs = vms.length;
-
-        while(currentTime < duration){
-            //   if( !skipOverlappingEvent || ((int)currentTime) % EntropyProperties.getEntropyPeriodicity() != 0){
-            // select a VM
-            tempVM = vms[randVMPicker.nextInt(nbOfVMs)];
-            // and change its state
-
-            int cpuConsumptionSlot = maxCPUDemand/nbOfCPUDemandSlots;
-
-            /* Gaussian law for the getCPUDemand assignment */
-            gLoad = Math.max((randGaussian.nextGaussian()*sigma)+mean, 0);
-            int slot= (int) Math.round(Math.min(100,gLoad)*nbOfCPUDemandSlots/100);
-
-            vmCPUDemand = slot*cpuConsumptionSlot*(int)tempVM.getCoreNumber();
-
-            // Add a new event queue
-            eventQueue.add(new LoadEvent(id++, currentTime,tempVM, vmCPUDemand));
-            //  }
-            currentTime+=exponentialDis(randExpDis, lambda);
-            //        System.err.println(eventQueue.size());
-        }
-        Msg.info("Number of events:"+eventQueue.size());
-        return eventQueue;
-    }
-
     /* Compute the next exponential value for rand */
-    private static double exponentialDis(Random rand, double lambda) {
+    static double exponentialDis(Random rand, double lambda) {
         return -Math.log(1 - rand.nextDouble()) / lambda;
     }
 
 
     public static Deque<FaultEvent> generateSnoozeFaultQueue(XHost[] xhosts,  long duration) {
-        LinkedList<FaultEvent> faultQueue = new LinkedList<FaultEvent>();
+        FaultQueueBuilder faultQueue = new FaultQueueBuilder();
         long id=0;
         XHost tempHost;
         double currentTime = 0;
@@ -140,15 +134,15 @@ public class Injector extends Process {
 
                 tempHost = xhosts[SimulatorManager.getSGHostingHosts().size()];
 
-                if (!ifStillOffUpdate(tempHost, faultQueue, currentTime)) {
+                if (!faultQueue.cancelPendingRecovery(tempHost, currentTime)) {
                     // and change its state
                     // false = off , on = true
                     // Add a new event queue
-                    faultQueue.add(new FaultEvent(id++, currentTime, tempHost, false));
+                    faultQueue.addCrash(new FaultEvent(id++, currentTime, tempHost, false));
                 }
                 if (currentTime + crashDuration < duration) {
                     //For the moment, downtime of a node is arbitrarily set to crashDuration
-                    faultQueue.add(new FaultEvent(id++, currentTime + (crashDuration), tempHost, true));
+                    faultQueue.addRecovery(new FaultEvent(id++, currentTime + (crashDuration), tempHost, true));
                     //        System.err.println(eventQueue.size());
                 }
                 currentTime += GLFaultPeriod;
@@ -169,45 +163,34 @@ public class Injector extends Process {
             // Please remind that node0 hosts VMs, so the first service node is Simulator.Manager.getSGHostingHosts().
             tempHost = xhosts[SimulatorManager.getSGHostingHosts().size()+index];
 
-            if(!ifStillOffUpdate(tempHost, faultQueue, currentTime)) {
+            if(!faultQueue.cancelPendingRecovery(tempHost, currentTime)) {
                 // and change its state
                 // false = off , on = true
                 // Add a new event queue
-                faultQueue.add(new FaultEvent(id++, currentTime, tempHost, false));
+                faultQueue.addCrash(new FaultEvent(id++, currentTime, tempHost, false));
             }
             if (currentTime + crashDuration < duration) {
                 //For the moment, downtime of a node is arbitrarily set to crashDuration
-                faultQueue.add(new FaultEvent(id++, currentTime + (crashDuration), tempHost, true));
+                faultQueue.addRecovery(new FaultEvent(id++, currentTime + (crashDuration), tempHost, true));
                 //        System.err.println(eventQueue.size());
             }
             currentTime += GMFaultPeriod;
         }while(currentTime < duration);
 
 
-        Msg.info("Number of events:"+faultQueue.size());
-        for (InjectorEvent evt: faultQueue){
+        // The queue is sorted by timestamp (required for the merge)
+        LinkedList<FaultEvent> queue = faultQueue.build();
+        Msg.info("Number of events:"+queue.size());
+        for (InjectorEvent evt: queue){
             Msg.info(evt.toString());
         }
 
-        // Sort the list for the merge:
-        Collections.sort(faultQueue, new Comparator<FaultEvent>() {
-            @Override
-            public int compare(FaultEvent o1, FaultEvent o2) {
-                if (o1.getTime() > o2.getTime())
-                    return 1 ;
-                else if (o1.getTime() == o2.getTime())
-                    return 0 ;
-                else // o1.getTime() < o2.getTime()
-                    return -1;
-            }
-        });
-
-        return faultQueue;
+        return queue;
 
     }
 
         public static Deque<FaultEvent> generateFaultQueue(XHost[] xhosts,  long duration, int faultPeriod){
-        LinkedList<FaultEvent> faultQueue = new LinkedList<FaultEvent>();
+        FaultQueueBuilder faultQueue = new FaultQueueBuilder();
         Random randExpDis=new Random(SimulatorProperties.getSeed());
         double currentTime = 0 ;
         double lambdaPerHost=1.0/faultPeriod ; // Nb crash per host (average)
@@ -227,121 +210,80 @@ public class Injector extends Process {
             int index = randHostPicker.nextInt(nbOfHosts);
             tempHost = xhosts[index];
 
-            if(!ifStillOffUpdate(tempHost, faultQueue, currentTime)) {
+            if(!faultQueue.cancelPendingRecovery(tempHost, currentTime)) {
 
                 // and change its state
                 // false = off , on = true
                 // Add a new event queue
-                faultQueue.add(new FaultEvent(id++, currentTime, tempHost, false));
+                faultQueue.addCrash(new FaultEvent(id++, currentTime, tempHost, false));
             }
             if (currentTime + crashDuration < duration) {
                     //For the moment, downtime of a node is arbitrarily set to crashDuration
-                    faultQueue.add(new FaultEvent(id++, currentTime + (crashDuration), tempHost, true));
+                    faultQueue.addRecovery(new FaultEvent(id++, currentTime + (crashDuration), tempHost, true));
                 //        System.err.println(eventQueue.size());
             }
             currentTime += exponentialDis(randExpDis, lambda);
         }
 
-        Msg.info("Number of events:"+faultQueue.size());
-        for (InjectorEvent evt: faultQueue){
+        // The queue is sorted by timestamp (required for the merge)
+        LinkedList<FaultEvent> queue = faultQueue.build();
+        Msg.info("Number of events:"+queue.size());
+        for (InjectorEvent evt: queue){
             Msg.info(evt.toString());
         }
 
-        // Sort the list for the merge:
-        Collections.sort(faultQueue, new Comparator<FaultEvent>() {
-            @Override
-            public int compare(FaultEvent o1, FaultEvent o2) {
-                 if (o1.getTime() > o2.getTime())
-                     return 1 ;
-                 else if (o1.getTime() == o2.getTime())
-                      return 0 ;
-                 else // o1.getTime() < o2.getTime()
-                    return -1;
-            }
-        });
-
-        return faultQueue;
-    }
-    public static boolean isStillOff(XHost tmp, LinkedList<FaultEvent> queue, double currentTime, double crashDuration){
-        ListIterator<FaultEvent> iterator = queue.listIterator(queue.size());
-        while(iterator.hasPrevious()){
-            FaultEvent evt = iterator.previous();
-            if(evt.getState() == false){
-                if (evt.getTime() + crashDuration  >= currentTime) {
-                    if (evt.getHost()== tmp)
-                        return true;
-                }
-                else
-                    break;
-            }
-        }
-        return false;
-    }
-    // if the node is off, we should remove the next On event and postpone it at currenttime +crashDuration
-    // Note that the update is performed in the upper function.
-    private static boolean ifStillOffUpdate(XHost tmp, LinkedList<FaultEvent> queue, double currentTime){
-        ListIterator<FaultEvent> iterator = queue.listIterator(queue.size());
-        while(iterator.hasPrevious()){
-            FaultEvent evt = iterator.previous();
-            if(evt.getState() == true){
-                if (evt.getTime()  >= currentTime) {
-                    if (evt.getHost()== tmp) {
-                        iterator.remove();
-                        return true;
-                    }
-                }
-                else
-                    break;
-            }
-        }
-        return false;
+        return queue;
     }
 
-    public static Deque<InjectorEvent> mergeQueues(Deque<LoadEvent> loadQueue, Deque<FaultEvent> faultQueue) {
-        LinkedList<InjectorEvent> queue = new LinkedList<InjectorEvent>();
-        FaultEvent crashEvt;
-        if (faultQueue != null)
-            crashEvt = faultQueue.pollFirst();
-        else
-            crashEvt = null;
-        LoadEvent loadEvt = loadQueue.pollFirst();
-        // Here we are considering that the getCPUDemand event queue cannot be empty
-        while(loadEvt != null){
-
-            while (crashEvt != null && loadEvt.getTime()>crashEvt.getTime()){
-                queue.addLast(crashEvt);
-                crashEvt = faultQueue.pollFirst();
-            }
-            queue.addLast(loadEvt);
-            loadEvt = loadQueue.pollFirst();
-        }//while(loadEvt != null);
-
-        while(crashEvt != null){
-            queue.addLast(crashEvt);
-            crashEvt = faultQueue.pollFirst();
+    /**
+     * Serialize one event in the event queue file
+     */
+    private void writeEvent(InjectorEvent evt) {
+        if (queueWriter == null)
+            return;
+        try {
+            queueWriter.write(evt);
+        } catch (IOException e) {
+            e.printStackTrace();
+            queueWriter = null;
         }
-
-        writeEventQueue(queue);
-
-        return queue;
     }
 
-    private static void writeEventQueue(LinkedList<InjectorEvent> queue) {
-
+    /**
+     * Close the event queue file
+     */
+    private void closeEventQueueFile() {
+        if (queueWriter == null)
+            return;
         try {
-            File file = new File("logs/events-queue.txt");
-            file.getParentFile().mkdirs();
-            BufferedWriter bw = new BufferedWriter(new FileWriter(file));
-            for (InjectorEvent evt: queue){
-                bw.write(evt.toString());
-                bw.write("\n");
-                bw.flush();
-            }
-
-            bw.close();
+            queueWriter.close();
+            Msg.info("Number of events:"+queueWriter.getNbOfEvents());
+            // The whole queue has been written, it can be reused by the next runs
+            if (queueFingerprint != null)
+                EventQueueCache.store(queueFile, queueFingerprint);
         } catch (IOException e) {
             e.printStackTrace();
         }
+        queueWriter = null;
+    }
+
+    /**
+     * Play a batch of events in order. The load events are applied through a SimulatorManager batch (violations and
+     * traces are updated once per host), the batch is interrupted by the fault events (hosts are turned on/off outside
+     * of any batch).
+     */
+    private void playBatch(List<InjectorEvent> batch) {
+        SimulatorManager.beginBatch();
+        for (InjectorEvent evt : batch) {
+            if (evt instanceof LoadEvent) {
+                evt.play();
+            } else {
+                SimulatorManager.endBatch();
+                evt.play();
+                SimulatorManager.beginBatch();
+            }
+        }
+        SimulatorManager.endBatch();
     }
 
     /* Args : nbPMs nbVMs eventFile */
@@ -363,6 +305,7 @@ public class Injector extends Process {
 
 	   Trace.hostVariableSet(SimulatorManager.getInjectorNodeName(), "NB_MIG", 0);
 	   Trace.hostVariableSet(SimulatorManager.getInjectorNodeName(), "NB_MC", 0);
+	   Trace.hostVariableSet(SimulatorManager.getInjectorNodeName(), "NB_VM", SimulatorManager.getSGVMs().size());
 
       InjectorEvent evt = nextEvent();
       if(SimulatorProperties.goToStationaryStatus()){
@@ -377,12 +320,32 @@ public class Injector extends Process {
           } while (true);
       }
 
-      while(evt!=null){
-		   if(evt.getTime() - Msg.getClock()>0)
-         	   waitFor(evt.getTime() - Msg.getClock());
-	       evt.play();
-	       evt=nextEvent();
+      double epsilon = SimulatorProperties.getBatchEpsilon();
+      if (epsilon < 0) {
+          while(evt!=null){
+		       if(evt.getTime() - Msg.getClock()>0)
+         	       waitFor(evt.getTime() - Msg.getClock());
+	           evt.play();
+	           evt=nextEvent();
+          }
+      } else {
+          // Batched playback: the events due within epsilon are played together after a single wait
+          List<InjectorEvent> batch = new ArrayList<>();
+          while(evt!=null){
+              double batchEnd = evt.getTime() + epsilon;
+              do {
+                  batch.add(evt);
+                  evt = nextEvent();
+              } while (evt != null && evt.getTime() <= batchEnd);
+
+              double batchTime = batch.get(batch.size() - 1).getTime();
+              if(batchTime - Msg.getClock()>0)
+                  waitFor(batchTime - Msg.getClock());
+              playBatch(batch);
+              batch.clear();
+          }
       }
+      closeEventQueueFile();
       waitFor(SimulatorProperties.getDuration() - Msg.getClock());
 	  Msg.info("End of Injection");
 	  SimulatorManager.setEndOfInjection();
@@ -392,6 +355,10 @@ public class Injector extends Process {
     }
 
 	private InjectorEvent nextEvent() {
-		return this.evtQueue.pollFirst();
+		if (!this.evtQueue.hasNext())
+			return null;
+		InjectorEvent evt = this.evtQueue.next();
+		writeEvent(evt);
+		return evt;
 	}
 }
\ No newline at end of file
@@ -36,7 +36,9 @@ public class LoadEvent implements InjectorEvent {
     }
 
     public void play(){
-        SimulatorManager.updateVM(this.getVm(), this.getCPULoad());
+        // The VM may have left the system (VM churn)
+        if (!this.getVm().isDestroyed())
+            SimulatorManager.updateVM(this.getVm(), this.getCPULoad());
     }
 
 }
@@ -0,0 +1,112 @@
+package injector;
+
+import configuration.ExtendedRandom;
+import configuration.SimulatorProperties;
+import configuration.XVM;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Pull-based generator of the load events (the Injector merges it with the other event streams, see EventMerger).
+ * Events are produced on demand in timestamp order, so the memory footprint does not depend on the duration of the
+ * simulation.
+ */
+public class LoadEventGenerator implements Iterator<LoadEvent> {
+
+    /**
+     * The VMs whose load is changed
+     */
+    private final XVM[] vms;
+
+    /**
+     * Duration of the simulated time in second
+     */
+    private final long duration;
+
+    /**
+     * Random generators (one for the inter-arrival times, one for the load values and one for the VM selection)
+     */
+    private final Random randExpDis;
+    private final ExtendedRandom randLoad;
+    private final Random randVMPicker;
+
+    /**
+     * The model giving the load values (see load.model)
+     */
+    private final LoadModel model;
+
+    /**
+     * Global rate of the events (i.e. rate per VM * number of VMs)
+     */
+    private final double lambda;
+
+    private final int maxCPUDemand;
+    private final int nbOfCPUDemandSlots;
+
+    /**
+     * Timestamp of the next event
+     */
+    private double currentTime = 0;
+
+    /**
+     * Id of the next event
+     */
+    private long id = 0;
+
+    /**
+     * @param vms, Simgrid VMs that have been instanciated
+     * @param duration int, duration of the simulated time in second
+     * @param injectionPeriod int,  frequency of event occurrence in seconds
+     */
+    public LoadEventGenerator(XVM[] vms, long duration, int injectionPeriod) {
+        this.vms = vms;
+        this.duration = duration;
+        this.randExpDis = new Random(SimulatorProperties.getSeed());
+        this.randLoad = new ExtendedRandom(SimulatorProperties.getSeed());
+        this.randVMPicker = new Random(SimulatorProperties.getSeed());
+
+        double lambdaPerVM = 1.0 / injectionPeriod; // Nb Evt per VM (average)
+        this.lambda = lambdaPerVM * vms.length;
+
+        this.model = LoadModelBuilder.build(vms.length);
+        this.maxCPUDemand = SimulatorProperties.getVMMAXCPUConsumption();
+        this.nbOfCPUDemandSlots = SimulatorProperties.getNbOfCPUConsumptionSlots();
+
+        this.currentTime += Injector.exponentialDis(randExpDis, lambda);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return currentTime < duration;
+    }
+
+    @Override
+    public LoadEvent next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        // select a VM
+        int index = randVMPicker.nextInt(vms.length);
+        XVM tempVM = vms[index];
+        // and change its state
+
+        int cpuConsumptionSlot = maxCPUDemand / nbOfCPUDemandSlots;
+
+        /* Load model (gaussian law by default) for the getCPUDemand assignment */
+        double gLoad = Math.max(model.nextLoad(index, currentTime, randLoad), 0);
+        int slot = (int) Math.round(Math.min(100, gLoad) * nbOfCPUDemandSlots / 100);
+
+        int vmCPUDemand = slot * cpuConsumptionSlot * (int) tempVM.getCoreNumber();
+
+        LoadEvent evt = new LoadEvent(id++, currentTime, tempVM, vmCPUDemand);
+        currentTime += Injector.exponentialDis(randExpDis, lambda);
+        return evt;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,29 @@
+package injector;
+
+import configuration.ExtendedRandom;
+
+/**
+ * A stochastic model of the CPU load of the VMs (selected by load.model in simulator.properties, see LoadModelBuilder).
+ * The load generators (LoadEventGenerator, ParallelLoadEventGenerator) decide when the load of a VM changes, the model
+ * gives its new value. The value is then converted into a CPU demand (slots) by the generator.
+ *
+ * Implementations may keep a per-VM state. Please note that in the parallel generation mode, the model is called
+ * concurrently for different VMs (but never for the same VM), hence the per-VM state should be stored in arrays
+ * indexed by the VM index.
+ */
+public interface LoadModel {
+
+    /**
+     * Called once before the generation
+     * @param nbOfVMs the number of VMs (the VM indexes are in [0, nbOfVMs[)
+     */
+    void init(int nbOfVMs);
+
+    /**
+     * @param vm the index of the VM (in the array given to the generator)
+     * @param time the time of the load change (in sec)
+     * @param rand the random stream to use
+     * @return the new load of the VM in percent of its capacity (values outside [0, 100] are clamped)
+     */
+    double nextLoad(int vm, double time, ExtendedRandom rand);
+}
@@ -0,0 +1,54 @@
+package injector;
+
+import configuration.SimulatorProperties;
+import org.simgrid.msg.Msg;
+
+/**
+ * Build the load model given in simulator.properties (load.model).
+ */
+public class LoadModelBuilder {
+
+    /**
+     * @param nbOfVMs the number of VMs whose load is generated
+     * @return the initialized load model
+     */
+    public static LoadModel build(int nbOfVMs) {
+        String name = SimulatorProperties.getLoadModel();
+        LoadModel model;
+        switch (name) {
+            case "gaussian":
+                model = new GaussianLoadModel();
+                break;
+            case "beta":
+                model = new BetaLoadModel();
+                break;
+            case "gamma":
+                model = new GammaLoadModel();
+                break;
+            case "diurnal":
+                model = new DiurnalLoadModel();
+                break;
+            case "markov":
+                model = new MarkovModulatedLoadModel();
+                break;
+            default:
+                model = instantiate(name);
+        }
+        model.init(nbOfVMs);
+        return model;
+    }
+
+    /**
+     * Instantiate a custom load model (class implementing LoadModel with a constructor without parameter)
+     */
+    private static LoadModel instantiate(String className) {
+        try {
+            return (LoadModel) Class.forName(className).getConstructor().newInstance();
+        } catch (Exception e) {
+            Msg.critical("Load model " + className + " cannot be instantiated. Check the value load.model in the simulator properties file.");
+            System.err.println(e);
+            System.exit(-1);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,36 @@
+package injector;
+
+import configuration.ExtendedRandom;
+import configuration.SimulatorProperties;
+
+/**
+ * Bursty load: each VM is driven by a two-state Markov chain (normal/burst). At each load change, a VM in the normal
+ * state enters the burst state with probability load.burst.enter and a VM in the burst state goes back to normal with
+ * probability load.burst.exit. The load is gaussian (standard deviation load.std) of mean load.mean in the normal state
+ * and load.burst.mean in the burst state.
+ */
+public class MarkovModulatedLoadModel implements LoadModel {
+
+    private final double mean = SimulatorProperties.getMeanLoad();
+    private final double sigma = SimulatorProperties.getStandardDeviationLoad();
+    private final double burstMean = SimulatorProperties.getBurstMean();
+    private final double enterProbability = SimulatorProperties.getBurstEnterProbability();
+    private final double exitProbability = SimulatorProperties.getBurstExitProbability();
+
+    /**
+     * Whether each VM is in the burst state
+     */
+    private boolean[] burst;
+
+    @Override
+    public void init(int nbOfVMs) {
+        burst = new boolean[nbOfVMs];
+    }
+
+    @Override
+    public double nextLoad(int vm, double time, ExtendedRandom rand) {
+        if (rand.nextDouble() < (burst[vm] ? exitProbability : enterProbability))
+            burst[vm] = !burst[vm];
+        return Math.max((rand.nextGaussian() * sigma) + (burst[vm] ? burstMean : mean), 0);
+    }
+}
@@ -0,0 +1,48 @@
+package injector;
+
+import configuration.XVM;
+import simulation.SimulatorManager;
+
+/**
+ * Change of the memory demand (i.e. the memory actually used) of a VM.
+ */
+public class MemoryEvent implements InjectorEvent {
+
+    private long id;
+    private double time;
+    private XVM vm;
+    private int newMemDemand;
+
+    public MemoryEvent(long id, double time, XVM vm, int newMemDemand) {
+        this.id = id;
+        this.time = time;
+        this.vm = vm;
+        this.newMemDemand = newMemDemand;
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    public double getTime() {
+        return this.time;
+    }
+
+    public XVM getVm() {
+        return this.vm;
+    }
+
+    public int getMemDemand() {
+        return this.newMemDemand;
+    }
+
+    public String toString() {
+        return this.getTime() + "/" + this.getVm().getName() + "/mem/" + this.getMemDemand();
+    }
+
+    public void play() {
+        // The VM may have left the system (VM churn)
+        if (!this.getVm().isDestroyed())
+            SimulatorManager.updateVMMemory(this.getVm(), this.getMemDemand());
+    }
+}
@@ -0,0 +1,89 @@
+package injector;
+
+import configuration.SimulatorProperties;
+import configuration.XVM;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Pull-based generator of the memory events (see simulator.memoryperiod).
+ * Similarly to the load events (see LoadEventGenerator), the events occur following a Poisson process (one event per
+ * VM every simulator.memoryperiod seconds on average), a random VM is picked for each event and its new memory demand
+ * follows a gaussian law of mean memory.mean and standard deviation memory.std (in percent of the RAM of the VM).
+ */
+public class MemoryEventGenerator implements Iterator<MemoryEvent> {
+
+    private final XVM[] vms;
+
+    /**
+     * Size of the RAM of each VM (read once)
+     */
+    private final int[] memSizes;
+
+    private final long duration;
+
+    /**
+     * Random generators (one for the inter-arrival times, one for the memory values and one for the VM selection)
+     */
+    private final Random randExpDis;
+    private final Random randGaussian;
+    private final Random randVMPicker;
+
+    private final double lambda;
+    private final double mean;
+    private final double sigma;
+
+    private double currentTime = 0;
+
+    private long id = 0;
+
+    /**
+     * @param vms, Simgrid VMs that have been instanciated
+     * @param duration int, duration of the simulated time in second
+     * @param memoryPeriod int,  frequency of event occurrence in seconds (for one VM)
+     */
+    public MemoryEventGenerator(XVM[] vms, long duration, int memoryPeriod) {
+        this.vms = vms;
+        this.memSizes = new int[vms.length];
+        for (int i = 0; i < vms.length; i++)
+            memSizes[i] = vms[i].getMemSize();
+        this.duration = duration;
+        // The seed is shifted, otherwise the memory events would follow exactly the load events (same VMs, same times)
+        long seed = SimulatorProperties.getSeed() + 1;
+        this.randExpDis = new Random(seed);
+        this.randGaussian = new Random(seed);
+        this.randVMPicker = new Random(seed);
+
+        this.lambda = vms.length / (double) memoryPeriod;
+        this.mean = SimulatorProperties.getMeanMemory();
+        this.sigma = SimulatorProperties.getStandardDeviationMemory();
+
+        this.currentTime += Injector.exponentialDis(randExpDis, lambda);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return vms.length > 0 && currentTime < duration;
+    }
+
+    @Override
+    public MemoryEvent next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        int index = randVMPicker.nextInt(vms.length);
+        double gMem = Math.max(0, Math.min(100, (randGaussian.nextGaussian() * sigma) + mean));
+        int memDemand = (int) Math.round(gMem * memSizes[index] / 100);
+
+        MemoryEvent evt = new MemoryEvent(id++, currentTime, vms[index], memDemand);
+        currentTime += Injector.exponentialDis(randExpDis, lambda);
+        return evt;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
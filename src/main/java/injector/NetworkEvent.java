@@ -0,0 +1,48 @@
+package injector;
+
+import configuration.XVM;
+import simulation.SimulatorManager;
+
+/**
+ * Change of the network demand (i.e. the throughput) of a VM.
+ */
+public class NetworkEvent implements InjectorEvent {
+
+    private long id;
+    private double time;
+    private XVM vm;
+    private int newNetDemand;
+
+    public NetworkEvent(long id, double time, XVM vm, int newNetDemand) {
+        this.id = id;
+        this.time = time;
+        this.vm = vm;
+        this.newNetDemand = newNetDemand;
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    public double getTime() {
+        return this.time;
+    }
+
+    public XVM getVm() {
+        return this.vm;
+    }
+
+    public int getNetDemand() {
+        return this.newNetDemand;
+    }
+
+    public String toString() {
+        return this.getTime() + "/" + this.getVm().getName() + "/net/" + this.getNetDemand();
+    }
+
+    public void play() {
+        // The VM may have left the system (VM churn)
+        if (!this.getVm().isDestroyed())
+            SimulatorManager.updateVMNetwork(this.getVm(), this.getNetDemand());
+    }
+}
@@ -0,0 +1,90 @@
+package injector;
+
+import configuration.SimulatorProperties;
+import configuration.XVM;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Pull-based generator of the network events (see simulator.netperiod).
+ * Similarly to the memory events (see MemoryEventGenerator), the events occur following a Poisson process (one event
+ * per VM every simulator.netperiod seconds on average), a random VM is picked for each event and its new network demand
+ * follows a gaussian law of mean net.mean and standard deviation net.std (in percent of the bandwidth of the NIC of
+ * the VM).
+ */
+public class NetworkEventGenerator implements Iterator<NetworkEvent> {
+
+    private final XVM[] vms;
+
+    /**
+     * Bandwidth of the NIC of each VM (read once)
+     */
+    private final int[] netBWs;
+
+    private final long duration;
+
+    /**
+     * Random generators (one for the inter-arrival times, one for the network values and one for the VM selection)
+     */
+    private final Random randExpDis;
+    private final Random randGaussian;
+    private final Random randVMPicker;
+
+    private final double lambda;
+    private final double mean;
+    private final double sigma;
+
+    private double currentTime = 0;
+
+    private long id = 0;
+
+    /**
+     * @param vms, Simgrid VMs that have been instanciated
+     * @param duration int, duration of the simulated time in second
+     * @param networkPeriod int,  frequency of event occurrence in seconds (for one VM)
+     */
+    public NetworkEventGenerator(XVM[] vms, long duration, int networkPeriod) {
+        this.vms = vms;
+        this.netBWs = new int[vms.length];
+        for (int i = 0; i < vms.length; i++)
+            netBWs[i] = (int) vms[i].getNetBW();
+        this.duration = duration;
+        // The seed is shifted, otherwise the network events would follow exactly the load (or the memory) events
+        long seed = SimulatorProperties.getSeed() + 2;
+        this.randExpDis = new Random(seed);
+        this.randGaussian = new Random(seed);
+        this.randVMPicker = new Random(seed);
+
+        this.lambda = vms.length / (double) networkPeriod;
+        this.mean = SimulatorProperties.getMeanNetwork();
+        this.sigma = SimulatorProperties.getStandardDeviationNetwork();
+
+        this.currentTime += Injector.exponentialDis(randExpDis, lambda);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return vms.length > 0 && currentTime < duration;
+    }
+
+    @Override
+    public NetworkEvent next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        int index = randVMPicker.nextInt(vms.length);
+        double gNet = Math.max(0, Math.min(100, (randGaussian.nextGaussian() * sigma) + mean));
+        int netDemand = (int) Math.round(gNet * netBWs[index] / 100);
+
+        NetworkEvent evt = new NetworkEvent(id++, currentTime, vms[index], netDemand);
+        currentTime += Injector.exponentialDis(randExpDis, lambda);
+        return evt;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
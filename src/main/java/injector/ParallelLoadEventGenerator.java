@@ -0,0 +1,280 @@
+package injector;
+
+import configuration.ExtendedRandom;
+import configuration.SimulatorProperties;
+import configuration.SplittableExtendedRandom;
+import configuration.XVM;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel generator of the load events (loadinjector.generation = parallel).
+ * The load values are given by the load model (see load.model).
+ *
+ * Contrary to the LoadEventGenerator (one global exponential clock that picks a random VM for each event), each VM
+ * has its own timeline driven by its own SplittableRandom stream (split from the seed in the VM order). The timelines
+ * are generated window by window: for each window, the VMs are processed by chunks on a fork/join pool, each chunk is
+ * sorted and the chunks are k-way merged by (timestamp, VM index). As the streams are independent and the chunks do
+ * not depend on the number of threads, the sequence of events only depends on the seed and the configuration.
+ *
+ * Please note that this mode does not produce the same events as the sequential one (same laws, different draws).
+ */
+public class ParallelLoadEventGenerator implements Iterator<LoadEvent> {
+
+    /**
+     * Number of VMs processed by one task (it must not depend on the number of threads)
+     */
+    private static final int CHUNK_SIZE = 1024;
+
+    /**
+     * A load event whose id has not been assigned yet (ids are assigned in the merged order)
+     */
+    static class PendingEvent {
+        final double time;
+        final int vm;
+        final int load;
+
+        private PendingEvent(double time, int vm, int load) {
+            this.time = time;
+            this.vm = vm;
+            this.load = load;
+        }
+    }
+
+    private static final Comparator<PendingEvent> ORDER = new Comparator<PendingEvent>() {
+        @Override
+        public int compare(PendingEvent e1, PendingEvent e2) {
+            int res = Double.compare(e1.time, e2.time);
+            return (res != 0) ? res : Integer.compare(e1.vm, e2.vm);
+        }
+    };
+
+    private final XVM[] vms;
+
+    /**
+     * Number of cores of each VM (read once, the workers must not call SimGrid)
+     */
+    private final int[] cores;
+
+    /**
+     * Random stream and timestamp of the next event of each VM
+     */
+    private final ExtendedRandom[] rands;
+    private final double[] nextTimes;
+
+    private final long duration;
+    private final double lambdaPerVM;
+    private final double window;
+
+    private final LoadModel model;
+    private final int maxCPUDemand;
+    private final int nbOfCPUDemandSlots;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Events of the current window (merged) and index of the next one
+     */
+    private List<PendingEvent> batch = Collections.emptyList();
+    private int next = 0;
+
+    /**
+     * Beginning of the next window
+     */
+    private double windowStart = 0;
+
+    /**
+     * Id of the next event
+     */
+    private long id = 0;
+
+    /**
+     * @param vms, Simgrid VMs that have been instanciated
+     * @param duration int, duration of the simulated time in second
+     * @param injectionPeriod int,  frequency of event occurrence in seconds
+     * @param nbOfThreads number of worker threads (0 means one per available core)
+     */
+    public ParallelLoadEventGenerator(XVM[] vms, long duration, int injectionPeriod, int nbOfThreads) {
+        this(vms, coresOf(vms), duration, injectionPeriod, nbOfThreads);
+    }
+
+    /**
+     * @param vms the VMs of the events (the entries may be null if the events are only read through nextPending)
+     * @param cores the number of cores of each VM
+     */
+    ParallelLoadEventGenerator(XVM[] vms, int[] cores, long duration, int injectionPeriod, int nbOfThreads) {
+        this.vms = vms;
+        this.duration = duration;
+        this.lambdaPerVM = 1.0 / injectionPeriod;
+        // On average, each VM produces one event per window
+        this.window = injectionPeriod;
+
+        this.model = LoadModelBuilder.build(vms.length);
+        this.maxCPUDemand = SimulatorProperties.getVMMAXCPUConsumption();
+        this.nbOfCPUDemandSlots = SimulatorProperties.getNbOfCPUConsumptionSlots();
+
+        this.cores = cores;
+        this.rands = new ExtendedRandom[vms.length];
+        this.nextTimes = new double[vms.length];
+        SplittableRandom root = new SplittableRandom(SimulatorProperties.getSeed());
+        for (int i = 0; i < vms.length; i++) {
+            rands[i] = new SplittableExtendedRandom(root.split());
+            nextTimes[i] = exponentialDis(rands[i], lambdaPerVM);
+        }
+
+        this.pool = new ForkJoinPool(nbOfThreads > 0 ? nbOfThreads : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @return the number of cores of each VM
+     */
+    private static int[] coresOf(XVM[] vms) {
+        int[] cores = new int[vms.length];
+        for (int i = 0; i < vms.length; i++)
+            cores[i] = (int) vms[i].getCoreNumber();
+        return cores;
+    }
+
+    /* Compute the next exponential value for rand */
+    private static double exponentialDis(ExtendedRandom rand, double lambda) {
+        return -Math.log(1 - rand.nextDouble()) / lambda;
+    }
+
+    /**
+     * Generate the events of the VMs [from, to[ that occur before windowEnd, sorted by (timestamp, VM index)
+     */
+    private List<PendingEvent> generateChunk(int from, int to, double windowEnd) {
+        List<PendingEvent> events = new ArrayList<PendingEvent>();
+        int cpuConsumptionSlot = maxCPUDemand / nbOfCPUDemandSlots;
+        for (int i = from; i < to; i++) {
+            ExtendedRandom rand = rands[i];
+            double time = nextTimes[i];
+            while (time < windowEnd) {
+                /* Load model (gaussian law by default) for the getCPUDemand assignment */
+                double gLoad = Math.max(model.nextLoad(i, time, rand), 0);
+                int slot = (int) Math.round(Math.min(100, gLoad) * nbOfCPUDemandSlots / 100);
+                events.add(new PendingEvent(time, i, slot * cpuConsumptionSlot * cores[i]));
+                time += exponentialDis(rand, lambdaPerVM);
+            }
+            nextTimes[i] = time;
+        }
+        Collections.sort(events, ORDER);
+        return events;
+    }
+
+    /**
+     * Fork/join task generating a range of chunks
+     */
+    private class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int fromChunk;
+        private final int toChunk;
+        private final double windowEnd;
+        private final List<List<PendingEvent>> results;
+
+        private ChunkTask(int fromChunk, int toChunk, double windowEnd, List<List<PendingEvent>> results) {
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.windowEnd = windowEnd;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk == 1) {
+                int from = fromChunk * CHUNK_SIZE;
+                results.set(fromChunk, generateChunk(from, Math.min(from + CHUNK_SIZE, vms.length), windowEnd));
+            } else {
+                int middle = (fromChunk + toChunk) >>> 1;
+                invokeAll(new ChunkTask(fromChunk, middle, windowEnd, results),
+                        new ChunkTask(middle, toChunk, windowEnd, results));
+            }
+        }
+    }
+
+    /**
+     * Generate the next window(s) until at least one event is available or the end of the simulation is reached
+     */
+    private void fillBatch() {
+        while (next == batch.size() && windowStart < duration) {
+            double windowEnd = Math.min(windowStart + window, duration);
+            int nbOfChunks = (vms.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            List<List<PendingEvent>> results = new ArrayList<List<PendingEvent>>(Collections.<List<PendingEvent>>nCopies(nbOfChunks, null));
+            if (nbOfChunks > 0)
+                pool.invoke(new ChunkTask(0, nbOfChunks, windowEnd, results));
+            batch = merge(results);
+            next = 0;
+            windowStart = windowEnd;
+        }
+        if (next == batch.size())
+            pool.shutdown();
+    }
+
+    /**
+     * K-way merge of the sorted chunks (the VM ranges of the chunks are disjoint, so the order is total)
+     */
+    private static List<PendingEvent> merge(final List<List<PendingEvent>> chunks) {
+        int size = 0;
+        for (List<PendingEvent> chunk : chunks)
+            size += chunk.size();
+        List<PendingEvent> merged = new ArrayList<PendingEvent>(size);
+
+        final int[] positions = new int[chunks.size()];
+        PriorityQueue<Integer> heads = new PriorityQueue<Integer>(Math.max(1, chunks.size()), new Comparator<Integer>() {
+            @Override
+            public int compare(Integer c1, Integer c2) {
+                return ORDER.compare(chunks.get(c1).get(positions[c1]), chunks.get(c2).get(positions[c2]));
+            }
+        });
+        for (int c = 0; c < chunks.size(); c++)
+            if (!chunks.get(c).isEmpty())
+                heads.add(c);
+
+        while (!heads.isEmpty()) {
+            int c = heads.poll();
+            merged.add(chunks.get(c).get(positions[c]++));
+            if (positions[c] < chunks.get(c).size())
+                heads.add(c);
+        }
+        return merged;
+    }
+
+    @Override
+    public boolean hasNext() {
+        fillBatch();
+        return next < batch.size();
+    }
+
+    @Override
+    public LoadEvent next() {
+        PendingEvent evt = nextPending();
+        return new LoadEvent(id++, evt.time, vms[evt.vm], evt.load);
+    }
+
+    /**
+     * @return the next event, whose VM is given by its index (see next)
+     */
+    PendingEvent nextPending() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        PendingEvent evt = batch.get(next);
+        // Release the event as soon as it has been consumed
+        batch.set(next++, null);
+        return evt;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
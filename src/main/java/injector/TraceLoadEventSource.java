@@ -0,0 +1,241 @@
+package injector;
+
+import configuration.SimulatorProperties;
+import configuration.XVM;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Load events replayed from a real CPU utilisation trace (loadinjector.source = trace).
+ *
+ * The trace is a CSV file (optionally gzip compressed, i.e. ending with .gz) with one sample per line:
+ *   timestamp,vm,cpu
+ * where timestamp is in seconds, vm is the identifier of the VM in the trace and cpu its CPU utilisation in percent
+ * (0-100). Lines starting with '#' and a header line are ignored. The samples must be sorted by timestamp; the
+ * timestamps are shifted so that the first sample occurs at time 0.
+ *
+ * Trace VMs are mapped onto the XVMs in their order of appearance (the samples of the extra trace VMs are ignored).
+ * The utilisation is converted into a CPU demand in the same way as the synthetic load (see LoadEventGenerator).
+ *
+ * The file is parsed by a background thread that fills a bounded read-ahead buffer, so the whole trace is never kept
+ * in memory. The background thread never calls SimGrid.
+ */
+public class TraceLoadEventSource implements Iterator<LoadEvent> {
+
+    /**
+     * One sample of the trace (vm is the index of the XVM)
+     */
+    private static class Sample {
+        private final double time;
+        private final int vm;
+        private final double cpu;
+
+        private Sample(double time, int vm, double cpu) {
+            this.time = time;
+            this.vm = vm;
+            this.cpu = cpu;
+        }
+    }
+
+    /**
+     * Marks the end of the trace in the read-ahead buffer
+     */
+    private static final Sample END = new Sample(Double.POSITIVE_INFINITY, -1, 0);
+
+    private final XVM[] vms;
+
+    /**
+     * Number of cores of each VM (read once on the calling thread)
+     */
+    private final int[] cores;
+
+    private final int maxCPUDemand;
+    private final int nbOfCPUDemandSlots;
+
+    private final BlockingQueue<Sample> readAhead;
+
+    /**
+     * Error raised by the background thread (reported by the consumer)
+     */
+    private volatile String error = null;
+
+    /**
+     * Next sample (null if it has not been taken from the buffer yet)
+     */
+    private Sample nextSample = null;
+
+    /**
+     * Id of the next event
+     */
+    private long id = 0;
+
+    /**
+     * @param vms, Simgrid VMs that have been instanciated
+     * @param duration duration of the simulated time in second (the samples after it are not read)
+     * @param traceFile path of the CSV (or .gz) trace
+     * @param readAheadSize maximum number of samples parsed in advance
+     */
+    public TraceLoadEventSource(XVM[] vms, final long duration, final String traceFile, int readAheadSize) {
+        if (traceFile == null) {
+            System.err.println("The load source is a trace but no trace file has been given (loadinjector.trace.file)");
+            System.exit(-1);
+        }
+        this.vms = vms;
+        this.cores = new int[vms.length];
+        for (int i = 0; i < vms.length; i++)
+            cores[i] = (int) vms[i].getCoreNumber();
+        this.maxCPUDemand = SimulatorProperties.getVMMAXCPUConsumption();
+        this.nbOfCPUDemandSlots = SimulatorProperties.getNbOfCPUConsumptionSlots();
+        this.readAhead = new ArrayBlockingQueue<Sample>(Math.max(1, readAheadSize));
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                read(traceFile, duration);
+            }
+        }, "trace-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Parse the trace and fill the read-ahead buffer (background thread)
+     */
+    private void read(String traceFile, long duration) {
+        HashMap<String, Integer> traceVMs = new HashMap<String, Integer>();
+        int nbOfIgnoredVMs = 0;
+        double firstTimestamp = Double.NaN;
+        double previousTime = 0;
+        long lineNumber = 0;
+
+        try (BufferedReader in = open(traceFile)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.charAt(0) == '#')
+                    continue;
+
+                int first = line.indexOf(',');
+                int second = (first == -1) ? -1 : line.indexOf(',', first + 1);
+                if (second == -1) {
+                    error = traceFile + ":" + lineNumber + ": expected timestamp,vm,cpu";
+                    break;
+                }
+
+                double timestamp;
+                double cpu;
+                try {
+                    timestamp = Double.parseDouble(line.substring(0, first).trim());
+                    cpu = Double.parseDouble(line.substring(second + 1).trim());
+                } catch (NumberFormatException e) {
+                    // Header line (before the first sample)
+                    if (Double.isNaN(firstTimestamp))
+                        continue;
+                    error = traceFile + ":" + lineNumber + ": " + e.getMessage();
+                    break;
+                }
+
+                if (Double.isNaN(firstTimestamp))
+                    firstTimestamp = timestamp;
+                double time = timestamp - firstTimestamp;
+                if (time < previousTime) {
+                    error = traceFile + ":" + lineNumber + ": the samples are not sorted by timestamp";
+                    break;
+                }
+                previousTime = time;
+                if (time >= duration)
+                    break;
+
+                String traceVM = line.substring(first + 1, second).trim();
+                Integer vm = traceVMs.get(traceVM);
+                if (vm == null) {
+                    if (traceVMs.size() < vms.length) {
+                        vm = traceVMs.size();
+                    } else {
+                        vm = -1;
+                        nbOfIgnoredVMs++;
+                    }
+                    traceVMs.put(traceVM, vm);
+                }
+                if (vm != -1)
+                    readAhead.put(new Sample(time, vm, cpu));
+            }
+            if (nbOfIgnoredVMs > 0)
+                System.err.println("The trace " + traceFile + " contains " + nbOfIgnoredVMs +
+                        " VMs more than the simulated ones, their samples have been ignored");
+        } catch (IOException e) {
+            error = traceFile + ": " + e.getMessage();
+        } catch (InterruptedException e) {
+            // Nobody waits for the end of the trace (the interruption is kept so that END is not put below)
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            // Reported by the consumer like the other errors (otherwise it would wait for the end of the trace forever)
+            error = traceFile + ":" + lineNumber + ": " + e;
+        } finally {
+            try {
+                readAhead.put(END);
+            } catch (InterruptedException e) {
+                // Nobody waits for the end of the trace
+            }
+        }
+    }
+
+    private static BufferedReader open(String traceFile) throws IOException {
+        InputStream in = new FileInputStream(traceFile);
+        if (traceFile.endsWith(".gz"))
+            in = new GZIPInputStream(in, 1 << 16);
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private Sample peek() {
+        if (nextSample == null) {
+            try {
+                nextSample = readAhead.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                nextSample = END;
+            }
+            if (nextSample == END && error != null) {
+                System.err.println("Unable to read the load trace " + error);
+                System.exit(-1);
+            }
+        }
+        return nextSample;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return peek() != END;
+    }
+
+    @Override
+    public LoadEvent next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        Sample sample = nextSample;
+        nextSample = null;
+
+        int cpuConsumptionSlot = maxCPUDemand / nbOfCPUDemandSlots;
+        int slot = (int) Math.round(Math.max(0, Math.min(100, sample.cpu)) * nbOfCPUDemandSlots / 100);
+        int vmCPUDemand = slot * cpuConsumptionSlot * cores[sample.vm];
+
+        return new LoadEvent(id++, sample.time, vms[sample.vm], vmCPUDemand);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,80 @@
+package injector;
+
+import configuration.SimulatorProperties;
+import configuration.VMClasses;
+import configuration.XVM;
+import simulation.SimulatorManager;
+
+/**
+ * Arrival of a new VM (VM churn, see ChurnEventGenerator): the VM is created and started when the event is played.
+ */
+public class VMArrivalEvent implements InjectorEvent {
+
+    private long id;
+    private double time;
+
+    /**
+     * Index of the VM among the VMs created by the churn (the VM is named after it)
+     */
+    private int churnIndex;
+    private int vmClass;
+    private int load;
+
+    /**
+     * The VM created when the event has been played (null before or if the VM has been rejected)
+     */
+    private XVM vm = null;
+
+    public VMArrivalEvent(long id, double time, int churnIndex, int vmClass, int load) {
+        this.id = id;
+        this.time = time;
+        this.churnIndex = churnIndex;
+        this.vmClass = vmClass;
+        this.load = load;
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    public double getTime() {
+        return this.time;
+    }
+
+    public int getChurnIndex() {
+        return churnIndex;
+    }
+
+    /**
+     * @return the index of the class of the VM in VMClasses.CLASSES
+     */
+    public int getVMClass() {
+        return vmClass;
+    }
+
+    public int getCPULoad() {
+        return load;
+    }
+
+    /**
+     * @return the name of the VM (the VMs created by the churn follow the VMs created at the beginning)
+     */
+    public String getVMName() {
+        return "vm-" + (SimulatorProperties.getNbOfVMs() + churnIndex);
+    }
+
+    /**
+     * @return the VM created by this event (null if the event has not been played yet or if the VM has been rejected)
+     */
+    public XVM getVm() {
+        return vm;
+    }
+
+    public void play() {
+        this.vm = SimulatorManager.createVM(getVMName(), VMClasses.CLASSES.get(vmClass), load);
+    }
+
+    public String toString() {
+        return this.getTime() + "/" + this.getVMName() + "/arrival/" + VMClasses.CLASSES.get(vmClass).getName() + "/" + this.getCPULoad();
+    }
+}
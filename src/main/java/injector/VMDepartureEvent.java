@@ -0,0 +1,45 @@
+package injector;
+
+import simulation.SimulatorManager;
+
+/**
+ * Departure of a VM created by a VMArrivalEvent (VM churn): the VM is stopped and destroyed when the event is played.
+ */
+public class VMDepartureEvent implements InjectorEvent {
+
+    private long id;
+    private double time;
+    private VMArrivalEvent arrival;
+
+    public VMDepartureEvent(long id, double time, VMArrivalEvent arrival) {
+        this.id = id;
+        this.time = time;
+        this.arrival = arrival;
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    public double getTime() {
+        return this.time;
+    }
+
+    /**
+     * @return the arrival of the VM that leaves
+     */
+    public VMArrivalEvent getArrival() {
+        return arrival;
+    }
+
+    public void play() {
+        // Nothing to do if the VM has been rejected at its arrival
+        // If the VM is being migrated, it is destroyed at the end of the migration (see SimulatorManager.destroyVM)
+        if (arrival.getVm() != null)
+            SimulatorManager.destroyVM(arrival.getVm());
+    }
+
+    public String toString() {
+        return this.getTime() + "/" + arrival.getVMName() + "/departure";
+    }
+}
@@ -6,9 +6,9 @@ import configuration.XVM;
 import org.simgrid.msg.*;
 import simulation.SimulatorManager;
 import trace.Trace;
+import trace.TraceAttributes;
 
 import java.util.Collection;
-import java.util.Locale;
 import java.util.Random;
 
 /**
@@ -66,6 +66,29 @@ public abstract class AbstractScheduler implements Scheduler {
     // Implemented methods /////////////////////////////////////////////////////////////////////////////////////////////
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Prepare the scheduler for a new invocation: the state of the previous invocation is cleared and the
+     * schedulers that depend on the hosts (e.g. the ones that extract a model of the configuration) are given the new
+     * ones through resetConfiguration.
+     *
+     * @param xHosts the hosts to consider
+     * @param id id to serialize the configuration and the reconfiguration into a particular file name
+     */
+    public void reset(Collection<XHost> xHosts, Integer id) {
+        this.id = id;
+        this.rpAborted = false;
+        this.planGraphDepth = 0;
+        resetConfiguration(xHosts);
+    }
+
+    /**
+     * Take into account the hosts of a new invocation (nothing to do by default).
+     *
+     * @param xHosts the hosts to consider
+     */
+    protected void resetConfiguration(Collection<XHost> xHosts) {
+    }
+
     /**
      * Incs the number of ongoing migrations.
      */
@@ -106,8 +129,8 @@ public abstract class AbstractScheduler implements Scheduler {
         for (XHost h : hostsToCheck) {
             if (!h.isViable())
                 Trace.hostPushState(h.getName(), "PM", "violation-det");
-            Trace.hostSetState(h.getName(), "SERVICE", "booked");
         }
+        Trace.groupSetState(hostsToCheck, "SERVICE", "booked");
 
         /** PLEASE NOTE THAT ALL COMPUTATIONS BELOW DOES NOT MOVE FORWARD THE MSG CLOCK ***/
         computingResult = this.computeReconfigurationPlan();
@@ -119,7 +142,8 @@ public abstract class AbstractScheduler implements Scheduler {
 
         /** **** NOW LET'S GO BACK TO THE SIMGRID WORLD **** */
 
-        Trace.hostSetState(Host.currentHost().getName(), "SERVICE", "compute", String.format(Locale.US, "{\"duration\" : %f, \"state\" : \"%s\", \"migration_count\": %d, \"psize\": %d}", computationTimeAsDouble, computingResult.state, computingResult.nbMigrations, partitionSize));
+        Trace.hostSetState(Host.currentHost().getName(), "SERVICE", "compute", new TraceAttributes().put("duration", computationTimeAsDouble).put("state", computingResult.state.toString()).put("migration_count", computingResult.nbMigrations).put("psize", partitionSize));
+        Trace.schedulerComputation(computingResult.state.toString(), computationTimeAsDouble, partitionSize, computingResult.nbMigrations);
 
 
         try {
@@ -138,8 +162,7 @@ public abstract class AbstractScheduler implements Scheduler {
 
 			/* Tracing code */
             // Note Adrian : it is difficult with BtrPlace to isolate the impacted XHosts
-            for (XHost h : hostsToCheck)
-                Trace.hostSetState(h.getName(), "SERVICE", "reconfigure");
+            Trace.groupSetState(hostsToCheck, "SERVICE", "reconfigure");
 
             Trace.hostPushState(Host.currentHost().getName(), "SERVICE", "reconfigure");
 
@@ -163,8 +186,7 @@ public abstract class AbstractScheduler implements Scheduler {
         }
 
 		/* Tracing code */
-        for (XHost h : hostsToCheck)
-            Trace.hostSetState(h.getName(), "SERVICE", "free");
+        Trace.groupSetState(hostsToCheck, "SERVICE", "free");
 
         Trace.hostSetState(Host.currentHost().getName(), "SERVICE", "free");
         return enRes;
@@ -215,12 +237,13 @@ public abstract class AbstractScheduler implements Scheduler {
                                 incOngoingMigrations();
 
                                 double timeStartingMigration = Msg.getClock();
-                                Trace.hostPushState(vmName, "SERVICE", "migrate", String.format("{\"vm_name\": \"%s\", \"from\": \"%s\", \"to\": \"%s\"}", vmName, sourceName, destName));
+                                Trace.hostPushState(vmName, "SERVICE", "migrate", new TraceAttributes().put("vm_name", vmName).put("from", sourceName).put("to", destName));
                                 int res = sourceHost.migrate(args[0], destHost);
                                 // TODO, we should record the res of the migration operation in order to count for instance how many times a migration crashes ?
                                 // To this aim, please extend the hostPopState API to add meta data information
-                                Trace.hostPopState(vmName, "SERVICE", String.format("{\"vm_name\": \"%s\", \"state\": %d}", vmName, res));
+                                Trace.hostPopState(vmName, "SERVICE", new TraceAttributes().put("vm_name", vmName).put("state", res));
                                 double migrationDuration = Msg.getClock() - timeStartingMigration;
+                                Trace.migration(migrationDuration, res == 0);
 
                                 if (res == 0) {
                                     Msg.info("End of migration of VM " + args[0] + " from " + args[1] + " to " + args[2]);
@@ -236,11 +259,11 @@ public abstract class AbstractScheduler implements Scheduler {
                                     }
 
                                     /* Export that the migration has finished */
-                                    Trace.hostSetState(vmName, "migration", "finished", String.format(Locale.US, "{\"vm_name\": \"%s\", \"from\": \"%s\", \"to\": \"%s\", \"duration\": %f}", vmName, sourceName, destName, migrationDuration));
+                                    Trace.hostSetState(vmName, "migration", "finished", new TraceAttributes().put("vm_name", vmName).put("from", sourceName).put("to", destName).put("duration", migrationDuration));
                                     Trace.hostPopState(vmName, "migration");
                                 } else {
 
-                                    Trace.hostSetState(vmName, "migration", "failed", String.format(Locale.US, "{\"vm_name\": \"%s\", \"from\": \"%s\", \"to\": \"%s\", \"duration\": %f}", vmName, sourceName, destName, migrationDuration));
+                                    Trace.hostSetState(vmName, "migration", "failed", new TraceAttributes().put("vm_name", vmName).put("from", sourceName).put("to", destName).put("duration", migrationDuration));
                                     Trace.hostPopState(vmName, "migration");
 
                                     Msg.info("Something was wrong during the migration of  " + args[0] + " from " + args[1] + " to " + args[2]);
@@ -291,9 +314,9 @@ public abstract class AbstractScheduler implements Scheduler {
 
                         if (vm != null) {
                             double timeStartingSuspension = Msg.getClock();
-                            Trace.hostPushState(args[0], "SERVICE", "suspend", String.format("{\"vm_name\": \"%s\", \"on\": \"%s\"}", args[0], args[1]));
+                            Trace.hostPushState(args[0], "SERVICE", "suspend", new TraceAttributes().put("vm_name", args[0]).put("on", args[1]));
                             int res = vm.suspend();
-                            Trace.hostPopState(args[0], "SERVICE", String.format("{\"vm_name\": \"%s\", \"state\": %d}", args[0], res));
+                            Trace.hostPopState(args[0], "SERVICE", new TraceAttributes().put("vm_name", args[0]).put("state", res));
                             double suspensionDuration = Msg.getClock() - timeStartingSuspension;
 
                             switch (res) {
@@ -309,16 +332,16 @@ public abstract class AbstractScheduler implements Scheduler {
                                     }
 
                                     /* Export that the suspension has finished */
-                                    Trace.hostSetState(args[0], "suspension", "finished", String.format(Locale.US, "{\"vm_name\": \"%s\", \"on\": \"%s\", \"duration\": %f}", args[0], args[1], suspensionDuration));
+                                    Trace.hostSetState(args[0], "suspension", "finished", new TraceAttributes().put("vm_name", args[0]).put("on", args[1]).put("duration", suspensionDuration));
                                     Trace.hostPopState(args[0], "suspension");
                                 case 1:
-                                    Trace.hostSetState(args[0], "suspension", "cancelled", String.format(Locale.US, "{\"vm_name\": \"%s\", \"on\": \"%s\", \"duration\": %f}", args[0], args[1], suspensionDuration));
+                                    Trace.hostSetState(args[0], "suspension", "cancelled", new TraceAttributes().put("vm_name", args[0]).put("on", args[1]).put("duration", suspensionDuration));
                                     Trace.hostPopState(args[0], "suspension");
 
                                     Msg.info("The VM " + args[0] + " on " + args[1] + " is already suspended.");
                                     // Todo : no need to abort the ReconfigurationPlan here ?
                                 case -1:
-                                    Trace.hostSetState(args[0], "suspension", "failed", String.format(Locale.US, "{\"vm_name\": \"%s\", \"on\": \"%s\", \"duration\": %f}", args[0], args[1], suspensionDuration));
+                                    Trace.hostSetState(args[0], "suspension", "failed", new TraceAttributes().put("vm_name", args[0]).put("on", args[1]).put("duration", suspensionDuration));
                                     Trace.hostPopState(args[0], "suspension");
 
                                     Msg.info("Something went wrong during the suspension of  " + args[0] + " on " + args[1]);
@@ -365,9 +388,9 @@ public abstract class AbstractScheduler implements Scheduler {
 
                         if (vm != null) {
                             double timeStartingResumption = Msg.getClock();
-                            Trace.hostPushState(args[0], "SERVICE", "resume", String.format("{\"vm_name\": \"%s\", \"on\": \"%s\"}", args[0], args[1]));
+                            Trace.hostPushState(args[0], "SERVICE", "resume", new TraceAttributes().put("vm_name", args[0]).put("on", args[1]));
                             int res = vm.resume();
-                            Trace.hostPopState(args[0], "SERVICE", String.format("{\"vm_name\": \"%s\", \"state\": %d}", args[0], res));
+                            Trace.hostPopState(args[0], "SERVICE", new TraceAttributes().put("vm_name", args[0]).put("state", res));
                             double resumptionDuration = Msg.getClock() - timeStartingResumption;
 
                             switch (res) {
@@ -383,15 +406,15 @@ public abstract class AbstractScheduler implements Scheduler {
                                     }
 
                                     /* Export that the suspension has finished */
-                                    Trace.hostSetState(args[0], "resumption", "finished", String.format(Locale.US, "{\"vm_name\": \"%s\", \"on\": \"%s\", \"duration\": %f}", args[0], args[1], resumptionDuration));
+                                    Trace.hostSetState(args[0], "resumption", "finished", new TraceAttributes().put("vm_name", args[0]).put("on", args[1]).put("duration", resumptionDuration));
                                     Trace.hostPopState(args[0], "resumption");
                                 case 1:
-                                    Trace.hostSetState(args[0], "resumption", "cancelled", String.format(Locale.US, "{\"vm_name\": \"%s\", \"on\": \"%s\", \"duration\": %f}", args[0], args[1], resumptionDuration));
+                                    Trace.hostSetState(args[0], "resumption", "cancelled", new TraceAttributes().put("vm_name", args[0]).put("on", args[1]).put("duration", resumptionDuration));
                                     Trace.hostPopState(args[0], "resumption");
 
                                     Msg.info("The VM " + args[0] + " on " + args[1] + " is already suspended.");
                                 case -1:
-                                    Trace.hostSetState(args[0], "resumption", "failed", String.format(Locale.US, "{\"vm_name\": \"%s\", \"on\": \"%s\", \"duration\": %f}", args[0], args[1], resumptionDuration));
+                                    Trace.hostSetState(args[0], "resumption", "failed", new TraceAttributes().put("vm_name", args[0]).put("on", args[1]).put("duration", resumptionDuration));
                                     Trace.hostPopState(args[0], "resumption");
 
                                     Msg.info("Something went wrong during the resumption of  " + args[0] + " on " + args[1]);
@@ -12,6 +12,15 @@ public interface Scheduler {
     ComputingResult computeReconfigurationPlan();
     SchedulerResult checkAndReconfigure(Collection<XHost> hostsToCheck);
 
+    /**
+     * Prepare the scheduler for a new invocation on the given hosts, as if it had been built for them (see
+     * SchedulerBuilder.reuse). The expensive objects (e.g. the solvers) are kept from one invocation to the next one.
+     *
+     * @param xHosts the hosts to consider
+     * @param id id to serialize the configuration and the reconfiguration into a particular file name
+     */
+    void reset(Collection<XHost> xHosts, Integer id);
+
     /**
      * Result of the reconfiguration plan computation.
      */
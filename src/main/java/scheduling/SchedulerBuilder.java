@@ -7,10 +7,13 @@ import org.simgrid.msg.Msg;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
+import java.util.Random;
 
 /**
  * @author Killian Saint Cricq
  * Singleton used to build the scheduler given in simulator.properties.
+ * The constructors of the scheduler class are looked up once, and the resolvers reuse their scheduler from one
+ * invocation to the next one (see reuse), so that the solvers are built only once per resolver.
  */
 public enum SchedulerBuilder {
 
@@ -24,6 +27,12 @@ public enum SchedulerBuilder {
      */
     private Class<?> schedulerClass = null;
 
+    /**
+     * Constructors of the scheduler class, (Collection) and (Collection, Integer), looked up on their first use.
+     */
+    private Constructor<?> hostsConstructor = null;
+    private Constructor<?> hostsAndIdConstructor = null;
+
     /**
      * Gets the scheduler class to instantiate later.
      */
@@ -51,10 +60,10 @@ public enum SchedulerBuilder {
      * @return instantiated scheduler
      */
     public Scheduler build(Collection<XHost> xHosts) {
-        Constructor<?> schedulerConstructor;
         try {
-            schedulerConstructor = schedulerClass.getConstructor(Collection.class);
-            return (Scheduler) schedulerConstructor.newInstance(xHosts);
+            if (hostsConstructor == null)
+                hostsConstructor = schedulerClass.getConstructor(Collection.class);
+            return (Scheduler) hostsConstructor.newInstance(xHosts);
         } catch (Exception e) {
             handleExceptions(e);
         } 
@@ -69,17 +78,44 @@ public enum SchedulerBuilder {
      * @return instantiated scheduler
      */
     public Scheduler build(Collection<XHost> xHosts, Integer id) {
-        Constructor<?> schedulerConstructor;
         try {
-            schedulerClass = Class.forName(SimulatorProperties.getImplementation());
-            schedulerConstructor = schedulerClass.getConstructor(Collection.class, Integer.class);
-            return (Scheduler) schedulerConstructor.newInstance(xHosts, id);
+            if (hostsAndIdConstructor == null)
+                hostsAndIdConstructor = schedulerClass.getConstructor(Collection.class, Integer.class);
+            return (Scheduler) hostsAndIdConstructor.newInstance(xHosts, id);
         } catch (Exception e) {
             handleExceptions(e);
         }
         return null;
     }
 
+    /**
+     * Prepares the scheduler of a resolver for a new invocation: the previous scheduler is reset for the new hosts
+     * (see Scheduler.reset), a scheduler is instantiated only for the first invocation.
+     * @param previous the scheduler of the previous invocation (null for the first one)
+     * @param xHosts xHosts
+     * @return the scheduler to invoke
+     */
+    public Scheduler reuse(Scheduler previous, Collection<XHost> xHosts) {
+        if (previous == null)
+            return build(xHosts);
+        previous.reset(xHosts, new Random().nextInt());
+        return previous;
+    }
+
+    /**
+     * Prepares the scheduler of a resolver for a new invocation (see reuse(previous, xHosts)).
+     * @param previous the scheduler of the previous invocation (null for the first one)
+     * @param xHosts xHosts
+     * @param id id
+     * @return the scheduler to invoke
+     */
+    public Scheduler reuse(Scheduler previous, Collection<XHost> xHosts, Integer id) {
+        if (previous == null)
+            return build(xHosts, id);
+        previous.reset(xHosts, id);
+        return previous;
+    }
+
     /**
      * Handles builder methods exceptions. This will stop the program.
      * @param e thrown exception
@@ -18,6 +18,7 @@ import org.btrplace.scheduler.choco.DefaultChocoScheduler;
 import org.simgrid.msg.HostFailureException;
 import org.simgrid.msg.Msg;
 import scheduling.AbstractScheduler;
+import simulation.OutputFiles;
 import simulation.SimulatorManager;
 
 import java.io.*;
@@ -63,7 +64,6 @@ public class BtrPlaceRP extends AbstractScheduler {
 
     public BtrPlaceRP(Collection<XHost> xHosts, Integer id) {
         super();
-        this.id = id;
         this.btrSolver = new DefaultChocoScheduler();
 
         /**
@@ -76,17 +76,28 @@ public class BtrPlaceRP extends AbstractScheduler {
          */
 
         this.btrSolver.doRepair(true);
+
+        this.reset(xHosts, id);
+    }
+
+    public BtrPlaceRP(Collection<XHost> xHosts) {
+        this(xHosts, new Random().nextInt());
+    }
+
+    /**
+     * Extract the model of the new hosts, the BtrPlace scheduler is kept from one invocation to the next one.
+     */
+    @Override
+    protected void resetConfiguration(Collection<XHost> xHosts) {
         int timeLimit = xHosts.size() / 8;
         this.btrSolver.setTimeLimit(timeLimit > 10 ? timeLimit : 10);
 
+        this.reconfigurationPlan = null;
         this.extractConfiguration(xHosts);
 
         // log the model
         try {
-            File file = new File("logs/btrplace/configuration/" + id + "-" + System.currentTimeMillis() + ".txt");
-            file.getParentFile().mkdirs();
-
-            PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+            PrintWriter pw = new PrintWriter(OutputFiles.createWriter("logs/btrplace/configuration/" + id + "-" + System.currentTimeMillis() + ".txt"));
             Instance i = new Instance(source, new ArrayList<>(), new MinMTTR());
             InstanceConverter conv = new InstanceConverter();
             pw.write(conv.toJSON(i).toJSONString());
@@ -98,10 +109,6 @@ public class BtrPlaceRP extends AbstractScheduler {
 
     }
 
-    public BtrPlaceRP(Collection<XHost> xHosts) {
-        this(xHosts, new Random().nextInt());
-    }
-
     /**
      * Creates a Model and constraints for BtrPlace
      *
@@ -141,14 +148,15 @@ public class BtrPlaceRP extends AbstractScheduler {
             rcMem.setCapacity(n, tmpH.getMemSize());
 
             if (tmpH.isViable()) {
-                // If the host if viable, the model is exactly has the VM demand regarding cpu and memory usage
+                // If the host if viable, the model is exactly has the VM demand regarding cpu and memory usage (i.e. the
+                // memory actually used by the VM, see XVM.getMemDemand)
                 // Declare running VMs mapping
                 for (XVM tmpVM : tmpH.getRunnings()) {
                     VM v = this.source.newVM();
                     mapping.addRunningVM(v, n);
                     this.vmMap.put(v.id(), tmpVM.getName());
                     rcCPU.setConsumption(v, (int) tmpVM.getCPUDemand());
-                    rcMem.setConsumption(v, tmpVM.getMemSize());
+                    rcMem.setConsumption(v, tmpVM.getMemDemand());
 
                 }
             } else {
@@ -164,10 +172,10 @@ public class BtrPlaceRP extends AbstractScheduler {
 
                     // if the VM ask for more resource than what the host can provide, we allow only a fair share of the resources
                     rcCPU.setConsumption(v, Math.min((int) tmpVM.getCPUDemand(), cpuFairShare));
-                    rcMem.setConsumption(v, Math.min(tmpVM.getMemSize(), memFairShare));
+                    rcMem.setConsumption(v, Math.min(tmpVM.getMemDemand(), memFairShare));
 
                     this.constraints.add(new Preserve(v, "cpu", (int) tmpVM.getCPUDemand()));
-                    this.constraints.add(new Preserve(v, "mem", tmpVM.getMemSize()));
+                    this.constraints.add(new Preserve(v, "mem", tmpVM.getMemDemand()));
                 }
 
             }
@@ -214,9 +222,7 @@ public class BtrPlaceRP extends AbstractScheduler {
 
             // We log the reconfiguration plan
             try {
-                File file = new File("logs/btrplace/reconfigurationplan/" + id + "-" + System.currentTimeMillis() + ".txt");
-                file.getParentFile().mkdirs();
-                PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+                PrintWriter pw = new PrintWriter(OutputFiles.createWriter("logs/btrplace/reconfigurationplan/" + id + "-" + System.currentTimeMillis() + ".txt"));
                 pw.write(this.reconfigurationPlan.toString());
                 pw.flush();
                 pw.close();
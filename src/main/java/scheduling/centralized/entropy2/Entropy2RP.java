@@ -17,6 +17,7 @@ import entropy.vjob.VJob;
 import org.simgrid.msg.HostFailureException;
 import org.simgrid.msg.Msg;
 import scheduling.AbstractScheduler;
+import simulation.OutputFiles;
 import simulation.SimulatorManager;
 
 import java.io.*;
@@ -38,12 +39,20 @@ public class Entropy2RP extends AbstractScheduler {
 
     public Entropy2RP(Collection<XHost> xhosts, Integer id) {
 		super();
-        this.source = this.extractConfiguration(xhosts);
 		planner =  new ChocoCustomRP(new MockDurationEvaluator(2, 5, 1, 1, 7, 14, 7, 2, 4));//Entropy2.1
 		planner.setRepairMode(true); //true by default for ChocoCustomRP/Entropy2.1; false by default for ChocoCustomPowerRP/Entrop2.0
+        this.reset(xhosts, id);
+	}
+
+    /**
+     * Extract the configuration of the new hosts, the planner is kept from one invocation to the next one.
+     */
+    @Override
+    protected void resetConfiguration(Collection<XHost> xhosts) {
+        this.source = this.extractConfiguration(xhosts);
+        this.destination = null;
+        this.reconfigurationPlan = null;
         planner.setTimeLimit(source.getAllNodes().size()/8);
-        this.id = id;
-        super.rpAborted = false;
         //Log the current Configuration
         try {
             String fileName = "logs/entropy/configuration/" + id + "-"+ System.currentTimeMillis() + ".txt";
@@ -54,6 +63,7 @@ public class Entropy2RP extends AbstractScheduler {
             pw.flush();
             pw.close();*/
             FileConfigurationSerializerFactory.getInstance().write(source, fileName);
+            OutputFiles.compress(fileName);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -163,9 +173,7 @@ public class Entropy2RP extends AbstractScheduler {
 
 
             try {
-                File file = new File("logs/entropy/reconfigurationplan/" + id + "-" + System.currentTimeMillis() + ".txt");
-                file.getParentFile().mkdirs();
-                PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+                PrintWriter pw = new PrintWriter(OutputFiles.createWriter("logs/entropy/reconfigurationplan/" + id + "-" + System.currentTimeMillis() + ".txt"));
                 //pw.write(reconfigurationPlan.toString());
                 for (Action a : sortedActions) {
                     pw.write(a.toString()+"\n");
@@ -269,8 +277,9 @@ public class Entropy2RP extends AbstractScheduler {
             Node tmpENode = new SimpleNode(tmpH.getName(), tmpH.getNbCores(), tmpH.getCPUCapacity(), tmpH.getMemSize());
             currConf.addOnline(tmpENode);
             for (XVM tmpVM : tmpH.getRunnings()) {
+                // The memory consumption/demand is the memory actually used by the VM (see XVM.getMemDemand)
                 currConf.setRunOn(new SimpleVirtualMachine(tmpVM.getName(), (int) tmpVM.getCoreNumber(), 0,
-                                tmpVM.getMemSize(), (int) tmpVM.getCPUDemand(), tmpVM.getMemSize()),
+                                tmpVM.getMemDemand(), (int) tmpVM.getCPUDemand(), tmpVM.getMemDemand()),
                         tmpENode
                 );
             }
@@ -9,11 +9,19 @@ import simulation.SimulatorManager;
 
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.TreeSet;
 
 public abstract class FirstFitDecreased extends AbstractScheduler {
     protected int nMigrations = 0;
 
+    /**
+     * The CPU demand of the hosts as planned by the algorithm (the real CPU demand of the XHosts is updated only when
+     * the migrations are performed, so the index of violated hosts maintained by the SimulatorManager is not disturbed).
+     */
+    private Map<XHost, Double> plannedCPUDemand = new HashMap<>();
+
     public FirstFitDecreased(Collection<XHost> hosts, Integer id) {
     }
 
@@ -32,18 +40,18 @@ public abstract class FirstFitDecreased extends AbstractScheduler {
         long start = System.currentTimeMillis();
 
         TreeSet<XHost> overloaded = new TreeSet<>(new XHostComparator(true));
-        TreeSet<XHost> sane = new TreeSet<>(new XHostComparator(true));
-
-        // Find the overloaded hosts
-        for(XHost host: hostsToCheck) {
-            double demand = host.computeCPUDemand();
-            if(host.getCPUCapacity() < demand)
-                overloaded.add(host);
-            else
-                sane.add(host);
+
+        // Find the hosts overloaded from the CPU viewpoint (O(1) per host thanks to the index of violated hosts),
+        // FFD only relocates CPU demand so the memory and network violations are left aside
+        if(SimulatorManager.getNbOfViolatedHosts() > 0) {
+            for (XHost host : hostsToCheck) {
+                if (SimulatorManager.isCPUViolated(host))
+                    overloaded.add(host);
+            }
         }
 
         nMigrations = 0;
+        plannedCPUDemand.clear();
         manageOverloadedHost(overloaded, hostsToCheck, result);
 
         if(nMigrations > 0)
@@ -74,6 +82,21 @@ public abstract class FirstFitDecreased extends AbstractScheduler {
         return result;
     }
 
+    /**
+     * @return the CPU demand of the host according to the current plan
+     */
+    protected double getPlannedCPUDemand(XHost host) {
+        Double demand = plannedCPUDemand.get(host);
+        return (demand == null) ? host.getCPUDemand() : demand;
+    }
+
+    /**
+     * Change the CPU demand of the host in the current plan (the XHost itself is not modified)
+     */
+    protected void setPlannedCPUDemand(XHost host, double demand) {
+        plannedCPUDemand.put(host, demand);
+    }
+
     protected abstract void manageOverloadedHost(TreeSet<XHost> overloadedHosts, Collection<XHost> saneHosts, SchedulerResult result);
 
 
@@ -18,16 +18,16 @@ public class LazyFirstFitDecreased extends FirstFitDecreased {
         // Remove all VMs from the overloaded hosts
         for(XHost host: overloadedHosts) {
             Iterator<XVM> vms = host.getRunnings().iterator();
-            host.setCPUDemand(host.computeCPUDemand());
+            setPlannedCPUDemand(host, host.getCPUDemand());
 
-            while(host.getCPUCapacity() < host.getCPUDemand()) {
+            while(host.getCPUCapacity() < getPlannedCPUDemand(host)) {
                 XVM vm = vms.next();
                 toSchedule.add(vm);
                 sources.put(vm, host);
-                host.setCPUDemand(host.getCPUDemand() - vm.getCPUDemand());
+                setPlannedCPUDemand(host, getPlannedCPUDemand(host) - vm.getCPUDemand());
             }
 
-            saneHosts.add(host);
+            // Please note that the host already belongs to saneHosts (i.e. hostsToCheck, which may be a read-only view)
         }
 
         for(XVM vm: toSchedule) {
@@ -35,7 +35,7 @@ public class LazyFirstFitDecreased extends FirstFitDecreased {
 
             // Try find a new host for the VMs
             for(XHost host: saneHosts) {
-                if(host.getCPUCapacity() >= host.getCPUDemand() - vm.getCPUDemand()) {
+                if(host.getCPUCapacity() >= getPlannedCPUDemand(host) - vm.getCPUDemand()) {
                     dest = host;
                     break;
                 }
@@ -47,7 +47,7 @@ public class LazyFirstFitDecreased extends FirstFitDecreased {
             }
 
             // Migrate the VM
-            dest.setCPUDemand(dest.getCPUDemand() + vm.getCPUDemand());
+            setPlannedCPUDemand(dest, getPlannedCPUDemand(dest) + vm.getCPUDemand());
             XHost source = sources.get(vm);
             if(!source.getName().equals(dest.getName())) {
                 relocateVM(vm.getName(), source.getName(), dest.getName());
@@ -25,8 +25,8 @@ public class OptimisticFirstFitDecreased extends FirstFitDecreased {
                 sources.put(vm, host);
             }
 
-            host.setCPUDemand(0);
-            saneHosts.add(host);
+            setPlannedCPUDemand(host, 0);
+            // Please note that the host already belongs to saneHosts (i.e. hostsToCheck, which may be a read-only view)
         }
 
         for(XVM vm: toSchedule) {
@@ -34,7 +34,7 @@ public class OptimisticFirstFitDecreased extends FirstFitDecreased {
 
             // Try find a new host for the VMs
             for(XHost host: saneHosts) {
-                if(host.getCPUCapacity() >= host.getCPUDemand() - vm.getCPUDemand()) {
+                if(host.getCPUCapacity() >= getPlannedCPUDemand(host) - vm.getCPUDemand()) {
                     dest = host;
                     break;
                 }
@@ -46,7 +46,7 @@ public class OptimisticFirstFitDecreased extends FirstFitDecreased {
             }
 
             // Migrate the VM
-            dest.setCPUDemand(dest.getCPUDemand() + vm.getCPUDemand());
+            setPlannedCPUDemand(dest, getPlannedCPUDemand(dest) + vm.getCPUDemand());
             XHost source = sources.get(vm);
             if(!source.getName().equals(dest.getName())) {
                 relocateVM(vm.getName(), source.getName(), dest.getName());
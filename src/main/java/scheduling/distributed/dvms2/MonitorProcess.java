@@ -1,7 +1,6 @@
 package scheduling.distributed.dvms2;
 
 import configuration.XHost;
-import configuration.XVM;
 import org.simgrid.msg.Host;
 import org.simgrid.msg.Msg;
 import org.simgrid.msg.Process;
@@ -35,15 +34,13 @@ public class MonitorProcess extends Process {
 
         public void doMonitoring() {
 
-            int cpuConsumption = 0;
+            // The violation state is maintained by the SimulatorManager (O(1)), there is no need to sum the CPU
+            // demand of the hosted VMs each time
+            boolean overloaded = SimulatorManager.isViolated(this.xhost);
 
-            for(XVM vm: this.xhost.getRunnings()){
-                cpuConsumption += vm.getCPUDemand();
-            }
-
-//            LoggingActor.write(new CurrentLoadIs(Msg.getClock(), ref.getId()+"", cpuConsumption));
+//            LoggingActor.write(new CurrentLoadIs(Msg.getClock(), ref.getId()+"", this.xhost.getCPUDemand()));
 
-            if(cpuConsumption > this.xhost.getCPUCapacity()) {
+            if(overloaded) {
                 if (!violation_detected){
                     // Monitor is considering that the node is overloaded
                     Msg.info(ref.getName()+" monitoring service: node is overloaded");
@@ -54,7 +51,7 @@ public class MonitorProcess extends Process {
                 // Replace CpuViolationDetected() by a string
                 send(ref, "overloadingDetected");
             }
-            else if(cpuConsumption <= this.xhost.getCPUCapacity()) {
+            else {
                 Trace.hostPushState(Host.currentHost().getName(), "PM", "normal");
             }
 
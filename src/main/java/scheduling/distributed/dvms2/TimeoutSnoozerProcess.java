@@ -1,5 +1,6 @@
 package scheduling.distributed.dvms2;
 
+import configuration.StateTable;
 import org.simgrid.msg.*;
 import org.simgrid.msg.Process;
 import scheduling.distributed.dvms2.dvms.timeout.TimeoutSnoozerActor;
@@ -33,6 +34,12 @@ public class TimeoutSnoozerProcess extends Process {
 
     public static Long nameToId(String name) {
 
+        // Once the XHosts have been created, the id is directly given by the StateTable (the substring parsing is
+        // only needed for the processes that are deployed before the creation of the XHosts).
+        int hostId = StateTable.getHostId(name);
+        if (hostId != -1)
+            return (long) hostId;
+
         Long result = -1L;
         try {
             result = Long.parseLong(name.substring(4, name.length()));
@@ -38,6 +38,7 @@ public class GroupManager extends Process {
     private String gmHeartbeatBeat = "gmHeartbeatBeat";
     private Collection<XHost> managedLCs;
     private ThreadPool newLCPool;
+    private Scheduler scheduler = null; // reused from one scheduling round to the next one (see SchedulerBuilder.reuse)
 
     public GroupManager(Host host, String name, String[] args) {
         super(host, name, args);
@@ -329,7 +330,9 @@ public class GroupManager extends Process {
                             // A push model would have been better but let's keep it simple and stupid ;)
                             // 70 ms correspond to a round trip between GM and LCs.
                             // TODO 70 ms is an arbitrary value, it would be better to get the RTT of the current topology based on the platform file.
-                            for (XHost h : getManagedXHosts()) if (!h.isViable()) anyViolation = true;
+                            // The managed hosts are checked only if at least one host is violated (O(1) test)
+                            if (SimulatorManager.getNbOfViolatedHosts() > 0)
+                                for (XHost h : getManagedXHosts()) if (SimulatorManager.isViolated(h)) anyViolation = true;
                             if ((periodicScheduling || (!periodicScheduling && anyViolation))
                                     && !scheduling && !glHostname.isEmpty() && !thisGMToBeStopped() && !glDead) {
                                 scheduling = true;
@@ -445,9 +448,8 @@ public class GroupManager extends Process {
 
         /* Compute and apply the plan */
         Collection<XHost> hostsToCheck = this.getManagedXHosts();
-        Scheduler scheduler;
         long previousDuration = 0;
-        scheduler = SchedulerBuilder.getInstance().build(hostsToCheck);
+        scheduler = SchedulerBuilder.getInstance().reuse(scheduler, hostsToCheck);
         SchedulerResult schedulerResult = scheduler.checkAndReconfigure(hostsToCheck);
         previousDuration = schedulerResult.duration;
         if (schedulerResult.state == SchedulerResult.State.NO_RECONFIGURATION_NEEDED) {
@@ -38,7 +38,7 @@ public class CentralizedResolver extends Process {
         Trace.hostSetState(SimulatorManager.getInjectorNodeName(), "SERVICE", "free");
 
         long previousDuration = 0;
-        Scheduler scheduler;
+        Scheduler scheduler = null;
         SchedulerResult schedulerResult;
 
         try{
@@ -52,7 +52,7 @@ public class CentralizedResolver extends Process {
 			    /* Compute and apply the plan */
                 Collection<XHost> hostsToCheck = SimulatorManager.getSGTurnOnHostingHosts();
 
-                scheduler = SchedulerBuilder.getInstance().build(hostsToCheck, ++loopID);
+                scheduler = SchedulerBuilder.getInstance().reuse(scheduler, hostsToCheck, ++loopID);
                 schedulerResult = scheduler.checkAndReconfigure(hostsToCheck);
                 previousDuration = schedulerResult.duration;
                 if (schedulerResult.state == SchedulerResult.State.NO_RECONFIGURATION_NEEDED) {
@@ -138,8 +138,11 @@ public class Main {
         Trace.hostStateDeclareValue("SERVICE", "migrate", "1 0 0");
 
         Trace.hostVariableDeclare("LOAD");
+        Trace.hostVariableDeclare("MEM");  // Memory demand
+        Trace.hostVariableDeclare("NET");  // Network demand
         Trace.hostVariableDeclare("NB_MC");  // Nb of microcosms (only for DVMS)
         Trace.hostVariableDeclare("NB_MIG"); //Nb of migration
+        Trace.hostVariableDeclare("NB_VM"); //Nb of VMs (it changes with the VM churn)
 
         Trace.hostVariableDeclare("ENERGY");
 
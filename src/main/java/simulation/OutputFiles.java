@@ -0,0 +1,141 @@
+/**
+ * Copyright 2012-2013-2014. The SimGrid Team. All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the license (GNU LGPL) which comes with this package.
+ *
+ * This class gathers the creation of the output files of the simulator (trace, configurations and reconfiguration
+ * plans of the schedulers...). The files are written through large buffers and, according to
+ * simulator.output.compression, compressed on the fly with gzip (".gz" is then appended to their name).
+ * It is mainly composed of static methods (see SimulatorManager).
+ */
+
+package simulation;
+
+import configuration.SimulatorProperties;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class OutputFiles {
+
+    /**
+     * Size of the buffers of the output files (in bytes)
+     */
+    public static final int BUFFER_SIZE = 1 << 20;
+
+    private static final String GZIP_EXTENSION = ".gz";
+
+    private static Boolean compressed = null;
+
+    /**
+     * @return whether the output files are compressed (simulator.output.compression = gzip)
+     */
+    public static boolean isCompressed() {
+        if (compressed == null) {
+            String compression = SimulatorProperties.getOutputCompression();
+            if (compression.equals("gzip")) {
+                compressed = true;
+            } else if (compression.equals("none")) {
+                compressed = false;
+            } else {
+                System.err.println("Invalid output compression \"" + compression + "\" (expected none or gzip)");
+                System.exit(-1);
+            }
+        }
+        return compressed;
+    }
+
+    /**
+     * @param path the name of an output file
+     * @return the name of the file that is actually written (path, followed by ".gz" when the outputs are compressed)
+     */
+    public static String name(String path) {
+        return isCompressed() ? path + GZIP_EXTENSION : path;
+    }
+
+    /**
+     * Create an output file (its parent directories are created if required).
+     *
+     * @param path the name of the file (without the compression extension, see name(path))
+     * @return a buffered stream that compresses the data if the outputs are compressed
+     * @throws IOException
+     */
+    public static OutputStream create(String path) throws IOException {
+        File file = new File(name(path));
+        if (file.getParentFile() != null)
+            file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        if (!isCompressed())
+            return new BufferedOutputStream(out, BUFFER_SIZE);
+
+        final int level = SimulatorProperties.getOutputCompressionLevel();
+        return new GZIPOutputStream(out, BUFFER_SIZE) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    /**
+     * Create a text output file (UTF-8), see create(path).
+     */
+    public static Writer createWriter(String path) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(create(path), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Compress a file that has been written by a third-party library (which only accepts a file name), nothing
+     * happens if the outputs are not compressed.
+     *
+     * @param path the name of the file (it is replaced by the compressed file)
+     * @throws IOException
+     */
+    public static void compress(String path) throws IOException {
+        if (!isCompressed())
+            return;
+
+        File file = new File(path);
+        InputStream in = new FileInputStream(file);
+        try {
+            OutputStream out = create(path);
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int n;
+                while ((n = in.read(buffer)) > 0)
+                    out.write(buffer, 0, n);
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+        file.delete();
+    }
+
+    /**
+     * Open a file written by create(path), whether it has been compressed or not (according to its extension).
+     *
+     * @param path the name of the file, including the compression extension if any
+     * @return a buffered stream of the uncompressed data
+     * @throws IOException
+     */
+    public static InputStream open(String path) throws IOException {
+        InputStream in = new FileInputStream(path);
+        if (path.endsWith(GZIP_EXTENSION))
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        return new BufferedInputStream(in, BUFFER_SIZE);
+    }
+}
@@ -15,6 +15,7 @@
 package simulation;
 
 import configuration.SimulatorProperties;
+import configuration.StateTable;
 import configuration.VMClasses;
 import configuration.XHost;
 import configuration.XVM;
@@ -80,17 +81,87 @@ public class SimulatorManager {
      * Used by the injector when generating the different event queues.
      */
     private static XHost[] xhosts = null;
+
+    /**
+     * Whether the cached views below are consistent with the on/off collections (see invalidateViews)
+     */
+    private static boolean viewsUpToDate = false;
+    /**
+     * Cached array of all XVMs (on ones first, then off ones) and its read-only view
+     */
+    private static XVM[] sgVMsArray = null;
+    private static List<XVM> sgVMsView = null;
+    /**
+     * Cached read-only view of all XHosts (hosting hosts first, then service ones)
+     */
+    private static List<XHost> sgHostsView = null;
+    /**
+     * Cached array of the hosting XHosts that are turned on and its read-only view
+     */
+    private static XHost[] sgTurnOnHostingHostsArray = null;
+    private static List<XHost> sgTurnOnHostingHostsView = null;
+
+    /**
+     * The number of hosting hosts (the ids of the hosting hosts are in [0, nbOfHostingHosts[, see StateTable)
+     */
+    private static int nbOfHostingHosts = 0;
+    /**
+     * Sum of the CPU demands of the hosting hosts that are turned on.
+     * It is maintained incrementally (see updateGlobalCPUDemand, turnOn and turnOff) in order to avoid computing the
+     * CPU demand of the infrastructure each time (computing the CPU demand is O(n))
+     */
+    private static double globalCPUDemand = 0;
+
+    /**
+     * Sum of the CPU capacities of the hosting hosts that are turned on (maintained incrementally, see turnOn and turnOff)
+     */
+    private static int globalCPUCapacity = 0;
+
+    /**
+     * When enabled, each call to getCPUDemand() cross-checks the incremental aggregate against computeCPUDemand()
+     * (see simulator.checkcpudemand in simulator.properties)
+     */
+    private static final boolean checkCPUDemand = SimulatorProperties.checkCPUDemand();
+
+    /**
+     * Index of the hosts that are currently violated (bit i is set if the host whose id is i is violated).
+     * It is maintained each time the CPU demand of a host changes and when a host is turned on/off.
+     * @see #updateViolationStatus(XHost)
+     */
+    private static BitSet violatedHosts = new BitSet();
+
+    /**
+     * The number of bits set in violatedHosts
+     */
+    private static int nbOfViolatedHosts = 0;
+
     /**
-     * Average CPU demand of the infrastructure (just a hack to avoid to compute the CPUDemand each time (computing the CPU demand is O(n)
+     * The listeners notified of the violation transitions
      */
-    // TODO Adrien the currentCPUDemand is currently not correctly assigned (this should be done in the update function)
-    private static double currentCPUDemand = 0;
+    private static List<ViolationListener> violationListeners = new ArrayList<>();
 
     /**
      * The previous energy consumption
      */
     private static Map<XHost, Double> lastEnergy = new HashMap<>();
 
+    /**
+     * Number of VMs created, rejected (no host could start them) and destroyed during the simulation (VM churn)
+     */
+    private static int nbOfCreatedVMs = 0;
+    private static int nbOfRejectedVMs = 0;
+    private static int nbOfDestroyedVMs = 0;
+
+    /**
+     * Whether load updates are currently batched (see beginBatch/endBatch)
+     */
+    private static boolean batching = false;
+
+    /**
+     * The hosts updated during the current batch (in the update order) and whether they were viable before the batch
+     */
+    private static LinkedHashMap<XHost, Boolean> batchedHosts = new LinkedHashMap<>();
+
     /**
      * When the injection is complete, we turn the endOfInjection boolean to true and kill the running daemon inside each VM
      */
@@ -99,6 +170,8 @@ public class SimulatorManager {
 
         Msg.info(sgHostsOn.size()+"/"+ getSGHosts().size()+"are up");
         Msg.info(sgVMsOn.size()+"/"+getSGVMs().size()+" are up");
+        if (nbOfCreatedVMs + nbOfRejectedVMs + nbOfDestroyedVMs > 0)
+            Msg.info("VM churn: "+nbOfCreatedVMs+" created, "+nbOfRejectedVMs+" rejected, "+nbOfDestroyedVMs+" destroyed");
 
         for (XHost host : SimulatorManager.getSGHosts()) {
             Msg.info(host.getName() + " has been turned off "+host.getTurnOffNb()+" times and violated "+host.getNbOfViolations());
@@ -108,8 +181,11 @@ public class SimulatorManager {
         for (XVM vm : SimulatorManager.getSGVMs()) {
             Msg.info(vm.getName() + " load changes: "+vm.getNbOfLoadChanges() + "/ migrated: "+vm.getNbOfMigrations());
             vm.getDaemon().kill();
+            vm.killNetDaemon();
         }
         Msg.info("Duration of the simulation in ms: "+(endTimeOfSimulation - beginTimeOfSimulation));
+
+        Trace.writeMetricsSummary();
     }
 
     /**
@@ -125,9 +201,17 @@ public class SimulatorManager {
      * (i.e. hosted on hosts that have been turned off)
      */
     public static Collection<XVM> getSGVMs(){
-        LinkedList<XVM> tmp = new LinkedList<>(sgVMsOn.values());
-        tmp.addAll(sgVMsOff.values());
-        return tmp;
+        updateViews();
+        return sgVMsView;
+    }
+
+    /**
+     * @return the array of XVMs (same content and order as getSGVMs()).
+     * Please note that the array is shared (zero-copy), it should not be modified.
+     */
+    public static XVM[] getSGVMsToArray(){
+        updateViews();
+        return sgVMsArray;
     }
 
     /**
@@ -150,10 +234,8 @@ public class SimulatorManager {
      * Please note that the returned collection is not sorted. If you need a sorted structure, you should call getSGHostsToArray() that returns an simple array
      */
     public static Collection<XHost> getSGHosts(){
-        LinkedList<XHost> tmp = new LinkedList<XHost>(sgHostingHosts.values());
-        tmp.addAll(sgServiceHosts.values());
-
-        return tmp;
+        updateViews();
+        return sgHostsView;
     }
 
     /**
@@ -177,12 +259,69 @@ public class SimulatorManager {
      * @return the collection of XHosts that have been declared as hosting nodes (i.e. that can host VMs) and that are turned on.
      */
     public static Collection<XHost> getSGTurnOnHostingHosts() {
-        LinkedList<XHost> tmp = new LinkedList<XHost>();
-        for (XHost h: sgHostingHosts.values()){
+        updateViews();
+        return sgTurnOnHostingHostsView;
+    }
+
+    /**
+     * @return the array of XHosts that have been declared as hosting nodes and that are turned on (same content and
+     * order as getSGTurnOnHostingHosts()).
+     * Please note that the array is shared (zero-copy), it should not be modified.
+     */
+    public static XHost[] getSGTurnOnHostingHostsToArray() {
+        updateViews();
+        return sgTurnOnHostingHostsArray;
+    }
+
+    /**
+     * Invalidate the cached views (getSGVMs, getSGHosts, getSGTurnOnHostingHosts).
+     * It should be invoked each time a host is turned on/off (i.e. when the VMs are moved between the on/off collections).
+     */
+    private static void invalidateViews() {
+        viewsUpToDate = false;
+    }
+
+    /**
+     * Rebuild the cached views if they have been invalidated.
+     * The views are read-only lists backed by arrays, hence they are built once per turnOn/turnOff and not for each call.
+     */
+    private static void updateViews() {
+        if (viewsUpToDate)
+            return;
+
+        sgVMsArray = new XVM[sgVMsOn.size() + sgVMsOff.size()];
+        int i = 0;
+        for (XVM vm : sgVMsOn.values())
+            sgVMsArray[i++] = vm;
+        for (XVM vm : sgVMsOff.values())
+            sgVMsArray[i++] = vm;
+        sgVMsView = Collections.unmodifiableList(Arrays.asList(sgVMsArray));
+
+        // The collection of hosts never changes, so it is built only once
+        if (sgHostsView == null) {
+            XHost[] hosts = new XHost[sgHostingHosts.size() + sgServiceHosts.size()];
+            i = 0;
+            for (XHost h : sgHostingHosts.values())
+                hosts[i++] = h;
+            for (XHost h : sgServiceHosts.values())
+                hosts[i++] = h;
+            sgHostsView = Collections.unmodifiableList(Arrays.asList(hosts));
+        }
+
+        int nbOfTurnOnHostingHosts = 0;
+        for (XHost h : sgHostingHosts.values()) {
             if (!h.isOff())
-                tmp.add(h);
+                nbOfTurnOnHostingHosts++;
         }
-        return tmp;
+        sgTurnOnHostingHostsArray = new XHost[nbOfTurnOnHostingHosts];
+        i = 0;
+        for (XHost h : sgHostingHosts.values()) {
+            if (!h.isOff())
+                sgTurnOnHostingHostsArray[i++] = h;
+        }
+        sgTurnOnHostingHostsView = Collections.unmodifiableList(Arrays.asList(sgTurnOnHostingHostsArray));
+
+        viewsUpToDate = true;
     }
 
     /**
@@ -218,6 +357,13 @@ public class SimulatorManager {
         sgHostingHosts = new HashMap<String,XHost>();
         sgServiceHosts = new HashMap<String,XHost>();
         xhosts = new XHost[nbOfHostingHosts+nbOfServiceHosts];
+        sgHostsView = null;
+        invalidateViews();
+        SimulatorManager.nbOfHostingHosts = nbOfHostingHosts;
+        globalCPUDemand = 0;
+        globalCPUCapacity = 0;
+        violatedHosts.clear();
+        nbOfViolatedHosts = 0;
 
         XHost xtmp;
 
@@ -231,6 +377,7 @@ public class SimulatorManager {
                sgHostsOn.put("node"+i, xtmp);
                 sgHostingHosts.put("node" + i, xtmp);
                 xhosts[i]=xtmp;
+                globalCPUCapacity += xtmp.getCPUCapacity();
             } catch (HostNotFoundException e) {
                 e.printStackTrace();
             }
@@ -314,6 +461,7 @@ public class SimulatorManager {
             sgVMTmp = new XVM(sgHostTmp, "vm-" + vmIndex,
                         vmClass.getNbOfCPUs(), vmClass.getMemSize(), vmClass.getNetBW(), null, -1, vmClass.getMigNetBW(), vmClass.getMemIntensity());
             sgVMsOn.put("vm-"+vmIndex, sgVMTmp);
+            invalidateViews();
             vmIndex++;
 
             Msg.info(String.format("vm: %s, %d, %d, %s",
@@ -331,21 +479,92 @@ public class SimulatorManager {
         }
     }
 
+    /**
+     * Create a new VM (VM arrival) and start it on the first running hosting host that can accommodate it (memory and
+     * CPU). If no host can accommodate the VM, the VM is rejected.
+     * @param name the name of the VM
+     * @param vmClass the class of the VM
+     * @param load the initial load of the VM
+     * @return the new VM, null if it has been rejected
+     */
+    public static XVM createVM(String name, VMClasses.VMClass vmClass, int load) {
+        XHost sgHostTmp = null;
+        for (XHost host : getSGTurnOnHostingHostsToArray()) {
+            if (host.getMemDemand() + vmClass.getMemSize() <= host.getMemSize() &&
+                    host.getCPUDemand() + load <= host.getCPUCapacity()) {
+                sgHostTmp = host;
+                break;
+            }
+        }
+        if (sgHostTmp == null) {
+            nbOfRejectedVMs++;
+            Msg.info("VM " + name + " (" + vmClass.getName() + ") has been rejected, there is no host to start it");
+            return null;
+        }
+
+        XVM sgVMTmp = new XVM(sgHostTmp, name,
+                vmClass.getNbOfCPUs(), vmClass.getMemSize(), vmClass.getNetBW(), null, -1, vmClass.getMigNetBW(), vmClass.getMemIntensity());
+        sgVMsOn.put(name, sgVMTmp);
+        invalidateViews();
+        nbOfCreatedVMs++;
+        Msg.info("Create vm " + name + " (" + vmClass.getName() + ") on " + sgHostTmp.getName());
+
+        sgHostTmp.start(sgVMTmp);     // When the VM starts, its getCPUDemand equals 0
+        updateVM(sgVMTmp, load);
+        Trace.hostVariableSet(SimulatorManager.getInjectorNodeName(), "NB_VM", sgVMsOn.size() + sgVMsOff.size());
+        return sgVMTmp;
+    }
+
+    /**
+     * Destroy a VM (VM departure): the VM is stopped and removed from its host.
+     * A VM that is being migrated cannot be destroyed right away: it is marked as pending and XHost.migrate destroys it
+     * at the end of the migration.
+     * @param sgVM the VM to destroy
+     * @return whether the VM has been destroyed (false if it has already been destroyed or if it is being migrated)
+     */
+    public static boolean destroyVM(XVM sgVM) {
+        if (sgVM.isDestroyed())
+            return false;
+        if (sgVM.isMigrating()) {
+            Msg.info("VM " + sgVM.getName() + " is being migrated, it will be destroyed at the end of the migration");
+            sgVM.setDestroyPending(true);
+            return false;
+        }
+        sgVM.setDestroyPending(false);
+
+        XHost tmpHost = sgVM.getLocation();
+        boolean previouslyViable = tmpHost.isViable();
+        tmpHost.stop(sgVM);
+        sgVMsOn.remove(sgVM.getName());
+        sgVMsOff.remove(sgVM.getName());
+        invalidateViews();
+        nbOfDestroyedVMs++;
+        Msg.info("Destroy vm " + sgVM.getName() + " on " + tmpHost.getName());
+
+        if (!tmpHost.isOff()) {
+            if ((!previouslyViable) && (tmpHost.isViable())) {
+                Msg.info("ENDING VIOLATION ON "+tmpHost.getName()+"\n");
+                Trace.hostSetState (tmpHost.getName(), "PM", "normal");
+            }
+            Trace.hostVariableSet(tmpHost.getName(), "LOAD", tmpHost.getCPUDemand());
+            Trace.hostVariableSet(SimulatorManager.getInjectorNodeName(),  "LOAD", SimulatorManager.getCPUDemand());
+        }
+        Trace.hostVariableSet(SimulatorManager.getInjectorNodeName(), "NB_VM", sgVMsOn.size() + sgVMsOff.size());
+        return true;
+    }
+
     /**
      * write the current configuration in the ''logs/simulatorManager/'' directory
      */
     public static void writeCurrentConfiguration(){
         try {
-            File file = new File("logs/simulatorManager/conf-"+ System.currentTimeMillis() + ".txt");
-            file.getParentFile().mkdirs();
-            BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+            Writer bw = OutputFiles.createWriter("logs/simulatorManager/conf-"+ System.currentTimeMillis() + ".txt");
             for (XHost h: SimulatorManager.getSGHostingHosts()){
                 bw.write(h.getName()+":");
                 for (XVM vm: h.getRunnings()){
                     bw.write(" "+vm.getName());
                 }
                 bw.write("\n");
-                bw.flush();
             }
 
             bw.close();
@@ -373,14 +592,10 @@ public class SimulatorManager {
     /**
      * @return whether the current placement is viable or not (i.e. if every VM gets its expectations).
      * Please note that we are considering only the hosts that are running.
-     * Complexity O(n)
+     * Complexity O(1) (see the index of violated hosts)
      */
     public static boolean isViable() {
-        for (XHost h: sgHostsOn.values()){
-                  if(!h.isViable())
-                return false;
-        }
-        return true;
+        return nbOfViolatedHosts == 0;
     }
 
     /**
@@ -401,11 +616,145 @@ public class SimulatorManager {
         return 100 * globalCpuDemand / globalCpuCapacity;
     }
 
+    /**
+     * @return the average expected load at a particular moment (same value as computeCPUDemand()).
+     * Complexity O(1): the value is derived from the aggregates maintained incrementally.
+     * If simulator.checkcpudemand is set, the aggregate is compared with the full recomputation (O(n)).
+     */
     public static double getCPUDemand(){
-        // TODO Adrien, maintain the current CPU Demand in order to avoid O(n)
-        //return currentCPUDemand;
-        return computeCPUDemand();
+        double cpuDemand = 100 * globalCPUDemand / globalCPUCapacity;
+        if (checkCPUDemand) {
+            double expectedCPUDemand = computeCPUDemand();
+            if (Math.abs(expectedCPUDemand - cpuDemand) > 1e-6) {
+                System.err.println("The global CPU demand is inconsistent (incremental: " + cpuDemand + ", computed: " + expectedCPUDemand + ")");
+                System.exit(-1);
+            }
+        }
+        return cpuDemand;
     }
+
+    /**
+     * Update the global CPU demand and the index of violated hosts when the CPU demand of a host changes
+     * (invoked by XHost.setCPUDemand).
+     * Only the hosting hosts that are turned on are taken into account.
+     * Complexity O(1)
+     * @param host the host whose CPU demand has changed
+     * @param delta the difference between the new and the previous CPU demand of the host
+     */
+    public static void hostCPUDemandChanged(XHost host, double delta) {
+        if (host.isOn() && isHostingHost(host)) {
+            globalCPUDemand += delta;
+            // During a batch, the violation status of the updated hosts is refreshed once at the end (see endBatch)
+            if (!batching)
+                updateViolationStatus(host);
+        }
+    }
+
+    /**
+     * Invoked each time the memory demand of a host changes (see XHost.setMemDemand) in order to maintain the index of
+     * violated hosts (memory pressure is a violation). Complexity O(1)
+     * @param host the host whose memory demand has changed
+     */
+    public static void hostMemDemandChanged(XHost host) {
+        if (host.isOn() && isHostingHost(host) && !batching)
+            updateViolationStatus(host);
+    }
+
+    /**
+     * Invoked each time the network demand of a host changes (see XHost.setNetDemand) in order to maintain the index of
+     * violated hosts (network saturation is a violation). Complexity O(1)
+     * @param host the host whose network demand has changed
+     */
+    public static void hostNetDemandChanged(XHost host) {
+        if (host.isOn() && isHostingHost(host) && !batching)
+            updateViolationStatus(host);
+    }
+
+    /**
+     * Update the index of violated hosts for one host and notify the listeners if the host enters/leaves the violation
+     * state. A host is violated if it is a hosting host, it is turned on and it is not viable.
+     * Complexity O(1) (plus the cost of the listeners)
+     * @param host the host to update
+     */
+    private static void updateViolationStatus(XHost host) {
+        boolean violated = host.isOn() && isHostingHost(host) && !host.isViable();
+        int id = host.getId();
+        if (violated == violatedHosts.get(id))
+            return;
+
+        if (violated) {
+            violatedHosts.set(id);
+            nbOfViolatedHosts++;
+            for (ViolationListener listener : violationListeners)
+                listener.violationStarted(host);
+        } else {
+            violatedHosts.clear(id);
+            nbOfViolatedHosts--;
+            for (ViolationListener listener : violationListeners)
+                listener.violationEnded(host);
+        }
+    }
+
+    /**
+     * Register a listener that will be notified each time a host enters or leaves the violation state.
+     * @param listener the listener to add
+     */
+    public static void addViolationListener(ViolationListener listener) {
+        violationListeners.add(listener);
+    }
+
+    /**
+     * @param listener the listener to remove
+     */
+    public static void removeViolationListener(ViolationListener listener) {
+        violationListeners.remove(listener);
+    }
+
+    /**
+     * @return the number of hosting hosts that are turned on and currently violated.
+     * Complexity O(1)
+     */
+    public static int getNbOfViolatedHosts() {
+        return nbOfViolatedHosts;
+    }
+
+    /**
+     * @return whether the host is currently violated (i.e. it is a hosting host, it is on and it is not viable).
+     * Complexity O(1)
+     */
+    public static boolean isViolated(XHost host) {
+        return violatedHosts.get(host.getId());
+    }
+
+    /**
+     * @return whether the host is currently violated from the CPU viewpoint (i.e. it is violated and its CPU demand
+     * exceeds its CPU capacity, a host that is only under memory pressure or with a saturated NIC is not considered).
+     * Complexity O(1)
+     */
+    public static boolean isCPUViolated(XHost host) {
+        return violatedHosts.get(host.getId()) && !host.isCPUViable();
+    }
+
+    /**
+     * @return the collection of the hosts that are currently violated (sorted by id).
+     * Complexity O(#violations) (plus a scan of the bitset words)
+     */
+    public static Collection<XHost> getViolatedHosts() {
+        ArrayList<XHost> tmp = new ArrayList<>(nbOfViolatedHosts);
+        for (int id = violatedHosts.nextSetBit(0); id >= 0; id = violatedHosts.nextSetBit(id + 1))
+            tmp.add(StateTable.getXHost(id));
+        return tmp;
+    }
+
+    /**
+     * @return whether the host has been declared as a hosting node (i.e. it can host VMs).
+     * Hosting hosts are created first, hence their ids are in [0, nbOfHostingNodes[
+     * Complexity O(1)
+     */
+    public static boolean isHostingHost(XHost host) {
+        return host.getId() < SimulatorManager.nbOfHostingHosts;
+    }
+
     /**
      * @return the number of hosts that are active (i.e. that host at least one VM)
      * Complexity O(n)
@@ -426,10 +775,7 @@ public class SimulatorManager {
      * @return the corresponding XHost instance (null if there is no corresponding host in the sgHosts collection)
      */
     public static XHost getXHostByName(String name) {
-        XHost tmp = sgHostingHosts.get(name);
-        if (tmp == null)
-            tmp = sgServiceHosts.get(name);
-        return tmp;
+        return StateTable.getXHostByName(name);
     }
 
     /**
@@ -439,10 +785,7 @@ public class SimulatorManager {
      * @return the corresponding XVM instance (null if there is no corresponding vm in the sgVMs collection)
      */
     public static XVM getXVMByName(String name) {
-        XVM tmp = sgVMsOn.get(name);
-        if (tmp == null)
-            tmp = sgVMsOff.get(name);
-        return tmp;
+        return StateTable.getXVMByName(name);
     }
 
     /**
@@ -454,6 +797,16 @@ public class SimulatorManager {
      */
     public static void updateVM(XVM sgVM, int load) {
         XHost tmpHost = sgVM.getLocation();
+
+        if (batching) {
+            // Record the viability of the host before its first update in the batch, the traces are written in endBatch
+            if (!batchedHosts.containsKey(tmpHost))
+                batchedHosts.put(tmpHost, tmpHost.isViable());
+            tmpHost.setCPUDemand(tmpHost.getCPUDemand() - sgVM.getCPUDemand() + load);
+            sgVM.setLoad(load);
+            return;
+        }
+
         boolean previouslyViable = tmpHost.isViable();
 
         // A simple hack to avoid computing on-the-fly the CPUDemand of each host
@@ -488,7 +841,6 @@ public class SimulatorManager {
             // Update getCPUDemand of the host
             Trace.hostVariableSet(tmpHost.getName(), "LOAD", tmpHost.getCPUDemand());
 
-            // TODO this is costly O(HOST_NB) - SHOULD BE FIXED
             //Update global getCPUDemand
             Trace.hostVariableSet(SimulatorManager.getInjectorNodeName(),  "LOAD", SimulatorManager.getCPUDemand());
 
@@ -502,11 +854,125 @@ public class SimulatorManager {
         lastEnergy.put(tmpHost, tmpHost.getSGHost().getConsumedEnergy());
     }
 
+    /**
+     * Start a batch of load updates: the next calls to updateVM change the load of the VMs and the CPU demand of the
+     * hosts immediately but the violation transitions and the traces are handled once per host in endBatch.
+     * Please note that hosts must not be turned on/off during a batch.
+     */
+    public static void beginBatch() {
+        batching = true;
+    }
+
+    /**
+     * End the current batch of load updates: for each updated host (in the update order), the violation transition
+     * (if any) between the beginning and the end of the batch is handled and the traces are written once.
+     */
+    public static void endBatch() {
+        batching = false;
+        if (batchedHosts.isEmpty())
+            return;
+
+        boolean globalLoadChanged = false;
+        for (Map.Entry<XHost, Boolean> entry : batchedHosts.entrySet()) {
+            XHost tmpHost = entry.getKey();
+            boolean previouslyViable = entry.getValue();
+            updateViolationStatus(tmpHost);
+
+            // Same as updateVM (violations are detected only on running nodes)
+            if (!tmpHost.isOff()) {
+                if (previouslyViable && (!tmpHost.isViable())) {
+                    Msg.info("STARTING VIOLATION ON "+tmpHost.getName()+"\n");
+                    tmpHost.incViolation();
+                    Trace.hostSetState(tmpHost.getName(), "PM", "violation");
+
+                } else if ((!previouslyViable) && (tmpHost.isViable())) {
+                    Msg.info("ENDING VIOLATION ON "+tmpHost.getName()+"\n");
+                    Trace.hostSetState (tmpHost.getName(), "PM", "normal");
+                }
+                Trace.hostVariableSet(tmpHost.getName(), "LOAD", tmpHost.getCPUDemand());
+                globalLoadChanged = true;
+            }
+
+            double energy = tmpHost.getSGHost().getConsumedEnergy();
+            if(lastEnergy.containsKey(tmpHost))
+                energy -= lastEnergy.get(tmpHost);
+
+            Trace.hostVariableSet(tmpHost.getName(), "ENERGY", energy);
+            lastEnergy.put(tmpHost, tmpHost.getSGHost().getConsumedEnergy());
+        }
+        batchedHosts.clear();
+
+        //Update global getCPUDemand (once per batch)
+        if (globalLoadChanged)
+            Trace.hostVariableSet(SimulatorManager.getInjectorNodeName(),  "LOAD", SimulatorManager.getCPUDemand());
+    }
+
+    /**
+     * Change the memory demand of a VM (memory usage event) and update the memory demand of its host.
+     * As for the CPU, a host whose memory demand exceeds its memory size is violated.
+     * @param sgVM the VM
+     * @param memDemand the new memory demand of the VM (in MBytes, bounded by the size of its RAM)
+     */
+    public static void updateVMMemory(XVM sgVM, int memDemand) {
+        XHost tmpHost = sgVM.getLocation();
+        boolean previouslyViable = tmpHost.isViable();
+
+        int vmPreviousMemDemand = sgVM.getMemDemand();
+        sgVM.setMemDemand(memDemand);
+        tmpHost.setMemDemand(tmpHost.getMemDemand() - vmPreviousMemDemand + sgVM.getMemDemand());
+
+        // Violations are detected only on running node
+        if (!tmpHost.isOff()){
+            if(previouslyViable && (!tmpHost.isViable())) {
+                Msg.info("STARTING VIOLATION (MEMORY) ON "+tmpHost.getName()+"\n");
+                tmpHost.incViolation();
+                Trace.hostSetState(tmpHost.getName(), "PM", "violation");
+
+            } else if ((!previouslyViable) && (tmpHost.isViable())) {
+                Msg.info("ENDING VIOLATION ON "+tmpHost.getName()+"\n");
+                Trace.hostSetState (tmpHost.getName(), "PM", "normal");
+            }
+            // Update the memory demand of the host
+            Trace.hostVariableSet(tmpHost.getName(), "MEM", tmpHost.getMemDemand());
+        }
+    }
+
+    /**
+     * Change the network demand of a VM (network usage event) and update the network demand of its host.
+     * As for the CPU and the memory, a host whose network demand exceeds the bandwidth of its NIC is violated.
+     * @param sgVM the VM
+     * @param netDemand the new network demand of the VM (in MBytes per second, bounded by the bandwidth of its NIC)
+     */
+    public static void updateVMNetwork(XVM sgVM, int netDemand) {
+        XHost tmpHost = sgVM.getLocation();
+        boolean previouslyViable = tmpHost.isViable();
+
+        int vmPreviousNetDemand = sgVM.getNetDemand();
+        sgVM.setNetDemand(netDemand);
+        tmpHost.setNetDemand(tmpHost.getNetDemand() - vmPreviousNetDemand + sgVM.getNetDemand());
+
+        // Violations are detected only on running node
+        if (!tmpHost.isOff()){
+            if(previouslyViable && (!tmpHost.isViable())) {
+                Msg.info("STARTING VIOLATION (NETWORK) ON "+tmpHost.getName()+"\n");
+                tmpHost.incViolation();
+                Trace.hostSetState(tmpHost.getName(), "PM", "violation");
+
+            } else if ((!previouslyViable) && (tmpHost.isViable())) {
+                Msg.info("ENDING VIOLATION ON "+tmpHost.getName()+"\n");
+                Trace.hostSetState (tmpHost.getName(), "PM", "normal");
+            }
+            // Update the network demand of the host
+            Trace.hostVariableSet(tmpHost.getName(), "NET", tmpHost.getNetDemand());
+        }
+    }
+
     public static boolean willItBeViableWith(XVM sgVM, int load){
         XHost tmpHost = sgVM.getLocation();
         double hostPreviousLoad = tmpHost.getCPUDemand();
         double vmPreviousLoad = sgVM.getCPUDemand();
-        return ((hostPreviousLoad-vmPreviousLoad+load) <= tmpHost.getCPUCapacity());
+        return ((hostPreviousLoad-vmPreviousLoad+load) <= tmpHost.getCPUCapacity()) && (tmpHost.getMemDemand() <= tmpHost.getMemSize())
+                && (tmpHost.getNetDemand() <= tmpHost.getNetBW());
     }
 
     /**
@@ -520,9 +986,13 @@ public class SimulatorManager {
             host.turnOn();
             sgHostsOff.remove(name);
             sgHostsOn.put(name, host);
+            invalidateViews();
 
             // If your turn on an hosting node, then update the LOAD
-            if(sgHostingHosts.containsKey(name)) {
+            if(isHostingHost(host)) {
+                globalCPUDemand += host.getCPUDemand();
+                globalCPUCapacity += host.getCPUCapacity();
+                updateViolationStatus(host);
 
                 for (XVM vm: host.getRunnings()){
                     Msg.info("TURNING NODE "+name+"ON - ADD VM "+vm.getName());
@@ -539,8 +1009,8 @@ public class SimulatorManager {
                 Trace.hostVariableSet(SimulatorManager.getInjectorNodeName(), "LOAD", SimulatorManager.getCPUDemand());
             }
             if (SimulatorProperties.getAlgo().equals("hierarchical")) {
-                int hostNo = Integer.parseInt(name.replaceAll("\\D", ""));
-                if (hostNo < SimulatorProperties.getNbOfHostingNodes()) {
+                int hostNo = host.getId();
+                if (isHostingHost(host)) {
                     try {
                         String[] lcArgs = new String[]{name, "dynLocalController-" + hostNo};
                         LocalController lc =
@@ -571,7 +1041,7 @@ public class SimulatorManager {
             Msg.info("Turn off "+host.getName());
 
             // if this is an hosting host, then you should deal with VM aspects
-            if(sgHostingHosts.containsKey(host.getName())) {
+            if(isHostingHost(host)) {
                 // First remove all VMs hosted on the node from the global collection
                 // The VMs are still referenced on the node
                 for (XVM vm : host.getRunnings()) {
@@ -579,13 +1049,12 @@ public class SimulatorManager {
                     sgVMsOn.remove(vm.getName());
                     sgVMsOff.put(vm.getName(), vm);
                 }
+                globalCPUDemand -= host.getCPUDemand();
+                globalCPUCapacity -= host.getCPUCapacity();
+
                 // Update getCPUDemand of the host
                 Trace.hostVariableSet(host.getName(), "LOAD", 0);
 
-                // TODO if the node is violated then it is no more violated
-                //Update global getCPUDemand
-                Trace.hostVariableSet(SimulatorManager.getInjectorNodeName(),  "LOAD", SimulatorManager.getCPUDemand());
-
             }
 
 
@@ -596,6 +1065,14 @@ public class SimulatorManager {
             // Finally, remove the node from the collection of running host and add it to the collection of off ones
             sgHostsOn.remove(host.getName());
             sgHostsOff.put(host.getName(), host);
+            invalidateViews();
+            updateViolationStatus(host);
+
+            if(isHostingHost(host)) {
+                // TODO if the node is violated then it is no more violated
+                //Update global getCPUDemand (once the node is off so that it is no more considered)
+                Trace.hostVariableSet(SimulatorManager.getInjectorNodeName(),  "LOAD", SimulatorManager.getCPUDemand());
+            }
 
           //  Msg.info("Nb of remaining processes on " + host.getName() + ": " + (previousCount - org.simgrid.msg.Process.getCount()));
 
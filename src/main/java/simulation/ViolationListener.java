@@ -0,0 +1,28 @@
+/**
+ * Copyright 2012-2013-2014. The SimGrid Team. All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the license (GNU LGPL) which comes with this package.
+ *
+ * Callback invoked by the SimulatorManager each time a hosting host enters or leaves the violation state
+ * (see SimulatorManager.addViolationListener).
+ */
+
+package simulation;
+
+import configuration.XHost;
+
+public interface ViolationListener {
+
+    /**
+     * The host has just become non viable (i.e. its CPU demand exceeds its capacity).
+     * @param host the violated host
+     */
+    void violationStarted(XHost host);
+
+    /**
+     * The host is no more violated (either it is viable again or it has been turned off).
+     * @param host the host that is no more violated
+     */
+    void violationEnded(XHost host);
+}
@@ -0,0 +1,104 @@
+package trace;
+
+/**
+ * Histogram of a stream of non-negative values (durations, sizes...) in constant memory: exact count, sum, min and
+ * max, and quantiles approximated with logarithmic buckets (SUB_BUCKETS buckets per power of two, i.e. a relative
+ * error lower than 20%).
+ */
+final class StreamingHistogram {
+
+    private static final int SUB_BUCKETS = 4;
+
+    /* Smallest and largest powers of two covered by the buckets (the values outside are put in the first/last one) */
+    private static final int MIN_EXPONENT = -20;
+    private static final int MAX_EXPONENT = 40;
+
+    private static final int NB_OF_BUCKETS = (MAX_EXPONENT - MIN_EXPONENT) * SUB_BUCKETS + 2;
+
+    private final long[] buckets = new long[NB_OF_BUCKETS];
+    private long count = 0;
+    private double sum = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    void add(double value) {
+        buckets[bucket(value)]++;
+        count++;
+        sum += value;
+        if (value < min)
+            min = value;
+        if (value > max)
+            max = value;
+    }
+
+    /**
+     * @return the bucket of the value (bucket 0 contains 0 and the values lower than 2^MIN_EXPONENT)
+     */
+    private static int bucket(double value) {
+        if (value <= Math.scalb(1.0, MIN_EXPONENT))
+            return 0;
+        int i = 1 + (int) Math.floor((Math.log(value) / Math.log(2) - MIN_EXPONENT) * SUB_BUCKETS);
+        return Math.min(i, NB_OF_BUCKETS - 1);
+    }
+
+    /**
+     * @return the upper bound of the bucket
+     */
+    private static double upperBound(int bucket) {
+        if (bucket == 0)
+            return Math.scalb(1.0, MIN_EXPONENT);
+        return Math.pow(2, MIN_EXPONENT + (double) bucket / SUB_BUCKETS);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    double getSum() {
+        return sum;
+    }
+
+    double getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    double getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    double getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    /**
+     * @param q the quantile (between 0 and 1)
+     * @return an approximation of the quantile q of the values (0 if there is no value)
+     */
+    double getQuantile(double q) {
+        if (count == 0)
+            return 0;
+        long rank = (long) Math.ceil(q * count);
+        long seen = 0;
+        for (int i = 0; i < NB_OF_BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank && buckets[i] > 0)
+                return Math.max(min, Math.min(max, upperBound(i)));
+        }
+        return max;
+    }
+
+    /**
+     * Append the histogram as a json object (count, sum, mean, min, max, p50, p90, p99) at the end of sb
+     */
+    void appendJson(StringBuilder sb) {
+        sb.append("{\"count\": ").append(count)
+                .append(", \"sum\": ").append(sum)
+                .append(", \"mean\": ").append(getMean())
+                .append(", \"min\": ").append(getMin())
+                .append(", \"max\": ").append(getMax())
+                .append(", \"p50\": ").append(getQuantile(0.5))
+                .append(", \"p90\": ").append(getQuantile(0.9))
+                .append(", \"p99\": ").append(getQuantile(0.99))
+                .append('}');
+    }
+}
@@ -1,8 +1,11 @@
 package trace;
 
 import com.sun.javafx.binding.Logging;
+import configuration.XHost;
 import scheduling.distributed.dvms2.dvms.dvms2.LoggingActor;
 
+import java.util.Collection;
+
 /**
  * Created by jonathan on 17/09/14.
  */
@@ -58,20 +61,45 @@ public class Trace {
      * @param host
      * @param state
      * @param value
-     * @param data
+     * @param data the typed data of the state (see TraceAttributes)
      */
-    public static void hostSetState(String host, String state, String value, String data) {
+    public static void hostSetState(String host, String state, String value, TraceAttributes data) {
         TraceImpl.getInstance().hostSetState(host, state, value, data);
     }
 
 
+    /**
+     * Set the state of a group of hosts to the given value (the trace contains a single record for the whole group).
+     *
+     * @param hosts
+     * @param state
+     * @param value
+     */
+    public static void groupSetState(Collection<XHost> hosts, String state, String value) {
+        TraceImpl.getInstance().groupSetState(hosts, state, value, null);
+    }
+
+    /**
+     * Set the state of a group of hosts to the given value and data (the trace contains a single record for the whole
+     * group).
+     *
+     * @param hosts
+     * @param state
+     * @param value
+     * @param data the typed data of the state (see TraceAttributes)
+     */
+    public static void groupSetState(Collection<XHost> hosts, String state, String value, TraceAttributes data) {
+        TraceImpl.getInstance().groupSetState(hosts, state, value, data);
+    }
+
     /**
      * Pop the last value of a state of a given host.
      *
      * @param host
      * @param state
+     * @param data the typed data merged into the data of the pushed state (see TraceAttributes)
      */
-    public static void hostPopState(String host, String state, String data) {
+    public static void hostPopState(String host, String state, TraceAttributes data) {
         TraceImpl.getInstance().hostPopState(host, state, data);
     }
 
@@ -103,8 +131,9 @@ public class Trace {
      * @param host
      * @param state
      * @param value
+     * @param data the typed data of the state (see TraceAttributes)
      */
-    public static void hostPushState(String host, String state, String value, String data) {
+    public static void hostPushState(String host, String state, String value, TraceAttributes data) {
         TraceImpl.getInstance().hostPushState(host, state, value, data);
     }
 
@@ -151,6 +180,36 @@ public class Trace {
         TraceImpl.getInstance().hostVariableAdd(host, variable, value);
     }
 
+    /**
+     * Record the result of a computation of a scheduler in the metrics of the simulation.
+     *
+     * @param result the result of the computation (e.g. SUCCESS)
+     * @param duration the computation time (in sec)
+     * @param partitionSize the number of hosts considered by the scheduler
+     * @param nbOfMigrations the number of migrations of the reconfiguration plan
+     */
+    public static void schedulerComputation(String result, double duration, int partitionSize, int nbOfMigrations) {
+        TraceImpl.getInstance().schedulerComputation(result, duration, partitionSize, nbOfMigrations);
+    }
+
+    /**
+     * Record a migration in the metrics of the simulation.
+     *
+     * @param duration the duration of the migration (in sec)
+     * @param success whether the migration succeeded
+     */
+    public static void migration(double duration, boolean success) {
+        TraceImpl.getInstance().migration(duration, success);
+    }
+
+    /**
+     * Write the summary of the metrics of the simulation (metrics.json and metrics.csv, see TraceMetrics).
+     * This function is invoked at the end of the injection.
+     */
+    public static void writeMetricsSummary() {
+        TraceImpl.getInstance().writeMetricsSummary();
+    }
+
     /**
      * Flush all data that has not been flushed to the disk.
      * This function should be invoked at the end of your simulation !
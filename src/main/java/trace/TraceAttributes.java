@@ -0,0 +1,175 @@
+package trace;
+
+import java.util.Arrays;
+
+/**
+ * Typed data attached to a state of the trace (see Trace.hostPushState/hostPopState/hostSetState): an ordered list of
+ * key/value pairs whose values are strings, integers or doubles, stored in parallel arrays.
+ *
+ * When a state is popped, the attributes of the pop are merged into the ones of the push (array merge, the values of
+ * the pop win), and the result is serialized (as a json object) only by the background writer of the trace.
+ * Please note that the attributes must not be modified once they have been given to the Trace.
+ *
+ * Example: new TraceAttributes().put("vm_name", vmName).put("state", res)
+ */
+public class TraceAttributes {
+
+    public static final byte STRING = 0;
+    public static final byte LONG = 1;
+    public static final byte DOUBLE = 2;
+
+    private String[] keys;
+    private byte[] kinds;
+    private String[] strings;
+    private long[] longs;
+    private double[] doubles;
+    private int size = 0;
+
+    public TraceAttributes() {
+        this(4);
+    }
+
+    /**
+     * @param capacity the expected number of attributes
+     */
+    public TraceAttributes(int capacity) {
+        capacity = Math.max(1, capacity);
+        keys = new String[capacity];
+        kinds = new byte[capacity];
+        strings = new String[capacity];
+        longs = new long[capacity];
+        doubles = new double[capacity];
+    }
+
+    public TraceAttributes put(String key, String value) {
+        int i = slot(key);
+        kinds[i] = STRING;
+        strings[i] = value;
+        return this;
+    }
+
+    public TraceAttributes put(String key, long value) {
+        int i = slot(key);
+        kinds[i] = LONG;
+        strings[i] = null;
+        longs[i] = value;
+        return this;
+    }
+
+    public TraceAttributes put(String key, double value) {
+        int i = slot(key);
+        kinds[i] = DOUBLE;
+        strings[i] = null;
+        doubles[i] = value;
+        return this;
+    }
+
+    /**
+     * @return the index of the attribute key (a new attribute is appended if the key is not present)
+     */
+    private int slot(String key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key))
+                return i;
+        }
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+            longs = Arrays.copyOf(longs, capacity);
+            doubles = Arrays.copyOf(doubles, capacity);
+        }
+        keys[size] = key;
+        return size++;
+    }
+
+    /**
+     * @param other the attributes to merge (they override the attributes with the same key)
+     * @return new attributes containing the attributes of this object followed by the new ones of other
+     */
+    public TraceAttributes merge(TraceAttributes other) {
+        TraceAttributes merged = new TraceAttributes(this.size + other.size);
+        merged.copyFrom(this);
+        merged.copyFrom(other);
+        return merged;
+    }
+
+    private void copyFrom(TraceAttributes other) {
+        for (int i = 0; i < other.size; i++) {
+            int j = slot(other.keys[i]);
+            kinds[j] = other.kinds[i];
+            strings[j] = other.strings[i];
+            longs[j] = other.longs[i];
+            doubles[j] = other.doubles[i];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getKey(int i) {
+        return keys[i];
+    }
+
+    public byte getKind(int i) {
+        return kinds[i];
+    }
+
+    public String getString(int i) {
+        return strings[i];
+    }
+
+    public long getLong(int i) {
+        return longs[i];
+    }
+
+    public double getDouble(int i) {
+        return doubles[i];
+    }
+
+    /**
+     * Append the attributes as a json object (e.g. {"vm_name": "vm-1", "state": 0}) at the end of sb
+     */
+    public void appendJson(StringBuilder sb) {
+        sb.append('{');
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                sb.append(", ");
+            appendJsonString(sb, keys[i]);
+            sb.append(": ");
+            switch (kinds[i]) {
+                case STRING:
+                    if (strings[i] == null)
+                        sb.append("null");
+                    else
+                        appendJsonString(sb, strings[i]);
+                    break;
+                case LONG:
+                    sb.append(longs[i]);
+                    break;
+                default:
+                    sb.append(doubles[i]);
+            }
+        }
+        sb.append('}');
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                sb.append('\\');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        appendJson(sb);
+        return sb.toString();
+    }
+}
@@ -1,16 +1,16 @@
 package trace;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import configuration.SimulatorProperties;
+import configuration.XHost;
 import org.simgrid.msg.Host;
 import org.simgrid.msg.Msg;
 import scheduling.distributed.dvms2.dvms.dvms2.LoggingActor;
 import scheduling.distributed.dvms2.dvms.dvms2.LoggingProtocol;
 
-import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Locale;
 
 /**
  * Copyright 2012-2013-2014. The SimGrid Team. All rights reserved.
@@ -32,41 +32,140 @@ import java.util.Locale;
  */
 public class TraceImpl {
 
-    class TState {
+    /**
+     * Initial number of hosts/states/variables (the arrays grow automatically when required)
+     */
+    private static final int INITIAL_CAPACITY = 16;
 
-        private String value;
-        private double datetime;
-        private String data;
+    /**
+     * Stack of the values pushed for one state of one host.
+     * The pushed values are stored in parallel arrays that are reused (no allocation per push/pop).
+     */
+    static final class StateStack {
 
-        public TState(String value, String data, double datetime) {
-            this.value = value;
-            this.data = data;
-            this.datetime = datetime;
+        private String[] values = new String[2];
+        private TraceAttributes[] data = new TraceAttributes[2];
+        private double[] datetimes = new double[2];
+        /* The group state (see groupSetState) of each pushed value, null for a value pushed for this host only */
+        private GroupState[] groups = new GroupState[2];
+        private int size = 0;
+
+        void push(String value, TraceAttributes d, double datetime) {
+            push(value, d, datetime, null);
+        }
+
+        void push(GroupState group) {
+            push(group.value, group.data, group.datetime, group);
+        }
+
+        private void push(String value, TraceAttributes d, double datetime, GroupState group) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+                data = Arrays.copyOf(data, size * 2);
+                datetimes = Arrays.copyOf(datetimes, size * 2);
+                groups = Arrays.copyOf(groups, size * 2);
+            }
+            values[size] = value;
+            data[size] = d;
+            datetimes[size] = datetime;
+            groups[size] = group;
+            size++;
+        }
+
+        /**
+         * @return the group state of the last pushed value (null if it has been pushed for this host only)
+         */
+        GroupState top() {
+            return groups[size - 1];
+        }
+
+        void removeTop() {
+            size--;
+            values[size] = null;
+            data[size] = null;
+            groups[size] = null;
         }
 
-        public String getValue() {
-            return value;
+        boolean isEmpty() {
+            return size == 0;
         }
-        public String getData() { return data; }
     }
 
-    class TValue{
-        private double value;
-        private double datetime;
+    /**
+     * A state set for a group of hosts at once (see groupSetState). It is shared by the stacks of the hosts of the
+     * group; when several of them pop it at the same time, a single group record is written.
+     */
+    static final class GroupState {
+
+        private final String value;
+        private final TraceAttributes data;
+        private final double datetime;
 
-        public TValue(double value, double datetime) {
+        /* Ids of the hosts that pop the group state during the current popGroup */
+        private int[] popped = new int[8];
+        private int nbOfPopped = 0;
+
+        GroupState(String value, TraceAttributes data, double datetime) {
             this.value = value;
+            this.data = data;
             this.datetime = datetime;
         }
 
-        public double getValue() {
-            return value;
+        void addPopped(int h) {
+            if (nbOfPopped == popped.length)
+                popped = Arrays.copyOf(popped, nbOfPopped * 2);
+            popped[nbOfPopped++] = h;
         }
     }
+
+    /**
+     * The group states popped during the current popGroup
+     */
+    private final ArrayList<GroupState> poppedGroups = new ArrayList<GroupState>();
+
     /**
-     * Hashmap for host states: key : name of the host, value hashMap of Linkedlist of states
+     * Interned names: hosts, states and variables receive a small integer id when they are declared (or when they are
+     * used for the first time). The name to id lookups are the only map accesses of the trace calls.
      */
-    HashMap<String, HashMap<String, LinkedList<TState>>> hostStates;
+    private final HashMap<String, Integer> hostIds = new HashMap<String, Integer>();
+    private String[] hostNames = new String[INITIAL_CAPACITY];
+    private int nbOfHosts = 0;
+
+    private final HashMap<String, Integer> stateIds = new HashMap<String, Integer>();
+    private String[] stateNames = new String[INITIAL_CAPACITY];
+    private int nbOfStates = 0;
+
+    private final HashMap<String, Integer> variableIds = new HashMap<String, Integer>();
+    private String[] variableNames = new String[INITIAL_CAPACITY];
+    private VariableSampling[] variableSamplings = new VariableSampling[INITIAL_CAPACITY];
+    private int nbOfVariables = 0;
+
+    /**
+     * Host states: stacks[host id][state id] (null if the state has not been declared for the host)
+     */
+    private StateStack[][] stacks = new StateStack[INITIAL_CAPACITY][];
+
+    /**
+     * Host variables: current value and date of the last change, indexed by [host id][variable id]
+     */
+    private double[][] variableValues = new double[INITIAL_CAPACITY][];
+    private double[][] variableDatetimes = new double[INITIAL_CAPACITY][];
+    private boolean[][] variableDeclared = new boolean[INITIAL_CAPACITY][];
+
+    /**
+     * Sampled host variables (see VariableSampling): last written value, date of the last written record (i.e. the
+     * beginning of the current interval), integral of the variable since that date (up to the last change) and
+     * whether the current value has not been written yet, indexed by [host id][variable id]
+     */
+    private double[][] writtenValues = new double[INITIAL_CAPACITY][];
+    private double[][] writtenDatetimes = new double[INITIAL_CAPACITY][];
+    private double[][] variableIntegrals = new double[INITIAL_CAPACITY][];
+    private boolean[][] variablePending = new boolean[INITIAL_CAPACITY][];
+
+    /**
+     * Online metrics of the simulation (null if simulator.metrics is false or once the summary has been written)
+     */
+    private TraceMetrics metrics = SimulatorProperties.getMetrics() ? new TraceMetrics() : null;
 
     protected double now() {
         return Msg.getClock();
@@ -77,9 +176,21 @@ public class TraceImpl {
     }
 
     /**
-     * Hashmap for host variables: key : name of the host, value hashMap of variables
+     * Write a state whose data are typed attributes (serialized by the background writer of the trace)
+     */
+    void writeState(double time, String origin, String state, String value, TraceAttributes data, double duration) {
+        if (data == null)
+            writeJson(time, origin, state, value, "", duration);
+        else
+            LoggingActor.write(new LoggingProtocol.PopTypedState(time, origin, state, value, data, duration));
+    }
+
+    /**
+     * Write a change of a variable (typed record, written as a VARIABLE state in events.json)
      */
-    private HashMap<String, HashMap<String, TValue>> hostVariables;
+    void writeVariable(double time, String origin, String variable, double value, double duration) {
+        LoggingActor.write(new LoggingProtocol.SetVariable(time, origin, variable, value, duration));
+    }
 
     private static TraceImpl instance;
 
@@ -91,29 +202,198 @@ public class TraceImpl {
     }
 
     public TraceImpl() {
-        hostStates = new HashMap<String, HashMap<String, LinkedList<TState>>>();
-        hostVariables = new HashMap<String, HashMap<String, TValue>>();
         for (Host host : Host.all()) {
-            hostStates.put(host.getName(),  new HashMap<String, LinkedList<TState>>());
-            hostVariables.put(host.getName(),  new HashMap<String, TValue>());
+            hostId(host.getName());
+        }
+    }
+
+    /**
+     * @return the id of the host (a new id is assigned if the host is unknown)
+     */
+    private int hostId(String host) {
+        Integer id = hostIds.get(host);
+        if (id != null)
+            return id;
+
+        if (nbOfHosts == hostNames.length) {
+            int capacity = hostNames.length * 2;
+            hostNames = Arrays.copyOf(hostNames, capacity);
+            stacks = Arrays.copyOf(stacks, capacity);
+            variableValues = Arrays.copyOf(variableValues, capacity);
+            variableDatetimes = Arrays.copyOf(variableDatetimes, capacity);
+            variableDeclared = Arrays.copyOf(variableDeclared, capacity);
+            writtenValues = Arrays.copyOf(writtenValues, capacity);
+            writtenDatetimes = Arrays.copyOf(writtenDatetimes, capacity);
+            variableIntegrals = Arrays.copyOf(variableIntegrals, capacity);
+            variablePending = Arrays.copyOf(variablePending, capacity);
+        }
+        int h = nbOfHosts++;
+        hostNames[h] = host;
+        stacks[h] = new StateStack[stateNames.length];
+        variableValues[h] = new double[variableNames.length];
+        variableDatetimes[h] = new double[variableNames.length];
+        variableDeclared[h] = new boolean[variableNames.length];
+        writtenValues[h] = new double[variableNames.length];
+        writtenDatetimes[h] = new double[variableNames.length];
+        variableIntegrals[h] = new double[variableNames.length];
+        variablePending[h] = new boolean[variableNames.length];
+        hostIds.put(host, h);
+        return h;
+    }
+
+    /**
+     * @return the id of the state (a new id is assigned if the state is unknown)
+     */
+    private int stateId(String state) {
+        Integer id = stateIds.get(state);
+        if (id != null)
+            return id;
+
+        if (nbOfStates == stateNames.length) {
+            int capacity = stateNames.length * 2;
+            stateNames = Arrays.copyOf(stateNames, capacity);
+            for (int h = 0; h < nbOfHosts; h++)
+                stacks[h] = Arrays.copyOf(stacks[h], capacity);
         }
+        int s = nbOfStates++;
+        stateNames[s] = state;
+        stateIds.put(state, s);
+        return s;
     }
 
+    /**
+     * @return the id of the variable (a new id is assigned if the variable is unknown)
+     */
+    private int variableId(String variable) {
+        Integer id = variableIds.get(variable);
+        if (id != null)
+            return id;
+
+        if (nbOfVariables == variableNames.length) {
+            int capacity = variableNames.length * 2;
+            variableNames = Arrays.copyOf(variableNames, capacity);
+            variableSamplings = Arrays.copyOf(variableSamplings, capacity);
+            for (int h = 0; h < nbOfHosts; h++) {
+                variableValues[h] = Arrays.copyOf(variableValues[h], capacity);
+                variableDatetimes[h] = Arrays.copyOf(variableDatetimes[h], capacity);
+                variableDeclared[h] = Arrays.copyOf(variableDeclared[h], capacity);
+                writtenValues[h] = Arrays.copyOf(writtenValues[h], capacity);
+                writtenDatetimes[h] = Arrays.copyOf(writtenDatetimes[h], capacity);
+                variableIntegrals[h] = Arrays.copyOf(variableIntegrals[h], capacity);
+                variablePending[h] = Arrays.copyOf(variablePending[h], capacity);
+            }
+        }
+        int v = nbOfVariables++;
+        variableNames[v] = variable;
+        variableSamplings[v] = VariableSampling.of(variable);
+        variableIds.put(variable, v);
+        return v;
+    }
 
+    /**
+     * @return the stack of the state of the host (it is created if the state has not been declared for the host)
+     */
+    private StateStack stack(int h, int s) {
+        StateStack stack = stacks[h][s];
+        if (stack == null) {
+            stack = new StateStack();
+            stacks[h][s] = stack;
+        }
+        return stack;
+    }
 
     public void flush(){
         // Retrieve all hosts
-        for (String host : hostStates.keySet()) {
-            // Retrieve all states
-            HashMap<String, LinkedList<TState>> currentHostStates = hostStates.get(host);
-            for (String state : hostStates.get(host).keySet()) {
-                // For each state, retrieve the states stack and pop them
-                while(currentHostStates.containsKey(state) && !currentHostStates.get(state).isEmpty()) {
-                    hostPopState(host, state);
+        int[] all = new int[nbOfHosts];
+        for (int h = 0; h < nbOfHosts; h++)
+            all[h] = h;
+        // Retrieve all states and pop the states stacks (the group states are written once per group)
+        for (int s = 0; s < nbOfStates; s++)
+            popGroup(all, all.length, s);
+
+        // Write the pending values of the sampled variables
+        double now = now();
+        for (int h = 0; h < nbOfHosts; h++) {
+            for (int v = 0; v < nbOfVariables; v++) {
+                if (!variableDeclared[h][v])
+                    continue;
+                switch (variableSamplings[v].kind) {
+                    case VariableSampling.PERIOD:
+                        closePeriod(h, v, now);
+                        // The change of the current period is written as with delta
+                        if (variablePending[h][v])
+                            writeSample(h, v, now);
+                        break;
+                    case VariableSampling.DELTA:
+                        if (variablePending[h][v])
+                            writeSample(h, v, now);
+                        break;
+                    case VariableSampling.AVERAGE:
+                        closeIntervals(h, v, now);
+                        if (now > writtenDatetimes[h][v])
+                            writeAverage(h, v, now);
+                        break;
                 }
             }
         }
+    }
 
+    /**
+     * Pop all the values of the state s of the given hosts. The values pushed for one host are written as usual, the
+     * group states are written once (one record per group state, with the list of the hosts that popped it).
+     */
+    private void popGroup(int[] hosts, int nbOfHosts, int s) {
+        for (int i = 0; i < nbOfHosts; i++) {
+            int h = hosts[i];
+            StateStack stack = stacks[h][s];
+            while (stack != null && !stack.isEmpty()) {
+                GroupState group = stack.top();
+                if (group == null) {
+                    popState(h, s, stack, null);
+                } else {
+                    stack.removeTop();
+                    if (group.nbOfPopped == 0)
+                        poppedGroups.add(group);
+                    group.addPopped(h);
+                }
+            }
+        }
+
+        double now = now();
+        for (GroupState group : poppedGroups) {
+            String[] origins = new String[group.nbOfPopped];
+            for (int i = 0; i < group.nbOfPopped; i++) {
+                origins[i] = hostNames[group.popped[i]];
+                if (metrics != null)
+                    metrics.stateInterval(group.popped[i], stateNames[s], group.value, now - group.datetime);
+            }
+            group.nbOfPopped = 0;
+            LoggingActor.write(new LoggingProtocol.PopGroupState(group.datetime, origins, stateNames[s], group.value, group.data, now - group.datetime));
+        }
+        poppedGroups.clear();
+    }
+
+    /**
+     * Set the state of a group of hosts to the given value and data (same result as invoking hostSetState for each
+     * host, but the trace contains a single record per group transition instead of one per host).
+     *
+     * @param hosts
+     * @param state
+     * @param value
+     * @param data
+     */
+    void groupSetState(Collection<XHost> hosts, String state, String value, TraceAttributes data) {
+        int s = stateId(state);
+        int[] ids = new int[hosts.size()];
+        int n = 0;
+        for (XHost host : hosts)
+            ids[n++] = hostId(host.getName());
+
+        popGroup(ids, n, s);
+
+        GroupState group = new GroupState(value, data, now());
+        for (int i = 0; i < n; i++)
+            stack(ids[i], s).push(group);
     }
 
     /**
@@ -130,30 +410,16 @@ public class TraceImpl {
      * Declare a user state that will be associated to a given host.
      */
     void hostStateDeclare(String host, String state) {
-
-        HashMap<String, LinkedList<TState>> currentHostStates;
-        if (hostStates.containsKey(host)) {
-            currentHostStates = hostStates.get(host);
-        } else {
-            currentHostStates = new HashMap<String, LinkedList<TState>>();
-        }
-
-
-        if (!currentHostStates.containsKey(state)) {
-            LinkedList<TState> listOfStates = new LinkedList<TState>();
-            currentHostStates.put(state, listOfStates);
-
-            hostStates.put(host, currentHostStates);
-        }
-
+        stack(hostId(host), stateId(state));
     }
 
     /**
      * Declare a user state that will be associated to hosts.
      */
     public void hostStateDeclare(String state) {
-        for (String key : hostStates.keySet()) {
-            hostStateDeclare(key, state);
+        int s = stateId(state);
+        for (int h = 0; h < nbOfHosts; h++) {
+            stack(h, s);
         }
     }
 
@@ -177,7 +443,7 @@ public class TraceImpl {
      * @param value
      */
     void hostSetState(String host, String state, String value) {
-        hostSetState(host, state, value, "");
+        hostSetState(host, state, value, null);
     }
 
     /**
@@ -188,23 +454,16 @@ public class TraceImpl {
      * @param value
      * @param data
      */
-    void hostSetState(String host, String state, String value, String data) {
-        if (!hostStates.containsKey(host)) {
-            hostStateDeclare(host, state);
-        }
-        HashMap<String, LinkedList<TState>> currentHostStates = hostStates.get(host);
+    void hostSetState(String host, String state, String value, TraceAttributes data) {
+        int h = hostId(host);
+        int s = stateId(state);
+        StateStack stack = stack(h, s);
 
-        while(currentHostStates.containsKey(state) && !currentHostStates.get(state).isEmpty()) {
-            hostPopState(host, state, "");
+        while (!stack.isEmpty()) {
+            popState(h, s, stack, null);
         }
 
-        LinkedList<TState> listOfStates = new LinkedList<TState>();
-        listOfStates.add(new TState(value, data, now()));
-
-
-        currentHostStates.put(state, listOfStates);
-        hostStates.put(host, currentHostStates);
-
+        stack.push(value, data, now());
     }
 
     /**
@@ -214,7 +473,7 @@ public class TraceImpl {
      * @param state
      */
     void hostPopState(String host, String state) {
-        hostPopState(host, state, "");
+        hostPopState(host, state, null);
     }
 
     /**
@@ -224,57 +483,39 @@ public class TraceImpl {
      * @param state
      * @param data
      */
-    void hostPopState(String host, String state, String data) {
-
-        double now = now();
+    void hostPopState(String host, String state, TraceAttributes data) {
+        int h = hostId(host);
+        int s = stateId(state);
+        StateStack stack = stack(h, s);
 
-        if (!hostStates.containsKey(host)) {
-            hostStateDeclare(host, state);
+        if (!stack.isEmpty()) {
+            popState(h, s, stack, data);
         }
-        HashMap<String, LinkedList<TState>> currentHostStates = hostStates.get(host);
-
-        LinkedList<TState> listOfStates;
-        if (currentHostStates.containsKey(state)) {
-            listOfStates = currentHostStates.get(state);
-
-            if(listOfStates.size() > 0) {
-                TState lastState = listOfStates.removeLast();
-
-                double duration = now() - lastState.datetime;
-
-                /* Check if the state contains some data */
-                String mergingData;
-
-                if(!lastState.getData().isEmpty() && !data.isEmpty()) {
-                    Gson gson = new Gson();
-                    Type type = new TypeToken<HashMap<String, Object>>() {}.getType();
-
-                    HashMap<String, Object> mapMerging = new HashMap<String, Object>();
-
-                    HashMap<String, Object> mapPush = gson.fromJson(lastState.getData(), type);
-                    HashMap<String, Object> mapPop  = gson.fromJson(data, type);
-
-                    mapMerging.putAll(mapPush);
-                    mapMerging.putAll(mapPop);
-
-                    mergingData = gson.toJson(mapMerging);
-                } else {
-                    if(data.isEmpty()) {
-                        mergingData = lastState.getData();
-                    } else {
-                        mergingData = data;
-                    }
-                }
-
-                writeJson(lastState.datetime, host, state, lastState.getValue(), mergingData, duration);
-            }
-
-        } else {
-            listOfStates = new LinkedList<TState>();
-        }
-        currentHostStates.put(state, listOfStates);
+    }
 
-        hostStates.put(host, currentHostStates);
+    /**
+     * Pop the last value of the stack and write the corresponding state (the attributes of the pop are merged into the
+     * ones of the push, the values of the pop win)
+     */
+    private void popState(int h, int s, StateStack stack, TraceAttributes data) {
+        int last = stack.size - 1;
+        String lastValue = stack.values[last];
+        TraceAttributes lastData = stack.data[last];
+        double lastDatetime = stack.datetimes[last];
+        stack.removeTop();
+
+        double duration = now() - lastDatetime;
+
+        /* Check if the state contains some data */
+        TraceAttributes mergingData;
+        if (lastData != null && data != null)
+            mergingData = lastData.merge(data);
+        else
+            mergingData = (data == null) ? lastData : data;
+
+        writeState(lastDatetime, hostNames[h], stateNames[s], lastValue, mergingData, duration);
+        if (metrics != null)
+            metrics.stateInterval(h, stateNames[s], lastValue, duration);
     }
 
     /**
@@ -285,7 +526,7 @@ public class TraceImpl {
      * @param value
      */
     void hostPushState(String host, String state, String value) {
-        hostPushState(host, state, value, "");
+        hostPushState(host, state, value, null);
     }
 
     /**
@@ -296,46 +537,33 @@ public class TraceImpl {
      * @param value
      * @param data
      */
-    void hostPushState(String host, String state, String value, String data) {
-
-        if (!hostStates.containsKey(host)) {
-            hostStateDeclare(host, state);
-        }
-        HashMap<String, LinkedList<TState>> currentHostStates = hostStates.get(host);
-
-        LinkedList<TState> listOfStates;
-        if (currentHostStates.containsKey(state)) {
-            listOfStates = currentHostStates.get(state);
-        } else {
-            listOfStates = new LinkedList<TState>();
-        }
-
-        listOfStates.add(new TState(value, data, now()));
-
-        currentHostStates.put(state, listOfStates);
-
-        hostStates.put(host, currentHostStates);
-
+    void hostPushState(String host, String state, String value, TraceAttributes data) {
+        stack(hostId(host), stateId(state)).push(value, data, now());
     }
 
 
 
 
     void hostVariableDeclare(String host, String variable) {
+        declareVariable(hostId(host), variableId(variable));
+    }
 
-        HashMap<String, TValue> currentHostVariables;
-        if (hostVariables.containsKey(host)) {
-            currentHostVariables = hostVariables.get(host);
-        } else {
-            currentHostVariables = new HashMap<String, TValue>();
-        }
-
-        if (!currentHostVariables.containsKey(variable)) {
-            currentHostVariables.put(variable, new TValue(0, now()));
-
-            hostVariables.put(host, currentHostVariables);
+    /**
+     * Declare the variable for the host (its value is set to 0), nothing happens if it has been already declared
+     */
+    private void declareVariable(int h, int v) {
+        if (!variableDeclared[h][v]) {
+            double now = now();
+            variableDeclared[h][v] = true;
+            variableValues[h][v] = 0;
+            variableDatetimes[h][v] = now;
+            writtenValues[h][v] = 0;
+            writtenDatetimes[h][v] = now;
+            variableIntegrals[h][v] = 0;
+            variablePending[h][v] = false;
+            if (metrics != null)
+                metrics.variableDeclared(h, v, now);
         }
-
     }
 
     /**
@@ -344,8 +572,9 @@ public class TraceImpl {
      * @param variable
      */
     void hostVariableDeclare(String variable) {
-        for (String key : hostVariables.keySet()) {
-            hostVariableDeclare(key, variable);
+        int v = variableId(variable);
+        for (int h = 0; h < nbOfHosts; h++) {
+            declareVariable(h, v);
         }
     }
 
@@ -357,18 +586,10 @@ public class TraceImpl {
      * @param value
      */
     void  hostVariableSet(String host, String variable, double value) {
-        if (!hostVariables.containsKey(host)) {
-            hostVariableDeclare(host, variable);
-        }
-        HashMap<String, TValue> currentHostVariable = hostVariables.get(host);
-
-        double duration = now() - currentHostVariable.get(variable).datetime;
-
-        currentHostVariable.put(variable, new TValue(value, now()));
-        hostVariables.put(host, currentHostVariable);
-
-        String valueAsJson = String.format(Locale.US, "{\"value\": %f}", value);
-        writeJson(now(), host, "VARIABLE", variable, valueAsJson, duration);
+        int h = hostId(host);
+        int v = variableId(variable);
+        declareVariable(h, v);
+        updateVariable(h, v, value);
     }
 
     /**
@@ -379,19 +600,10 @@ public class TraceImpl {
      * @param value
      */
     void hostVariableSub(java.lang.String host, java.lang.String variable, double value) {
-        if (!hostVariables.containsKey(host)) {
-            hostVariableDeclare(host, variable);
-        }
-        HashMap<String, TValue> currentHostVariable = hostVariables.get(host);
-
-        double duration = now() - currentHostVariable.get(variable).datetime;
-
-        double tmp = currentHostVariable.get(variable).getValue();
-        currentHostVariable.put(variable, new TValue((tmp - value), now()));
-        hostVariables.put(host, currentHostVariable);
-
-        String valueAsJson = String.format(Locale.US, "{\"value\": %f}", tmp - value);
-        writeJson(now(), host, "VARIABLE", variable, valueAsJson, duration);
+        int h = hostId(host);
+        int v = variableId(variable);
+        declareVariable(h, v);
+        updateVariable(h, v, variableValues[h][v] - value);
     }
 
     /**
@@ -402,23 +614,144 @@ public class TraceImpl {
      * @param value
      */
     void hostVariableAdd(java.lang.String host, java.lang.String variable, double value) {
-        if (!hostVariables.containsKey(host)) {
-            hostVariableDeclare(host, variable);
+        int h = hostId(host);
+        int v = variableId(variable);
+        declareVariable(h, v);
+        updateVariable(h, v, variableValues[h][v] + value);
+    }
+
+    /**
+     * Change the value of a (declared) variable and write the change according to the sampling policy of the
+     * variable (without sampling, the duration is the time elapsed since the previous change)
+     */
+    private void updateVariable(int h, int v, double value) {
+        double now = now();
+        VariableSampling sampling = variableSamplings[v];
+        if (metrics != null)
+            metrics.variableChanged(h, v, variableValues[h][v], now);
+
+        if (sampling.kind == VariableSampling.ALL) {
+            double duration = now - variableDatetimes[h][v];
+            variableValues[h][v] = value;
+            variableDatetimes[h][v] = now;
+            writeVariable(now, hostNames[h], variableNames[v], value, duration);
+            return;
+        }
+
+        if (sampling.kind == VariableSampling.AVERAGE)
+            closeIntervals(h, v, now);
+        else if (sampling.kind == VariableSampling.PERIOD)
+            closePeriod(h, v, now);
+
+        variableIntegrals[h][v] += variableValues[h][v] * (now - variableDatetimes[h][v]);
+        variableValues[h][v] = value;
+        variableDatetimes[h][v] = now;
+
+        switch (sampling.kind) {
+            case VariableSampling.DELTA:
+                if (Math.abs(value - writtenValues[h][v]) > sampling.parameter)
+                    writeSample(h, v, now);
+                else
+                    variablePending[h][v] = true;
+                break;
+            case VariableSampling.PERIOD:
+                if (now - writtenDatetimes[h][v] >= sampling.parameter)
+                    writeSample(h, v, now);
+                else
+                    variablePending[h][v] = true;
+                break;
+        }
+    }
+
+    /**
+     * Write the current value of a sampled variable at the given date (the duration is the time elapsed since the
+     * previous record, the variable must not have changed after end), followed by its average since the previous
+     * record (see VariableSampling.AVERAGE_SUFFIX)
+     */
+    private void writeSample(int h, int v, double end) {
+        double start = writtenDatetimes[h][v];
+        if (variableDatetimes[h][v] < end) {
+            variableIntegrals[h][v] += variableValues[h][v] * (end - variableDatetimes[h][v]);
+            variableDatetimes[h][v] = end;
         }
-        HashMap<String, TValue> currentHostVariable = hostVariables.get(host);
+        double value = variableValues[h][v];
+        writeVariable(end, hostNames[h], variableNames[v], value, end - start);
+        if (end > start)
+            writeVariable(end, hostNames[h], variableSamplings[v].averageVariable, variableIntegrals[h][v] / (end - start), end - start);
+        writtenValues[h][v] = value;
+        writtenDatetimes[h][v] = end;
+        variableIntegrals[h][v] = 0;
+        variablePending[h][v] = false;
+    }
 
-        if(!currentHostVariable.containsKey(variable)) {
-            hostVariableSet(host, variable, value);
-        } else {
-            double duration = now() - currentHostVariable.get(variable).datetime;
+    /**
+     * Write the pending change of a variable sampled by period at the end of its period, if this period is over at
+     * the given date
+     */
+    private void closePeriod(int h, int v, double now) {
+        double end = writtenDatetimes[h][v] + variableSamplings[v].parameter;
+        if (variablePending[h][v] && now >= end)
+            writeSample(h, v, end);
+    }
 
-            double tmp = currentHostVariable.get(variable).getValue();
-            currentHostVariable.put(variable, new TValue((tmp+value), now()));
-            hostVariables.put(host, currentHostVariable);
+    /**
+     * Write the average of the intervals of the variable that are over at the given date (the variable did not change
+     * since its last change, the intervals without any change are merged in the record of the previous one)
+     */
+    private void closeIntervals(int h, int v, double now) {
+        double period = variableSamplings[v].parameter;
+        double start = writtenDatetimes[h][v];
+        if (now - start < period)
+            return;
 
-            String valueAsJson = String.format(Locale.US, "{\"value\": %f}", tmp + value);
-            writeJson(now(), host, "VARIABLE", variable, valueAsJson, duration);
+        writeAverage(h, v, start + Math.floor((now - start) / period) * period);
+    }
+
+    /**
+     * Write the time-weighted average of the variable between the date of the previous record and end (the variable
+     * must not have changed after end)
+     */
+    private void writeAverage(int h, int v, double end) {
+        double start = writtenDatetimes[h][v];
+        if (variableDatetimes[h][v] < end) {
+            variableIntegrals[h][v] += variableValues[h][v] * (end - variableDatetimes[h][v]);
+            variableDatetimes[h][v] = end;
         }
+        double average = variableIntegrals[h][v] / (end - start);
+        writeVariable(end, hostNames[h], variableNames[v], average, end - start);
+        writtenValues[h][v] = average;
+        writtenDatetimes[h][v] = end;
+        variableIntegrals[h][v] = 0;
+        variablePending[h][v] = false;
+    }
 
+    void schedulerComputation(String result, double duration, int partitionSize, int nbOfMigrations) {
+        if (metrics != null)
+            metrics.schedulerComputation(result, duration, partitionSize, nbOfMigrations);
+    }
+
+    void migration(double duration, boolean success) {
+        if (metrics != null)
+            metrics.migration(duration, success);
+    }
+
+    /**
+     * Write the summary of the metrics (the states that are still open are counted until now), the metrics are no
+     * longer updated afterwards.
+     */
+    void writeMetricsSummary() {
+        if (metrics == null)
+            return;
+
+        double now = now();
+        for (int h = 0; h < nbOfHosts; h++) {
+            for (int s = 0; s < nbOfStates; s++) {
+                StateStack stack = stacks[h][s];
+                for (int i = 0; stack != null && i < stack.size; i++)
+                    metrics.stateInterval(h, stateNames[s], stack.values[i], now - stack.datetimes[i]);
+            }
+        }
+        metrics.writeSummary(now, hostNames, nbOfHosts, variableNames, nbOfVariables, variableValues, variableDeclared);
+        metrics = null;
     }
 }
@@ -0,0 +1,289 @@
+package trace;
+
+import org.simgrid.msg.Msg;
+import simulation.OutputFiles;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Online aggregation of the main metrics of the simulation (the ones computed by the visu scripts from events.json):
+ *  - the time spent by each host in each state value (e.g. PM/violation, SERVICE/migrate) and the histogram of the
+ *    durations of these states
+ *  - the time-weighted average of the variables of each host (e.g. LOAD, ENERGY)
+ *  - the scheduler computations (results, computation times, partition sizes, planned migrations)
+ *  - the migrations (successes, failures, durations)
+ *
+ * It is fed by TraceImpl (states and variables) and by the schedulers (see Trace.schedulerComputation and
+ * Trace.migration), and writes metrics.json (global summary) and metrics.csv (per host) at the end of the injection.
+ * metrics.csv contains one line per host and state value (number of occurrences, total time, average duration) and
+ * one line per host and variable (final value as total, time-weighted average).
+ * The hosts and variables are identified by the ids of TraceImpl.
+ */
+final class TraceMetrics {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * State values: "state value" pairs interned with a small id
+     */
+    private final HashMap<String, Integer> pairIds = new HashMap<String, Integer>();
+    private String[] pairStates = new String[INITIAL_CAPACITY];
+    private String[] pairValues = new String[INITIAL_CAPACITY];
+    private StreamingHistogram[] pairDurations = new StreamingHistogram[INITIAL_CAPACITY];
+    private int nbOfPairs = 0;
+
+    /**
+     * Time spent in each state value and number of occurrences, indexed by [host id][pair id]
+     */
+    private double[][] hostPairTimes = new double[INITIAL_CAPACITY][];
+    private long[][] hostPairCounts = new long[INITIAL_CAPACITY][];
+
+    /**
+     * Integral of each variable since its declaration, date of its declaration and of its last change, indexed by
+     * [host id][variable id]
+     */
+    private double[][] variableIntegrals = new double[INITIAL_CAPACITY][];
+    private double[][] variableFirstDatetimes = new double[INITIAL_CAPACITY][];
+    private double[][] variableLastDatetimes = new double[INITIAL_CAPACITY][];
+
+    /**
+     * Scheduler computations
+     */
+    private final Map<String, Long> computationResults = new LinkedHashMap<String, Long>();
+    private final StreamingHistogram computationDurations = new StreamingHistogram();
+    private final StreamingHistogram partitionSizes = new StreamingHistogram();
+    private final StreamingHistogram plannedMigrations = new StreamingHistogram();
+
+    /**
+     * Migrations
+     */
+    private long nbOfSuccessfulMigrations = 0;
+    private long nbOfFailedMigrations = 0;
+    private final StreamingHistogram migrationDurations = new StreamingHistogram();
+
+    /**
+     * A host has been in the given state value during duration (closed state interval)
+     */
+    void stateInterval(int h, String state, String value, double duration) {
+        int p = pairId(state, value);
+        ensureHost(h);
+        if (hostPairTimes[h].length <= p) {
+            hostPairTimes[h] = Arrays.copyOf(hostPairTimes[h], pairStates.length);
+            hostPairCounts[h] = Arrays.copyOf(hostPairCounts[h], pairStates.length);
+        }
+        hostPairTimes[h][p] += duration;
+        hostPairCounts[h][p]++;
+        pairDurations[p].add(duration);
+    }
+
+    /**
+     * A variable has been declared for a host (its value is 0)
+     */
+    void variableDeclared(int h, int v, double now) {
+        ensureVariable(h, v);
+        variableIntegrals[h][v] = 0;
+        variableFirstDatetimes[h][v] = now;
+        variableLastDatetimes[h][v] = now;
+    }
+
+    /**
+     * A variable of a host changes at the date now (value is its value before the change)
+     */
+    void variableChanged(int h, int v, double value, double now) {
+        variableIntegrals[h][v] += value * (now - variableLastDatetimes[h][v]);
+        variableLastDatetimes[h][v] = now;
+    }
+
+    void schedulerComputation(String result, double duration, int partitionSize, int nbOfMigrations) {
+        Long n = computationResults.get(result);
+        computationResults.put(result, n == null ? 1 : n + 1);
+        computationDurations.add(duration);
+        partitionSizes.add(partitionSize);
+        plannedMigrations.add(nbOfMigrations);
+    }
+
+    void migration(double duration, boolean success) {
+        if (success)
+            nbOfSuccessfulMigrations++;
+        else
+            nbOfFailedMigrations++;
+        migrationDurations.add(duration);
+    }
+
+    private int pairId(String state, String value) {
+        String key = state + '\u0000' + value;
+        Integer id = pairIds.get(key);
+        if (id != null)
+            return id;
+
+        if (nbOfPairs == pairStates.length) {
+            int capacity = pairStates.length * 2;
+            pairStates = Arrays.copyOf(pairStates, capacity);
+            pairValues = Arrays.copyOf(pairValues, capacity);
+            pairDurations = Arrays.copyOf(pairDurations, capacity);
+        }
+        int p = nbOfPairs++;
+        pairStates[p] = state;
+        pairValues[p] = value;
+        pairDurations[p] = new StreamingHistogram();
+        pairIds.put(key, p);
+        return p;
+    }
+
+    private void ensureHost(int h) {
+        if (h >= hostPairTimes.length) {
+            int capacity = Math.max(h + 1, hostPairTimes.length * 2);
+            hostPairTimes = Arrays.copyOf(hostPairTimes, capacity);
+            hostPairCounts = Arrays.copyOf(hostPairCounts, capacity);
+            variableIntegrals = Arrays.copyOf(variableIntegrals, capacity);
+            variableFirstDatetimes = Arrays.copyOf(variableFirstDatetimes, capacity);
+            variableLastDatetimes = Arrays.copyOf(variableLastDatetimes, capacity);
+        }
+        if (hostPairTimes[h] == null) {
+            hostPairTimes[h] = new double[pairStates.length];
+            hostPairCounts[h] = new long[pairStates.length];
+            variableIntegrals[h] = new double[INITIAL_CAPACITY];
+            variableFirstDatetimes[h] = new double[INITIAL_CAPACITY];
+            variableLastDatetimes[h] = new double[INITIAL_CAPACITY];
+        }
+    }
+
+    private void ensureVariable(int h, int v) {
+        ensureHost(h);
+        if (v >= variableIntegrals[h].length) {
+            int capacity = Math.max(v + 1, variableIntegrals[h].length * 2);
+            variableIntegrals[h] = Arrays.copyOf(variableIntegrals[h], capacity);
+            variableFirstDatetimes[h] = Arrays.copyOf(variableFirstDatetimes[h], capacity);
+            variableLastDatetimes[h] = Arrays.copyOf(variableLastDatetimes[h], capacity);
+        }
+    }
+
+    /**
+     * @return the time-weighted average of the variable between its declaration and now (value is its current value)
+     */
+    private double variableAverage(int h, int v, double value, double now) {
+        double elapsed = now - variableFirstDatetimes[h][v];
+        if (elapsed <= 0)
+            return value;
+        return (variableIntegrals[h][v] + value * (now - variableLastDatetimes[h][v])) / elapsed;
+    }
+
+    /**
+     * Write metrics.json and metrics.csv (the open states must have been given to stateInterval before), through
+     * OutputFiles (i.e. compressed if the outputs are compressed).
+     *
+     * @param now the current date
+     * @param hostNames the names of the hosts (indexed by id)
+     * @param nbOfHosts
+     * @param variableNames the names of the variables (indexed by id)
+     * @param nbOfVariables
+     * @param variableValues the current values of the variables, indexed by [host id][variable id]
+     * @param variableDeclared whether the variables have been declared, indexed by [host id][variable id]
+     */
+    void writeSummary(double now, String[] hostNames, int nbOfHosts, String[] variableNames, int nbOfVariables,
+                      double[][] variableValues, boolean[][] variableDeclared) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"time\": ").append(now);
+
+        json.append(", \"scheduler\": {\"computations\": ").append(computationDurations.getCount())
+                .append(", \"results\": {");
+        boolean first = true;
+        for (Map.Entry<String, Long> result : computationResults.entrySet()) {
+            if (!first)
+                json.append(", ");
+            json.append('"').append(result.getKey()).append("\": ").append(result.getValue());
+            first = false;
+        }
+        json.append("}, \"computation_time\": ");
+        computationDurations.appendJson(json);
+        json.append(", \"partition_size\": ");
+        partitionSizes.appendJson(json);
+        json.append(", \"planned_migrations\": ");
+        plannedMigrations.appendJson(json);
+        json.append('}');
+
+        json.append(", \"migrations\": {\"success\": ").append(nbOfSuccessfulMigrations)
+                .append(", \"failure\": ").append(nbOfFailedMigrations)
+                .append(", \"duration\": ");
+        migrationDurations.appendJson(json);
+        json.append('}');
+
+        json.append(", \"states\": [");
+        for (int p = 0; p < nbOfPairs; p++) {
+            if (p > 0)
+                json.append(", ");
+            json.append("{\"state\": \"").append(pairStates[p]).append("\", \"value\": \"").append(pairValues[p])
+                    .append("\", \"time\": ").append(pairDurations[p].getSum())
+                    .append(", \"duration\": ");
+            pairDurations[p].appendJson(json);
+            json.append('}');
+        }
+        json.append(']');
+
+        StringBuilder csv = new StringBuilder("host,kind,name,count,total,average\n");
+        double[] variableTotals = new double[nbOfVariables];
+        int[] variableCounts = new int[nbOfVariables];
+        for (int h = 0; h < nbOfHosts; h++) {
+            if (h >= hostPairTimes.length || hostPairTimes[h] == null)
+                continue;
+            for (int p = 0; p < nbOfPairs && p < hostPairTimes[h].length; p++) {
+                long count = hostPairCounts[h][p];
+                if (count == 0)
+                    continue;
+                double time = hostPairTimes[h][p];
+                csv.append(hostNames[h]).append(",state,").append(pairStates[p]).append('/').append(pairValues[p])
+                        .append(',').append(count).append(',').append(time).append(',').append(time / count).append('\n');
+            }
+            for (int v = 0; v < nbOfVariables && v < variableIntegrals[h].length; v++) {
+                if (!variableDeclared[h][v])
+                    continue;
+                double average = variableAverage(h, v, variableValues[h][v], now);
+                variableTotals[v] += average;
+                variableCounts[v]++;
+                csv.append(hostNames[h]).append(",variable,").append(variableNames[v])
+                        .append(",1,").append(variableValues[h][v]).append(',').append(average).append('\n');
+            }
+        }
+
+        json.append(", \"variables\": [");
+        first = true;
+        for (int v = 0; v < nbOfVariables; v++) {
+            if (variableCounts[v] == 0)
+                continue;
+            if (!first)
+                json.append(", ");
+            json.append("{\"variable\": \"").append(variableNames[v])
+                    .append("\", \"hosts\": ").append(variableCounts[v])
+                    .append(", \"sum_of_averages\": ").append(variableTotals[v])
+                    .append(", \"average\": ").append(variableTotals[v] / variableCounts[v]).append('}');
+            first = false;
+        }
+        json.append("]}\n");
+
+        write("metrics.json", json);
+        write("metrics.csv", csv);
+    }
+
+    private static void write(String file, StringBuilder content) {
+        Writer writer = null;
+        try {
+            writer = OutputFiles.createWriter(file);
+            writer.append(content);
+        } catch (IOException e) {
+            Msg.info("Cannot write " + OutputFiles.name(file) + ": " + e.getMessage());
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    Msg.info("Cannot write " + OutputFiles.name(file) + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
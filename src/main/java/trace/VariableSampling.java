@@ -0,0 +1,78 @@
+package trace;
+
+import configuration.SimulatorProperties;
+
+/**
+ * Sampling policy of a trace variable (simulator.trace.sampling.VARIABLE, see simulator.properties):
+ *  - "all": every change is written (default)
+ *  - "delta:D": a change is written only when the value differs by more than D from the last written value
+ *  - "period:P": at most one change is written every P simulated seconds (the last value, written at the end of the
+ *    period in which it occurred)
+ *  - "average:P": one record per interval of P simulated seconds, whose value is the time-weighted average of the
+ *    variable over the interval and whose duration is the length of the interval
+ *
+ * With delta and period, the changes that are not written are not lost for the accounting: each record of the
+ * variable is followed by a record of the variable VARIABLE + AVERAGE_SUFFIX (e.g. LOAD_AVG) whose value is the
+ * time-weighted average of the variable since the previous record and whose duration is the time elapsed since this
+ * record (i.e. value * duration is the exact integral of the variable over the interval).
+ *
+ * The pending values are written by Trace.flush(), so that the last value of each variable is always in the trace.
+ */
+final class VariableSampling {
+
+    static final int ALL = 0;
+    static final int DELTA = 1;
+    static final int PERIOD = 2;
+    static final int AVERAGE = 3;
+
+    static final String AVERAGE_SUFFIX = "_AVG";
+
+    static final VariableSampling EVERY_CHANGE = new VariableSampling(ALL, 0, null);
+
+    final int kind;
+    final double parameter;
+
+    /**
+     * Name of the variable that carries the average of the variable between two records (delta and period only)
+     */
+    final String averageVariable;
+
+    private VariableSampling(int kind, double parameter, String averageVariable) {
+        this.kind = kind;
+        this.parameter = parameter;
+        this.averageVariable = averageVariable;
+    }
+
+    /**
+     * @return the sampling policy configured for the variable
+     */
+    static VariableSampling of(String variable) {
+        String policy = SimulatorProperties.getTraceSampling(variable).trim();
+        if (policy.equals("all"))
+            return EVERY_CHANGE;
+
+        int separator = policy.indexOf(':');
+        if (separator > 0) {
+            String name = policy.substring(0, separator).trim();
+            double parameter;
+            try {
+                parameter = Double.parseDouble(policy.substring(separator + 1).trim());
+            } catch (NumberFormatException e) {
+                parameter = -1;
+            }
+            if (parameter >= 0) {
+                if (name.equals("delta"))
+                    return new VariableSampling(DELTA, parameter, variable + AVERAGE_SUFFIX);
+                if (parameter > 0 && name.equals("period"))
+                    return new VariableSampling(PERIOD, parameter, variable + AVERAGE_SUFFIX);
+                if (parameter > 0 && name.equals("average"))
+                    return new VariableSampling(AVERAGE, parameter, null);
+            }
+        }
+
+        System.err.println("Invalid sampling policy \"" + policy + "\" for the trace variable " + variable +
+                " (expected all, delta:D, period:P or average:P)");
+        System.exit(-1);
+        return null;
+    }
+}
@@ -0,0 +1,37 @@
+package scheduling.distributed.dvms2.dvms.dvms2
+
+import java.io.{File, FileOutputStream}
+
+import simulation.OutputFiles
+
+/**
+ * Convert a binary trace (events.bin) into the corresponding JSON trace (events.json), i.e. the file that would have
+ * been written with simulator.trace.format = json.
+ * The binary trace may be compressed (events.bin.gz, see OutputFiles).
+ * Usage: BinaryTraceConverter <events.bin> [events.json]
+ */
+object BinaryTraceConverter {
+
+  def main(args: Array[String]) {
+    if (args.length < 1) {
+      System.err.println("Usage: BinaryTraceConverter <events.bin> [events.json]")
+      System.exit(-1)
+    }
+    val output = if (args.length > 1) args(1) else "events.json"
+
+    val reader = new BinaryTraceReader(OutputFiles.open(args(0)))
+    val writer = new JsonTraceOutput(new FileOutputStream(new File(output)), 1 << 16)
+    try {
+      var n = 0
+      while (reader.hasNext) {
+        writer.append(reader.next())
+        n += 1
+        if (n % 1024 == 0)
+          writer.endOfBatch()
+      }
+    } finally {
+      reader.close()
+      writer.close()
+    }
+  }
+}
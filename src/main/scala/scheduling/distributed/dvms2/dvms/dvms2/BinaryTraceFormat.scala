@@ -0,0 +1,54 @@
+package scheduling.distributed.dvms2.dvms.dvms2
+
+/**
+ * Binary trace format (events.bin, simulator.trace.format = binary), written by BinaryTraceWriter and read back by
+ * BinaryTraceReader. BinaryTraceConverter produces the corresponding events.json.
+ *
+ * The file starts with a header (MAGIC, VERSION as two big-endian ints) followed by the records until the end of the
+ * file. Each record starts with its type (one byte, one type per LoggingProtocol case class), its timestamp and its
+ * origin, followed by the fields of the message:
+ *  - timestamps are delta-encoded: zigzag varint of the difference between the bits of the timestamp
+ *    (Double.doubleToLongBits) and the bits of the timestamp of the previous record (lossless, one byte when the
+ *    time did not change)
+ *  - names (origins, states, values, VMs, ...) are interned: varint 0 followed by the string when the name appears for
+ *    the first time (it receives the next id, starting from 0), varint id + 1 afterwards
+ *  - free strings (the json data of the states) are written as a varint length followed by the UTF-8 bytes
+ *  - typed state data (TraceAttributes) are written as the number of attributes followed, for each attribute, by its
+ *    interned key, its kind (one byte) and its value (interned name, zigzag varint or double)
+ *  - group states (PopGroupState) use the first host of the group as origin, followed by the state, the value, the
+ *    number of the other hosts and their names, one byte (1 when there are typed data, 0 otherwise), the typed data
+ *    and the duration
+ *  - integers are zigzag varints, other doubles are written as is (8 bytes)
+ */
+object BinaryTraceFormat {
+
+  val MAGIC = 0x56545243 // "VTRC"
+
+  /* Version of the format, incremented each time a record type is added or changed (as visu/binary_trace.py) */
+  val VERSION = 2
+
+  val POP_STATE = 1
+  val SET_VARIABLE = 2
+  val HAS_CRASHED = 3
+  val EXPERIMENT_INFORMATION = 4
+  val COMPUTING_RECONFIGURATION_PLAN = 5
+  val APPLYING_RECONFIGURATION_PLAN = 6
+  val RECONFIGURATION_PLAN_IS_DONE = 7
+  val IS_BOOKED = 8
+  val IS_FREE = 9
+  val FIRST_OUT_IS = 10
+  val FORWARDING_PARTITION = 11
+  val ASKING_MIGRATION = 12
+  val STARTING_MIGRATION = 13
+  val FINISHING_MIGRATION = 14
+  val ABORTING_MIGRATION = 15
+  val CURRENT_LOAD_IS = 16
+  val VIOLATION_DETECTED = 17
+  val UPDATE_MIGRATION_COUNT = 18
+  val POP_TYPED_STATE = 19
+  val POP_GROUP_STATE = 20
+
+  def zigzag(v: Long): Long = (v << 1) ^ (v >> 63)
+
+  def unzigzag(v: Long): Long = (v >>> 1) ^ -(v & 1)
+}
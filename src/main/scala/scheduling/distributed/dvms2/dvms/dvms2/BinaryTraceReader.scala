@@ -0,0 +1,168 @@
+package scheduling.distributed.dvms2.dvms.dvms2
+
+import java.io.{BufferedInputStream, DataInputStream, IOException, InputStream}
+import java.nio.charset.StandardCharsets
+
+import scala.collection.mutable.ArrayBuffer
+
+import scheduling.distributed.dvms2.dvms.dvms2.BinaryTraceFormat._
+import scheduling.distributed.dvms2.dvms.dvms2.LoggingProtocol._
+import trace.TraceAttributes
+
+/**
+ * Streaming reader of the binary trace format (see BinaryTraceFormat): the messages are decoded one by one, in the
+ * order in which they have been written, so that arbitrary large traces can be processed in constant memory.
+ */
+class BinaryTraceReader(in: InputStream) extends Iterator[LoggingMessage] {
+
+  private val data = new DataInputStream(new BufferedInputStream(in, 1 << 20))
+
+  /* Interned names indexed by their id */
+  private val names = new ArrayBuffer[String]()
+
+  /* Bits of the timestamp of the previous record */
+  private var previousTime = 0L
+
+  if (data.readInt() != MAGIC)
+    throw new IOException("Not a binary trace (wrong magic number)")
+  private val version = data.readInt()
+  if (version != VERSION)
+    throw new IOException("Unsupported binary trace version " + version + " (expected " + VERSION + ")")
+
+  /* Type of the next record (-1 at the end of the file) */
+  private var nextRecordType = data.read()
+
+  def hasNext: Boolean = nextRecordType >= 0
+
+  def next(): LoggingMessage = {
+    if (!hasNext)
+      throw new NoSuchElementException()
+
+    val recordType = nextRecordType
+    val bits = previousTime + unzigzag(varLong())
+    previousTime = bits
+    val time = java.lang.Double.longBitsToDouble(bits)
+    val origin = name()
+
+    val message = recordType match {
+      case POP_STATE =>
+        val state = name()
+        val value = name()
+        val json = string()
+        PopState(time, origin, state, value, json, data.readDouble())
+      case POP_TYPED_STATE =>
+        val state = name()
+        val value = name()
+        val attributes = typedData()
+        PopTypedState(time, origin, state, value, attributes, data.readDouble())
+      case POP_GROUP_STATE =>
+        val state = name()
+        val value = name()
+        val origins = new Array[String](int() + 1)
+        origins(0) = origin
+        for (i <- 1 until origins.length)
+          origins(i) = name()
+        val attributes = if (data.readBoolean()) typedData() else null
+        PopGroupState(time, origins, state, value, attributes, data.readDouble())
+      case SET_VARIABLE =>
+        val variable = name()
+        val value = data.readDouble()
+        SetVariable(time, origin, variable, value, data.readDouble())
+      case HAS_CRASHED =>
+        HasCrashed(time, origin)
+      case EXPERIMENT_INFORMATION =>
+        val serverCount = int()
+        val serviceNodeCount = int()
+        val vmCount = int()
+        ExperimentInformation(time, origin, serverCount, serviceNodeCount, vmCount, name())
+      case COMPUTING_RECONFIGURATION_PLAN =>
+        val duration = data.readDouble()
+        val psize = int()
+        ComputingSomeReconfigurationPlan(time, origin, duration, psize, name())
+      case APPLYING_RECONFIGURATION_PLAN =>
+        ApplyingSomeReconfigurationPlan(time, origin)
+      case RECONFIGURATION_PLAN_IS_DONE =>
+        ApplicationSomeReconfigurationPlanIsDone(time, origin)
+      case IS_BOOKED =>
+        IsBooked(time, origin)
+      case IS_FREE =>
+        IsFree(time, origin)
+      case FIRST_OUT_IS =>
+        FirstOutIs(time, origin, if (data.readBoolean()) Some(name()) else None)
+      case FORWARDING_PARTITION =>
+        val initiator = name()
+        val leader = name()
+        val nbOfNodes = int()
+        val nodes = List.fill(nbOfNodes)(name())
+        ForwardingPartition(time, origin, LoggingPartition(initiator, leader, nodes), name())
+      case ASKING_MIGRATION =>
+        AskingMigration(time, origin, name(), name(), name())
+      case STARTING_MIGRATION =>
+        StartingMigration(time, origin, name(), name(), name())
+      case FINISHING_MIGRATION =>
+        FinishingMigration(time, origin, name(), name(), name(), data.readDouble())
+      case ABORTING_MIGRATION =>
+        AbortingMigration(time, origin, name(), name(), name())
+      case CURRENT_LOAD_IS =>
+        CurrentLoadIs(time, origin, data.readDouble())
+      case VIOLATION_DETECTED =>
+        ViolationDetected(time, origin)
+      case UPDATE_MIGRATION_COUNT =>
+        UpdateMigrationCount(time, origin, int())
+      case _ =>
+        throw new IOException("Unknown record type " + recordType + " in the binary trace")
+    }
+
+    nextRecordType = data.read()
+    message
+  }
+
+  def close() {
+    data.close()
+  }
+
+  private def typedData(): TraceAttributes = {
+    val nbOfAttributes = int()
+    val attributes = new TraceAttributes(nbOfAttributes)
+    for (i <- 0 until nbOfAttributes) {
+      val key = name()
+      data.readByte() match {
+        case TraceAttributes.STRING => attributes.put(key, name())
+        case TraceAttributes.LONG => attributes.put(key, unzigzag(varLong()))
+        case _ => attributes.put(key, data.readDouble())
+      }
+    }
+    attributes
+  }
+
+  private def name(): String = {
+    val ref = varLong().toInt
+    if (ref == 0) {
+      val s = string()
+      names += s
+      s
+    } else {
+      names(ref - 1)
+    }
+  }
+
+  private def string(): String = {
+    val bytes = new Array[Byte](varLong().toInt)
+    data.readFully(bytes)
+    new String(bytes, StandardCharsets.UTF_8)
+  }
+
+  private def int(): Int = unzigzag(varLong()).toInt
+
+  private def varLong(): Long = {
+    var result = 0L
+    var shift = 0
+    var b = data.readUnsignedByte()
+    while ((b & 0x80) != 0) {
+      result |= (b & 0x7FL) << shift
+      shift += 7
+      b = data.readUnsignedByte()
+    }
+    result | (b.toLong << shift)
+  }
+}
@@ -0,0 +1,210 @@
+package scheduling.distributed.dvms2.dvms.dvms2
+
+import java.io.{BufferedOutputStream, DataOutputStream, OutputStream}
+import java.nio.charset.StandardCharsets
+
+import scala.collection.mutable
+
+import scheduling.distributed.dvms2.dvms.dvms2.BinaryTraceFormat._
+import scheduling.distributed.dvms2.dvms.dvms2.LoggingProtocol._
+import trace.TraceAttributes
+
+/**
+ * Streaming writer of the binary trace format (see BinaryTraceFormat).
+ */
+class BinaryTraceWriter(out: OutputStream) extends TraceOutput {
+
+  private val data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16))
+
+  /* Interned names and their ids */
+  private val names = new mutable.HashMap[String, Int]()
+
+  /* Bits of the timestamp of the previous record */
+  private var previousTime = 0L
+
+  data.writeInt(MAGIC)
+  data.writeInt(VERSION)
+
+  def append(message: LoggingMessage): Unit = message match {
+
+    case PopState(time, origin, state, value, json, duration) =>
+      header(POP_STATE, time, origin)
+      name(state)
+      name(value)
+      string(json)
+      data.writeDouble(duration)
+
+    case PopTypedState(time, origin, state, value, attributes, duration) =>
+      header(POP_TYPED_STATE, time, origin)
+      name(state)
+      name(value)
+      typedData(attributes)
+      data.writeDouble(duration)
+
+    case PopGroupState(time, origins, state, value, attributes, duration) =>
+      header(POP_GROUP_STATE, time, origins(0))
+      name(state)
+      name(value)
+      int(origins.length - 1)
+      for (i <- 1 until origins.length)
+        name(origins(i))
+      if (attributes == null) {
+        data.writeBoolean(false)
+      } else {
+        data.writeBoolean(true)
+        typedData(attributes)
+      }
+      data.writeDouble(duration)
+
+    case SetVariable(time, origin, variable, value, duration) =>
+      header(SET_VARIABLE, time, origin)
+      name(variable)
+      data.writeDouble(value)
+      data.writeDouble(duration)
+
+    case HasCrashed(time, origin) =>
+      header(HAS_CRASHED, time, origin)
+
+    case ExperimentInformation(time, origin, serverCount, serviceNodeCount, vmCount, algo) =>
+      header(EXPERIMENT_INFORMATION, time, origin)
+      int(serverCount)
+      int(serviceNodeCount)
+      int(vmCount)
+      name(algo)
+
+    case ComputingSomeReconfigurationPlan(time, origin, duration, psize, result) =>
+      header(COMPUTING_RECONFIGURATION_PLAN, time, origin)
+      data.writeDouble(duration)
+      int(psize)
+      name(result)
+
+    case ApplyingSomeReconfigurationPlan(time, origin) =>
+      header(APPLYING_RECONFIGURATION_PLAN, time, origin)
+
+    case ApplicationSomeReconfigurationPlanIsDone(time, origin) =>
+      header(RECONFIGURATION_PLAN_IS_DONE, time, origin)
+
+    case IsBooked(time, origin) =>
+      header(IS_BOOKED, time, origin)
+
+    case IsFree(time, origin) =>
+      header(IS_FREE, time, origin)
+
+    case FirstOutIs(time, origin, firstOut) =>
+      header(FIRST_OUT_IS, time, origin)
+      firstOut match {
+        case Some(node) =>
+          data.writeBoolean(true)
+          name(node)
+        case None =>
+          data.writeBoolean(false)
+      }
+
+    case ForwardingPartition(time, origin, partition, to) =>
+      header(FORWARDING_PARTITION, time, origin)
+      name(partition.initiator)
+      name(partition.leader)
+      int(partition.nodes.size)
+      partition.nodes.foreach(node => name(node))
+      name(to)
+
+    case AskingMigration(time, origin, vm, from, to) =>
+      migration(ASKING_MIGRATION, time, origin, vm, from, to)
+
+    case StartingMigration(time, origin, vm, from, to) =>
+      migration(STARTING_MIGRATION, time, origin, vm, from, to)
+
+    case FinishingMigration(time, origin, vm, from, to, duration) =>
+      migration(FINISHING_MIGRATION, time, origin, vm, from, to)
+      data.writeDouble(duration)
+
+    case AbortingMigration(time, origin, vm, from, to) =>
+      migration(ABORTING_MIGRATION, time, origin, vm, from, to)
+
+    case CurrentLoadIs(time, origin, load) =>
+      header(CURRENT_LOAD_IS, time, origin)
+      data.writeDouble(load)
+
+    case ViolationDetected(time, origin) =>
+      header(VIOLATION_DETECTED, time, origin)
+
+    case UpdateMigrationCount(time, origin, count) =>
+      header(UPDATE_MIGRATION_COUNT, time, origin)
+      int(count)
+
+    case other =>
+      // A new LoggingProtocol message needs its own record type (see BinaryTraceFormat)
+      throw new IllegalArgumentException("No binary record type for the trace message " + other)
+  }
+
+  def endOfBatch() {
+    // Nothing to do, the records are directly encoded in the buffered stream
+  }
+
+  def flush() {
+    data.flush()
+  }
+
+  def close() {
+    data.close()
+  }
+
+  private def header(recordType: Int, time: Double, origin: String) {
+    data.writeByte(recordType)
+    val bits = java.lang.Double.doubleToLongBits(time)
+    varLong(zigzag(bits - previousTime))
+    previousTime = bits
+    name(origin)
+  }
+
+  private def migration(recordType: Int, time: Double, origin: String, vm: String, from: String, to: String) {
+    header(recordType, time, origin)
+    name(vm)
+    name(from)
+    name(to)
+  }
+
+  private def typedData(attributes: TraceAttributes) {
+    int(attributes.size)
+    for (i <- 0 until attributes.size) {
+      name(attributes.getKey(i))
+      val kind = attributes.getKind(i)
+      data.writeByte(kind)
+      kind match {
+        case TraceAttributes.STRING => name(String.valueOf(attributes.getString(i)))
+        case TraceAttributes.LONG => varLong(zigzag(attributes.getLong(i)))
+        case _ => data.writeDouble(attributes.getDouble(i))
+      }
+    }
+  }
+
+  private def name(s: String) {
+    names.get(s) match {
+      case Some(id) =>
+        varLong(id + 1)
+      case None =>
+        varLong(0)
+        string(s)
+        names.put(s, names.size)
+    }
+  }
+
+  private def string(s: String) {
+    val bytes = s.getBytes(StandardCharsets.UTF_8)
+    varLong(bytes.length)
+    data.write(bytes)
+  }
+
+  private def int(v: Int) {
+    varLong(zigzag(v))
+  }
+
+  private def varLong(v: Long) {
+    var x = v
+    while ((x & ~0x7FL) != 0) {
+      data.writeByte(((x & 0x7F) | 0x80).toInt)
+      x >>>= 7
+    }
+    data.writeByte(x.toInt)
+  }
+}
@@ -0,0 +1,157 @@
+package scheduling.distributed.dvms2.dvms.dvms2
+
+import java.util.Locale
+
+import scheduling.distributed.dvms2.dvms.dvms2.LoggingProtocol._
+import trace.TraceAttributes
+
+/**
+ * JSON format of the trace (events.json): one json object per line and per message.
+ * It is used by the LoggingActor (simulator.trace.format = json) and by the BinaryTraceConverter.
+ */
+object JsonTraceFormat {
+
+  /* Quickly check whether the value is a json object or not (in that case, it is written as a string) */
+  private def appendJson(sb: java.lang.StringBuilder, value: String) {
+    (value.headOption, value.lastOption) match {
+      case (Some('{'), Some('}')) => sb.append(value)
+      case _ => sb.append(" \"").append(value).append("\" ")
+    }
+  }
+
+  /**
+   * Format one message (one json object per line) at the end of sb
+   */
+  def append(sb: java.lang.StringBuilder, message: LoggingMessage): Unit = message match {
+
+    case PopState(time: Double, origin: String, state: String, value: String, data: String, duration: Double) =>
+      sb.append("{\"event\": \"trace_event\", \"origin\": \"").append(origin)
+        .append("\", \"state_name\": \"").append(state)
+        .append("\", \"time\": \"").append(time)
+        .append("\", \"value\": ")
+      appendJson(sb, value)
+      sb.append(", \"data\": ")
+      appendJson(sb, data)
+      sb.append(", \"duration\": ").append(duration).append("}\n")
+
+    case PopTypedState(time: Double, origin: String, state: String, value: String, data: TraceAttributes, duration: Double) =>
+      sb.append("{\"event\": \"trace_event\", \"origin\": \"").append(origin)
+        .append("\", \"state_name\": \"").append(state)
+        .append("\", \"time\": \"").append(time)
+        .append("\", \"value\": ")
+      appendJson(sb, value)
+      sb.append(", \"data\": ")
+      data.appendJson(sb)
+      sb.append(", \"duration\": ").append(duration).append("}\n")
+
+    case group: PopGroupState =>
+      // events.json keeps one line per host (the group is expanded)
+      group.expand.foreach(message => append(sb, message))
+
+    case SetVariable(time: Double, origin: String, variable: String, value: Double, duration: Double) =>
+      sb.append("{\"event\": \"trace_event\", \"origin\": \"").append(origin)
+        .append("\", \"state_name\": \"VARIABLE\", \"time\": \"").append(time)
+        .append("\", \"value\": ")
+      appendJson(sb, variable)
+      sb.append(", \"data\": ").append("{\"value\": %f}".formatLocal(Locale.US, value))
+        .append(", \"duration\": ").append(duration).append("}\n")
+
+    case HasCrashed(time: Double, origin: String) =>
+      sb.append("{\"event\": \"crash_event\", \"origin\": \"").append(origin).append("\"}\n")
+
+    case ExperimentInformation(time: Double, origin: String, serverCount: Int, serviceNodeCount:Int, vmCount: Int, algo: String) =>
+      sb.append("{\"event\": \"start_experiment\", \"origin\": \"").append(origin)
+        .append("\", \"time\": \"").append(time)
+        .append("\", \"server_count\": ").append(serverCount)
+        .append(", \"service_node_count\": ").append(serviceNodeCount)
+        .append(", \"vm_count\": ").append(vmCount)
+        .append(", \"algo\": \"").append(algo).append("\"}\n")
+
+    case ComputingSomeReconfigurationPlan(time: Double, origin: String, duration: Double, psize: Int, result: String) =>
+      sb.append("{\"event\": \"computing_reconfiguration_plan\", \"origin\": \"").append(origin)
+        .append("\", \"time\": \"").append(time)
+        .append("\", \"psize\": ").append(psize)
+        .append(", \"duration\": ").append(duration)
+        .append(", \"state\": \"").append(result).append("\"}\n")
+
+    case ApplyingSomeReconfigurationPlan(time: Double, origin: String) =>
+      appendSimple(sb, "applying_reconfiguration_plan", origin, time)
+
+    case ApplicationSomeReconfigurationPlanIsDone(time: Double, origin: String) =>
+      appendSimple(sb, "applying_reconfiguration_plan_is_done", origin, time)
+
+    case IsBooked(time: Double, origin: String) =>
+      appendSimple(sb, "is_booked", origin, time)
+
+    case IsFree(time: Double, origin: String) =>
+      appendSimple(sb, "is_free", origin, time)
+
+    case FirstOutIs(time: Double, origin: String, firstOut: Option[String]) =>
+      sb.append("{\"event\": \"first_out_is\", \"origin\": \"").append(origin)
+        .append("\", \"time\": \"").append(time)
+        .append("\",  \"first_out\": \"").append(firstOut.getOrElse(""))
+        .append("\", \"first_out_defined\": ").append(firstOut.isDefined).append(" }\n")
+
+    case ForwardingPartition(time: Double, origin: String, partition: LoggingPartition, to: String) =>
+      sb.append("{\"event\": \"forwarding_partition\", \"origin\": \"").append(origin)
+        .append("\", \"time\": \"").append(time)
+        .append("\",  \"initiator\": \"").append(partition.initiator)
+        .append("\", \"leader\": \"").append(partition.initiator)
+        .append("\", \"nodes\": [")
+      var first = true
+      for (node <- partition.nodes) {
+        if (!first) sb.append(',')
+        sb.append(" \"").append(node).append("\" ")
+        first = false
+      }
+      sb.append("] , \"to\": \"").append(to).append("\"}\n")
+
+    case AskingMigration(time: Double, origin: String, vm: String, from: String, to: String) =>
+      appendMigration(sb, "ask_migration", origin, time, vm, from, to)
+      sb.append("}\n")
+
+    case StartingMigration(time: Double, origin: String, vm: String, from: String, to: String) =>
+      appendMigration(sb, "start_migration", origin, time, vm, from, to)
+      sb.append("}\n")
+
+    case FinishingMigration(time: Double, origin: String, vm: String, from: String, to: String, duration: Double) =>
+      appendMigration(sb, "finish_migration", origin, time, vm, from, to)
+      sb.append(", \"duration\": ").append(duration).append("}\n")
+
+    case AbortingMigration(time: Double, origin: String, vm: String, from: String, to: String) =>
+      appendMigration(sb, "abort_migration", origin, time, vm, from, to)
+      sb.append("}\n")
+
+    case CurrentLoadIs(time: Double, origin: String, load: Double) =>
+      sb.append("{\"event\": \"cpu_load\", \"origin\": \"").append(origin)
+        .append("\", \"time\": \"").append(time)
+        .append("\",  \"value\": \"").append(load).append("\"}\n")
+
+    case ViolationDetected(time: Double, origin: String) =>
+      appendSimple(sb, "overload", origin, time)
+
+    case UpdateMigrationCount(time: Double, origin: String, count: Int) =>
+      sb.append("{\"event\": \"migration_count\", \"origin\": \"").append(origin)
+        .append("\", \"time\": \"").append(time)
+        .append("\", \"value\": \"").append(count).append("\"}\n")
+
+    case _ =>
+  }
+
+  /* {"event": "<event>", "origin": "<origin>", "time": "<time>"} */
+  private def appendSimple(sb: java.lang.StringBuilder, event: String, origin: String, time: Double) {
+    sb.append("{\"event\": \"").append(event)
+      .append("\", \"origin\": \"").append(origin)
+      .append("\", \"time\": \"").append(time).append("\"}\n")
+  }
+
+  /* Common fields of the migration events (the closing brace is appended by the caller) */
+  private def appendMigration(sb: java.lang.StringBuilder, event: String, origin: String, time: Double, vm: String, from: String, to: String) {
+    sb.append("{\"event\": \"").append(event)
+      .append("\", \"origin\": \"").append(origin)
+      .append("\", \"time\": \"").append(time)
+      .append("\",  \"vm\": \"").append(vm)
+      .append("\", \"from\": \"").append(from)
+      .append("\",  \"to\": \"").append(to).append('"')
+  }
+}
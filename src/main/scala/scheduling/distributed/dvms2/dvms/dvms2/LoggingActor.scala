@@ -20,109 +20,115 @@ package scheduling.distributed.dvms2.dvms.dvms2
  * ============================================================ */
 
 
-import java.io.{FileWriter, BufferedWriter, File, PrintWriter}
-import scheduling.distributed.dvms2.dvms.dvms2.LoggingProtocol._
-
-
+import java.io.File
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.LockSupport
+
+import configuration.SimulatorProperties
+import simulation.OutputFiles
+
+
+/**
+ * Writer of the trace, either events.json (see JsonTraceFormat) or events.bin (see BinaryTraceFormat) according to
+ * simulator.trace.format.
+ * The callers (i.e. the simulation) only put the messages in a lock-free ring buffer (see LoggingRingBuffer). A
+ * dedicated background thread drains the buffer by batches and encodes the records (see TraceOutput), so that the
+ * trace I/O does not compete with the simulation.
+ * When the buffer is full, the caller either waits for the writer or drops the message (see
+ * simulator.trace.backpressure). close() drains the buffer completely before closing the file.
+ * If the writer fails (e.g. I/O error), the failure is reported on the standard error and the next messages are
+ * dropped (whatever the backpressure policy), so that the simulation never waits for a dead writer.
+ */
 object LoggingActor {
 
-  val file = new File("events.json")
-  val writer = new PrintWriter(new BufferedWriter(new FileWriter(file)))
-
-
-  def close(){
-    writer.flush()
-    writer.close()
+  /* Maximal number of records formatted before being handed to the writer */
+  private val BATCH_SIZE = 4096
+
+  /* How long the background thread sleeps when the buffer is empty */
+  private val IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1)
+
+  private val binary = SimulatorProperties.getTraceFormat == "binary"
+
+  /* Name of the trace file, followed by .gz when the outputs are compressed (see OutputFiles) */
+  private val fileName = if (binary) "events.bin" else "events.json"
+  val file = new File(OutputFiles.name(fileName))
+  private val output: TraceOutput =
+    if (binary) new BinaryTraceWriter(OutputFiles.create(fileName))
+    else new JsonTraceOutput(OutputFiles.create(fileName), BATCH_SIZE * 128)
+
+  private val buffer = new LoggingRingBuffer[LoggingMessage](SimulatorProperties.getTraceBufferSize)
+  private val dropWhenFull = SimulatorProperties.getTraceBackpressure == "drop"
+  private val dropped = new AtomicLong(0)
+
+  @volatile private var closed = false
+
+  /* The failure of the background writer (null while it works) */
+  @volatile private var failure: Throwable = null
+
+  private val backgroundWriter = new Thread("LoggingActor-writer") {
+    override def run() {
+      val encode = (message: LoggingMessage) => output.append(message)
+      var pending = false // Whether some records have been written since the last flush
+      try {
+        while (!closed || !buffer.isEmpty) {
+          val n = buffer.drain(encode, BATCH_SIZE)
+          if (n > 0) {
+            output.endOfBatch()
+            pending = true
+          } else {
+            if (pending) {
+              output.flush() // Idle: make the records visible
+              pending = false
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS)
+          }
+        }
+        output.flush()
+      } catch {
+        case e: Throwable =>
+          failure = e
+          System.err.println("LoggingActor: the trace writer has failed, the next records are dropped (" + e + ")")
+      }
+    }
   }
+  backgroundWriter.setDaemon(true)
+  backgroundWriter.start()
 
-  def write(message: LoggingMessage) = message match {
-
-
-    case PopState(time: Double, origin: String, state: String, value: String, data: String, duration: Double) =>
 
-      /* Quickly check wether value and data are json objects or not */
-      val valueJsonEscaped = (value.headOption, value.lastOption) match {
-        case (Some('{'), Some('}')) => value
-        case _ => s""" "$value" """
-      }
-
-      val dataJsonEscaped = (data.headOption, data.lastOption) match {
-        case (Some('{'), Some('}')) => data
-        case _ => s""" "$data" """
+  def close(){
+    if (!closed) {
+      closed = true
+      LockSupport.unpark(backgroundWriter)
+      backgroundWriter.join()
+      try {
+        output.close()
+      } catch {
+        case e: java.io.IOException if failure != null => // The writer has already failed on the same file
       }
+      if (failure != null)
+        System.err.println("LoggingActor: " + file + " is incomplete, the trace writer has failed (" + failure + ")")
+      if (dropped.get() > 0)
+        System.err.println("LoggingActor: " + dropped.get() + " records have been dropped (trace buffer full or writer failure)")
+    }
+  }
 
-      writer.write( s"""{"event": "trace_event", "origin": "$origin", "state_name": "$state", "time": "$time", "value": $valueJsonEscaped, "data": $dataJsonEscaped, "duration": $duration}\n""")
-//      writer.flush()
-
-    case HasCrashed(time: Double, origin: String) =>
-      writer.write( s"""{"event": "crash_event", "origin": "$origin"}\n""")
-//      writer.flush()
-
-    case ExperimentInformation(time: Double, origin: String, serverCount: Int, serviceNodeCount:Int, vmCount: Int, algo: String) =>
-      writer.write( s"""{"event": "start_experiment", "origin": "$origin", "time": "$time", "server_count": $serverCount, "service_node_count": $serviceNodeCount, "vm_count": $vmCount, "algo": "$algo"}\n""")
-
-    case ComputingSomeReconfigurationPlan(time: Double, origin: String, duration: Double, psize: Int, result: String) =>
-      writer.write( s"""{"event": "computing_reconfiguration_plan", "origin": "$origin", "time": "$time", "psize": $psize, "duration": $duration, "state": "$result"}\n""")
-//      writer.flush()
-
-    case ApplyingSomeReconfigurationPlan(time: Double, origin: String) =>
-      writer.write( s"""{"event": "applying_reconfiguration_plan", "origin": "$origin", "time": "$time"}\n""")
-//      writer.flush()
-
-    case ApplicationSomeReconfigurationPlanIsDone(time: Double, origin: String) =>
-      writer.write( s"""{"event": "applying_reconfiguration_plan_is_done", "origin": "$origin", "time": "$time"}\n""")
-
-    case IsBooked(time: Double, origin: String) =>
-      writer.write( s"""{"event": "is_booked", "origin": "$origin", "time": "$time"}\n""")
-//      writer.flush()
-
-    case IsFree(time: Double, origin: String) =>
-      writer.write( s"""{"event": "is_free", "origin": "$origin", "time": "$time"}\n""")
-//      writer.flush()
-
-    case FirstOutIs(time: Double, origin: String, firstOut: Option[String]) =>
-      firstOut match {
-        case Some(node) =>
-          writer.write( s"""{"event": "first_out_is", "origin": "$origin", "time": "$time",  "first_out": "${node}", "first_out_defined": true }\n""")
-        case None =>
-          writer.write( s"""{"event": "first_out_is", "origin": "$origin", "time": "$time",  "first_out": "", "first_out_defined": false }\n""")
+  def write(message: LoggingMessage) {
+    if (closed)
+      return // The trace has been closed, the message is ignored
+    if (failure != null) {
+      dropped.incrementAndGet() // The writer is dead, nobody would ever consume the message
+      return
+    }
+    while (!buffer.offer(message)) {
+      if (dropWhenFull || failure != null) {
+        dropped.incrementAndGet()
+        return
       }
-//      writer.flush()
-
-    case ForwardingPartition(time: Double, origin: String, partition: LoggingPartition, to: String) =>
-      val partitionNodesAsToJsonArray: String = partition.nodes.map(s => s""" "$s" """).mkString("[", ",", "]")
-      writer.write( s"""{"event": "forwarding_partition", "origin": "$origin", "time": "$time",  "initiator": "${partition.initiator}", "leader": "${partition.initiator}", "nodes": ${partitionNodesAsToJsonArray} , "to": "$to"}\n""")
-      writer.flush()
-
-    case AskingMigration(time: Double, origin: String, vm: String, from: String, to: String) =>
-      writer.write( s"""{"event": "ask_migration", "origin": "$origin", "time": "$time",  "vm": "$vm", "from": "$from",  "to": "$to"}\n""")
-//      writer.flush()
-
-    case StartingMigration(time: Double, origin: String, vm: String, from: String, to: String) =>
-      writer.write( s"""{"event": "start_migration", "origin": "$origin", "time": "$time",  "vm": "$vm", "from": "$from",  "to": "$to"}\n""")
-//      writer.flush()
-
-    case FinishingMigration(time: Double, origin: String, vm: String, from: String, to: String, duration: Double) =>
-      writer.write( s"""{"event": "finish_migration", "origin": "$origin", "time": "$time",  "vm": "$vm", "from": "$from",  "to": "$to", "duration": $duration}\n""")
-//      writer.flush()
-
-    case AbortingMigration(time: Double, origin: String, vm: String, from: String, to: String) =>
-      writer.write( s"""{"event": "abort_migration", "origin": "$origin", "time": "$time",  "vm": "$vm", "from": "$from",  "to": "$to"}\n""")
-//      writer.flush()
-
-    case CurrentLoadIs(time: Double, origin: String, load: Double) =>
-      writer.write( s"""{"event": "cpu_load", "origin": "$origin", "time": "$time",  "value": "$load"}\n""")
-//      writer.flush()
-
-    case ViolationDetected(time: Double, origin: String) =>
-      writer.write( s"""{"event": "overload", "origin": "$origin", "time": "$time"}\n""")
-//      writer.flush()
-
-    case UpdateMigrationCount(time: Double, origin: String, count: Int) =>
-      writer.write( s"""{"event": "migration_count", "origin": "$origin", "time": "$time", "value": "$count"}\n""")
-//      writer.flush()
-
-    case _ =>
+      // Backpressure: wait for the background writer to release some slots
+      LockSupport.unpark(backgroundWriter)
+      Thread.`yield`()
+    }
   }
 
 }
@@ -1,5 +1,7 @@
 package scheduling.distributed.dvms2.dvms.dvms2
 
+import trace.TraceAttributes
+
 /**
  * Created by jonathan on 24/11/14.
  */
@@ -7,6 +9,24 @@ object LoggingProtocol {
 
   case class PopState(time: Double, origin: String, state: String, value: String, data: String, duration: Double) extends LoggingMessage
 
+  case class PopTypedState(time: Double, origin: String, state: String, value: String, data: TraceAttributes, duration: Double) extends LoggingMessage
+
+  /**
+   * The same state popped by a group of hosts (see Trace.groupSetState): one message for the whole group, data may be
+   * null (no data).
+   */
+  case class PopGroupState(time: Double, origins: Array[String], state: String, value: String, data: TraceAttributes, duration: Double) extends LoggingMessage {
+
+    /**
+     * @return the equivalent per-host messages (one PopState/PopTypedState per origin)
+     */
+    def expand: Seq[LoggingMessage] = origins.toSeq.map(origin =>
+      if (data == null) PopState(time, origin, state, value, "", duration)
+      else PopTypedState(time, origin, state, value, data, duration))
+  }
+
+  case class SetVariable(time: Double, origin: String, variable: String, value: Double, duration: Double) extends LoggingMessage
+
   case class ExperimentInformation(time: Double, origin: String, serverCount: Int, serviceNodeCount:Int, vmCount: Int, algo: String) extends LoggingMessage
 
   case class ComputingSomeReconfigurationPlan(time: Double, origin: String, duration: Double, psize: Int, result: String) extends LoggingMessage
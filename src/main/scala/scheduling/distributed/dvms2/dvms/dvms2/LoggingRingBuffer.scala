@@ -0,0 +1,88 @@
+package scheduling.distributed.dvms2.dvms.dvms2
+
+import java.util.concurrent.atomic.{AtomicLong, AtomicLongArray, AtomicReferenceArray}
+
+/**
+ * Bounded lock-free ring buffer used to hand the logging records over to the background writer of the LoggingActor.
+ * Several threads may offer records concurrently, a single thread (the writer) polls them.
+ *
+ * Each slot carries a sequence number: a slot can be filled by the producer that reserved the position `pos` when its
+ * sequence is `pos`, and it can be consumed when its sequence is `pos + 1`. The consumer then sets it to
+ * `pos + capacity` (i.e. the next position that maps to this slot).
+ *
+ * @param requestedCapacity the minimal number of records (the capacity is rounded up to a power of two)
+ */
+class LoggingRingBuffer[T <: AnyRef](requestedCapacity: Int) {
+
+  val capacity: Int = {
+    var c = 2
+    while (c < requestedCapacity) c <<= 1
+    c
+  }
+
+  private val mask = capacity - 1
+  private val slots = new AtomicReferenceArray[T](capacity)
+  private val sequences = new AtomicLongArray(capacity)
+  for (i <- 0 until capacity) sequences.set(i, i)
+
+  /* Next position to fill (shared by the producers) */
+  private val tail = new AtomicLong(0)
+
+  /* Next position to consume (only the consumer updates it) */
+  @volatile private var head = 0L
+
+  /**
+   * Add a record at the end of the buffer
+   * @return false if the buffer is full (the record has not been added)
+   */
+  def offer(record: T): Boolean = {
+    while (true) {
+      val pos = tail.get()
+      val index = (pos & mask).toInt
+      val diff = sequences.get(index) - pos
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          slots.lazySet(index, record)
+          sequences.set(index, pos + 1) // Publish the record
+          return true
+        }
+      } else if (diff < 0) {
+        return false // The slot has not been consumed yet, the buffer is full
+      }
+      // Otherwise another producer reserved this position, retry with the next one
+    }
+    false
+  }
+
+  /**
+   * Remove up to max records from the beginning of the buffer (consumer side only).
+   * @param consume invoked on each record, in the order in which they have been offered
+   * @return the number of records that have been consumed
+   */
+  def drain(consume: T => Unit, max: Int): Int = {
+    var pos = head
+    var n = 0
+    while (n < max) {
+      val index = (pos & mask).toInt
+      if (sequences.get(index) != pos + 1)
+        return finishDrain(pos, n) // Empty (or the next record is not published yet)
+      val record = slots.get(index)
+      slots.lazySet(index, null.asInstanceOf[T])
+      sequences.set(index, pos + capacity) // Release the slot
+      consume(record)
+      pos += 1
+      n += 1
+    }
+    finishDrain(pos, n)
+  }
+
+  private def finishDrain(pos: Long, n: Int): Int = {
+    head = pos
+    n
+  }
+
+  /**
+   * @return whether there is no record in the buffer (exact only when the producers are idle)
+   */
+  def isEmpty: Boolean = tail.get() == head
+}
@@ -0,0 +1,51 @@
+package scheduling.distributed.dvms2.dvms.dvms2
+
+import java.io.{BufferedWriter, OutputStream, OutputStreamWriter}
+import java.nio.charset.StandardCharsets
+
+/**
+ * Output of the trace written by the background thread of the LoggingActor.
+ * The messages are appended by batches: endOfBatch() is invoked after each batch, flush() when the buffer is idle.
+ */
+trait TraceOutput {
+
+  def append(message: LoggingMessage)
+
+  def endOfBatch()
+
+  def flush()
+
+  def close()
+}
+
+/**
+ * JSON trace (events.json, see JsonTraceFormat): the records of a batch are formatted into a pre-sized StringBuilder
+ * that is written at once at the end of the batch.
+ */
+class JsonTraceOutput(out: OutputStream, initialCapacity: Int) extends TraceOutput {
+
+  private val writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16)
+  private val sb = new java.lang.StringBuilder(initialCapacity)
+  private var chars = new Array[Char](sb.capacity())
+
+  def append(message: LoggingMessage) {
+    JsonTraceFormat.append(sb, message)
+  }
+
+  def endOfBatch() {
+    if (chars.length < sb.length())
+      chars = new Array[Char](sb.capacity())
+    sb.getChars(0, sb.length(), chars, 0)
+    writer.write(chars, 0, sb.length())
+    sb.setLength(0)
+  }
+
+  def flush() {
+    writer.flush()
+  }
+
+  def close() {
+    endOfBatch()
+    writer.close()
+  }
+}
@@ -35,6 +35,9 @@ class EntropyActor(applicationRef: SGNodeRef) extends SGActor(applicationRef) {
   val planner: ChocoCustomRP = new ChocoCustomRP(new MockDurationEvaluator(2, 5, 1, 1, 7, 14, 7, 2, 4))
   planner.setTimeLimit(3)
 
+  /* The scheduler is reused from one computation to the next one (see SchedulerBuilder.reuse) */
+  private var scheduler: Scheduler = null
+
 
   def computeReconfigurationPlan(nodes: List[SGNodeRef]): ReconfigurationResult = {
     val hostsToCheck: util.LinkedList[XHost] = new util.LinkedList[XHost]
@@ -42,7 +45,7 @@ class EntropyActor(applicationRef: SGNodeRef) extends SGActor(applicationRef) {
       hostsToCheck.add(SimulatorManager.getXHostByName(node.getName))
     }
 
-    val scheduler: Scheduler = SchedulerBuilder.getInstance().build(hostsToCheck)
+    scheduler = SchedulerBuilder.getInstance().reuse(scheduler, hostsToCheck)
     val schedulerRes: SchedulerResult = scheduler.checkAndReconfigure(hostsToCheck)
     schedulerRes.state match {
       case SchedulerResult.State.SUCCESS => ReconfigurationSolution(new java.util.HashMap[String, java.util.List[ReconfigurationAction]]())
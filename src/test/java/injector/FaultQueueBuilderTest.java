@@ -0,0 +1,120 @@
+package injector;
+
+import configuration.XHost;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+
+/**
+ * Check that FaultQueueBuilder produces the same fault queue as the former generation (a LinkedList scanned backwards
+ * to postpone the recoveries, then sorted by timestamp).
+ * The hosts are fake XHosts (no MSG host), so the check does not require a simulation.
+ */
+public class FaultQueueBuilderTest {
+
+    private static class FakeHost extends XHost {
+        FakeHost() {
+            super(null, 0, 1, 100, 1000, "127.0.0.1");
+        }
+
+        @Override
+        public String getName() {
+            return "fake-" + System.identityHashCode(this);
+        }
+    }
+
+    public static void main(String[] args) {
+        XHost[] hosts = new XHost[20];
+        for (int i = 0; i < hosts.length; i++)
+            hosts[i] = new FakeHost();
+
+        for (long seed = 0; seed < 50; seed++) {
+            // Same loop as Injector.generateFaultQueue (chronological crashes, linear merge)
+            check("exponential, seed " + seed, hosts, seed, 1);
+            // Two phases on disjoint hosts, the clock is restarted as in Injector.generateSnoozeFaultQueue (sort)
+            check("two phases, seed " + seed, hosts, seed, 2);
+        }
+        System.out.println("FaultQueueBuilderTest: OK");
+    }
+
+    private static void check(String name, XHost[] hosts, long seed, int nbOfPhases) {
+        long duration = 3600;
+        double crashDuration = 300;
+        double lambda = hosts.length / 600.0;
+
+        LinkedList<FaultEvent> reference = new LinkedList<FaultEvent>();
+        FaultQueueBuilder builder = new FaultQueueBuilder();
+        Random rand = new Random(seed);
+        long id = 0;
+        for (int phase = 0; phase < nbOfPhases; phase++) {
+            int first = phase * hosts.length / nbOfPhases;
+            int nbOfHosts = hosts.length / nbOfPhases;
+            double currentTime = exponential(rand, lambda);
+            while (currentTime < duration) {
+                XHost host = hosts[first + rand.nextInt(nbOfHosts)];
+                boolean stillOff = ifStillOffUpdate(host, reference, currentTime);
+                if (stillOff != builder.cancelPendingRecovery(host, currentTime))
+                    fail(name, "the host " + host.getName() + " is not in the same state at " + currentTime);
+                if (!stillOff) {
+                    reference.add(new FaultEvent(id, currentTime, host, false));
+                    builder.addCrash(new FaultEvent(id++, currentTime, host, false));
+                }
+                if (currentTime + crashDuration < duration) {
+                    reference.add(new FaultEvent(id, currentTime + crashDuration, host, true));
+                    builder.addRecovery(new FaultEvent(id++, currentTime + crashDuration, host, true));
+                }
+                currentTime += exponential(rand, lambda);
+            }
+        }
+        Collections.sort(reference, new Comparator<FaultEvent>() {
+            @Override
+            public int compare(FaultEvent o1, FaultEvent o2) {
+                return Double.compare(o1.getTime(), o2.getTime());
+            }
+        });
+
+        List<FaultEvent> queue = builder.build();
+        if (queue.size() != reference.size() || builder.size() != reference.size())
+            fail(name, queue.size() + " events instead of " + reference.size());
+        for (int i = 0; i < queue.size(); i++) {
+            FaultEvent expected = reference.get(i);
+            FaultEvent actual = queue.get(i);
+            if (actual.getId() != expected.getId() || actual.getTime() != expected.getTime()
+                    || actual.getHost() != expected.getHost() || actual.getState() != expected.getState())
+                fail(name, "event " + i + " is " + actual + " instead of " + expected);
+        }
+    }
+
+    /* Same law as Injector.exponentialDis (the Injector class requires the MSG natives) */
+    private static double exponential(Random rand, double lambda) {
+        return -Math.log(1 - rand.nextDouble()) / lambda;
+    }
+
+    /**
+     * The former lookup of Injector: if the host is still off at currentTime, its next recovery is removed
+     */
+    private static boolean ifStillOffUpdate(XHost tmp, LinkedList<FaultEvent> queue, double currentTime) {
+        ListIterator<FaultEvent> iterator = queue.listIterator(queue.size());
+        while (iterator.hasPrevious()) {
+            FaultEvent evt = iterator.previous();
+            if (evt.getState()) {
+                if (evt.getTime() >= currentTime) {
+                    if (evt.getHost() == tmp) {
+                        iterator.remove();
+                        return true;
+                    }
+                } else
+                    break;
+            }
+        }
+        return false;
+    }
+
+    private static void fail(String name, String message) {
+        throw new AssertionError(name + ": " + message);
+    }
+}
@@ -0,0 +1,55 @@
+package injector;
+
+import configuration.XVM;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Check that the parallel load generation (loadinjector.generation = parallel) produces the same sequence of events
+ * whatever the number of threads. The VMs are only given by their number of cores (several chunks of VMs, see
+ * ParallelLoadEventGenerator.CHUNK_SIZE), so the check does not require a simulation.
+ */
+public class ParallelLoadEventGeneratorTest {
+
+    private static final int NB_OF_VMS = 5000;
+    private static final long DURATION = 600;
+    private static final int INJECTION_PERIOD = 10;
+
+    public static void main(String[] args) {
+        int[] cores = new int[NB_OF_VMS];
+        for (int i = 0; i < NB_OF_VMS; i++)
+            cores[i] = 1 + i % 4;
+
+        List<ParallelLoadEventGenerator.PendingEvent> reference = generate(cores, 1);
+        if (reference.isEmpty())
+            throw new AssertionError("no event has been generated");
+        for (int i = 1; i < reference.size(); i++) {
+            if (reference.get(i).time < reference.get(i - 1).time)
+                throw new AssertionError("event " + i + " is not sorted by timestamp");
+        }
+
+        for (int nbOfThreads : new int[]{2, 3, 8}) {
+            List<ParallelLoadEventGenerator.PendingEvent> events = generate(cores, nbOfThreads);
+            if (events.size() != reference.size())
+                throw new AssertionError(nbOfThreads + " threads: " + events.size() + " events instead of " + reference.size());
+            for (int i = 0; i < events.size(); i++) {
+                ParallelLoadEventGenerator.PendingEvent expected = reference.get(i);
+                ParallelLoadEventGenerator.PendingEvent actual = events.get(i);
+                if (actual.time != expected.time || actual.vm != expected.vm || actual.load != expected.load)
+                    throw new AssertionError(nbOfThreads + " threads: event " + i + " differs (VM " + actual.vm +
+                            " at " + actual.time + " instead of VM " + expected.vm + " at " + expected.time + ")");
+            }
+        }
+        System.out.println("ParallelLoadEventGeneratorTest: OK (" + reference.size() + " events)");
+    }
+
+    private static List<ParallelLoadEventGenerator.PendingEvent> generate(int[] cores, int nbOfThreads) {
+        ParallelLoadEventGenerator generator =
+                new ParallelLoadEventGenerator(new XVM[cores.length], cores, DURATION, INJECTION_PERIOD, nbOfThreads);
+        List<ParallelLoadEventGenerator.PendingEvent> events = new ArrayList<ParallelLoadEventGenerator.PendingEvent>();
+        while (generator.hasNext())
+            events.add(generator.nextPending());
+        return events;
+    }
+}
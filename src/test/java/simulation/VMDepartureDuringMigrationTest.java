@@ -0,0 +1,73 @@
+package simulation;
+
+import configuration.XHost;
+import configuration.XVM;
+import injector.VMArrivalEvent;
+import injector.VMDepartureEvent;
+import org.simgrid.msg.Host;
+import org.simgrid.msg.Msg;
+import org.simgrid.msg.MsgException;
+import org.simgrid.msg.Process;
+import trace.Trace;
+
+/**
+ * Check that a VM whose departure occurs while it is being migrated is destroyed at the end of the migration
+ * (SimulatorManager.destroyVM cannot stop a migrating VM, XHost.migrate completes the departure).
+ * Contrary to the other checks, it runs a small simulation and hence requires the MSG natives.
+ * Usage: VMDepartureDuringMigrationTest [platform file] (config/cluster_platform.xml by default)
+ */
+public class VMDepartureDuringMigrationTest {
+
+    private static VMArrivalEvent arrival = new VMArrivalEvent(0, 0, 0, 0, 50);
+
+    private static int migrationResult = Integer.MIN_VALUE;
+
+    private static boolean destroyedDuringMigration = true;
+
+    public static void main(String[] args) throws MsgException {
+        Msg.init(args);
+        Msg.createEnvironment(args.length > 0 ? args[0] : "config/cluster_platform.xml");
+        SimulatorManager.initHosts(2, 1);
+        Trace.hostStateDeclare("PM");
+        Trace.hostVariableDeclare("LOAD");
+        Trace.hostVariableDeclare("NB_VM");
+
+        new Process(Host.getByName("node2"), "departure") {
+            @Override
+            public void main(String[] strings) throws MsgException {
+                arrival.play();
+                final XVM vm = arrival.getVm();
+                if (vm == null)
+                    throw new AssertionError("the VM has been rejected");
+                final XHost source = vm.getLocation();
+                final XHost dest = SimulatorManager.getXHostByName(source.getName().equals("node0") ? "node1" : "node0");
+                new Process(Host.getByName("node2"), "migration") {
+                    @Override
+                    public void main(String[] strings) {
+                        migrationResult = source.migrate(vm.getName(), dest);
+                    }
+                }.start();
+
+                // The departure lands while the memory of the VM is being transferred
+                waitFor(0.01);
+                if (!vm.isMigrating())
+                    throw new AssertionError("the migration is already over, the departure does not overlap it");
+                new VMDepartureEvent(1, Msg.getClock(), arrival).play();
+                destroyedDuringMigration = vm.isDestroyed();
+            }
+        }.start();
+
+        Msg.run();
+
+        XVM vm = arrival.getVm();
+        if (destroyedDuringMigration)
+            throw new AssertionError("the VM has been destroyed during its migration");
+        if (migrationResult != 0)
+            throw new AssertionError("the migration returned " + migrationResult);
+        if (!vm.isDestroyed() || vm.isDestroyPending())
+            throw new AssertionError("the VM has not been destroyed at the end of its migration");
+        if (SimulatorManager.getSGVMs().contains(vm))
+            throw new AssertionError("the VM is still known by the SimulatorManager");
+        System.out.println("VMDepartureDuringMigrationTest: OK");
+    }
+}
@@ -0,0 +1,80 @@
+package scheduling.distributed.dvms2.dvms.dvms2
+
+import java.io.{ByteArrayInputStream, ByteArrayOutputStream}
+import java.util.Arrays
+
+import scheduling.distributed.dvms2.dvms.dvms2.LoggingProtocol._
+import trace.TraceAttributes
+
+/**
+ * Check the round trip of the binary trace: the JSON trace converted from events.bin (BinaryTraceWriter, then
+ * BinaryTraceReader, as BinaryTraceConverter does) must be identical, byte for byte, to the JSON trace written
+ * directly (simulator.trace.format = json). Every record type is written, with repeated names (interning), repeated
+ * and decreasing timestamps (delta encoding) and non-ASCII strings.
+ */
+object BinaryTraceTest {
+
+  private def messages: Seq[LoggingMessage] = {
+    val attributes = new TraceAttributes().put("vm", "vm-1").put("count", 42L).put("ratio", 0.25)
+    Seq(
+      ExperimentInformation(0.0, "node20", 20, 1, 200, "centralized"),
+      PopState(0.0, "node0", "PM", "normal", "", 12.5),
+      PopState(1.5, "node0", "PM", "violation", "{\"load\": 120}", 3.0),
+      PopTypedState(1.5, "node1", "SERVICE", "compute", attributes, 0.75),
+      PopTypedState(1.25, "node1", "SERVICE", "compute", new TraceAttributes(), 0.0),
+      PopGroupState(2.0, Array("node0", "node1", "node2"), "SERVICE", "booked", null, 1.0),
+      PopGroupState(2.0, Array("node3"), "SERVICE", "reconfigure", attributes, 4.0),
+      SetVariable(3.0, "node0", "LOAD", 87.5, 1.5),
+      SetVariable(3.0, "node20", "NB_MIG", 1, 0.0),
+      HasCrashed(4.0, "node3"),
+      ComputingSomeReconfigurationPlan(5.0, "node20", 0.125, 20, "SUCCESS"),
+      ApplyingSomeReconfigurationPlan(5.125, "node20"),
+      ApplicationSomeReconfigurationPlanIsDone(9.0, "node20"),
+      IsBooked(10.0, "node4"),
+      IsFree(11.0, "node4"),
+      CurrentLoadIs(12.0, "node5", 33.3),
+      ViolationDetected(13.0, "node5"),
+      UpdateMigrationCount(14.0, "node20", 7),
+      FirstOutIs(15.0, "node6", Some("node7")),
+      FirstOutIs(15.0, "node6", None),
+      ForwardingPartition(16.0, "node6", LoggingPartition("node6", "node7", List("node6", "node7", "node8")), "node9"),
+      AskingMigration(17.0, "node6", "vm-12", "node6", "node7"),
+      StartingMigration(17.0, "node6", "vm-12", "node6", "node7"),
+      FinishingMigration(25.5, "node6", "vm-12", "node6", "node7", 8.5),
+      AbortingMigration(26.0, "node6", "vm-13", "node6", "nœud-é"),
+      SetVariable(1e9, "node0", "ENERGY", 1.0e7, 1e9 - 26.0)
+    )
+  }
+
+  private def json(records: Iterator[LoggingMessage]): Array[Byte] = {
+    val bytes = new ByteArrayOutputStream()
+    val output = new JsonTraceOutput(bytes, 1024)
+    records.foreach(output.append)
+    output.close()
+    bytes.toByteArray
+  }
+
+  def main(args: Array[String]) {
+    val expected = json(messages.iterator)
+
+    val binary = new ByteArrayOutputStream()
+    val writer = new BinaryTraceWriter(binary)
+    messages.foreach(writer.append)
+    writer.close()
+
+    val reader = new BinaryTraceReader(new ByteArrayInputStream(binary.toByteArray))
+    val records = reader.toList
+    reader.close()
+    if (records.length != messages.length)
+      throw new AssertionError(records.length + " records read instead of " + messages.length)
+
+    val actual = json(records.iterator)
+    if (!Arrays.equals(expected, actual)) {
+      val i = expected.zip(actual).indexWhere { case (e, a) => e != a }
+      throw new AssertionError("the converted JSON trace differs from the JSON trace at byte " +
+        (if (i >= 0) i else math.min(expected.length, actual.length)) +
+        " (" + actual.length + " bytes instead of " + expected.length + ")")
+    }
+    println("BinaryTraceTest: OK (" + binary.size() + " bytes in binary, " + expected.length + " bytes in JSON)")
+  }
+}
@@ -0,0 +1,58 @@
+package scheduling.distributed.dvms2.dvms.dvms2
+
+import java.util.concurrent.{CountDownLatch, TimeUnit}
+
+/**
+ * Check that LoggingRingBuffer delivers every record exactly once and in the order of each producer when several
+ * threads offer records concurrently to a small buffer (i.e. the buffer is often full and the positions wrap around).
+ */
+object LoggingRingBufferTest {
+
+  private val NB_OF_PRODUCERS = 4
+  private val NB_OF_RECORDS = 200000 // per producer
+  private val TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60)
+
+  def main(args: Array[String]) {
+    val buffer = new LoggingRingBuffer[Array[Int]](64)
+    val start = new CountDownLatch(1)
+    val producers = for (p <- 0 until NB_OF_PRODUCERS) yield new Thread("producer-" + p) {
+      override def run() {
+        start.await()
+        for (i <- 0 until NB_OF_RECORDS) {
+          val record = Array(p, i)
+          while (!buffer.offer(record))
+            Thread.`yield`()
+        }
+      }
+    }
+    producers.foreach(_.start())
+    start.countDown()
+
+    // Next expected record of each producer
+    val next = new Array[Int](NB_OF_PRODUCERS)
+    val check = (record: Array[Int]) => {
+      val p = record(0)
+      if (record(1) != next(p))
+        throw new AssertionError("producer " + p + ": record " + record(1) + " instead of " + next(p))
+      next(p) += 1
+    }
+
+    val total = NB_OF_PRODUCERS.toLong * NB_OF_RECORDS
+    val deadline = System.nanoTime() + TIMEOUT_NANOS
+    var consumed = 0L
+    while (consumed < total) {
+      val n = buffer.drain(check, 1024)
+      if (n == 0) {
+        if (System.nanoTime() > deadline)
+          throw new AssertionError(consumed + " records consumed out of " + total + " (lost records?)")
+        Thread.`yield`()
+      }
+      consumed += n
+    }
+    producers.foreach(_.join())
+
+    if (!buffer.isEmpty || buffer.drain(check, 1) != 0)
+      throw new AssertionError("more records than offered in the buffer")
+    println("LoggingRingBufferTest: OK")
+  }
+}
@@ -0,0 +1,266 @@
+#!/usr/bin/python
+# -*- coding: utf-8 -*-
+
+# Streaming reader of the binary trace (events.bin, simulator.trace.format = binary).
+#
+# read_events(path) yields one dict per record, with the same content as json.loads() of the corresponding line of
+# events.json (the "time" field is a string as in events.json), so the scripts of this folder can process events.bin
+# files by replacing:
+#
+#     for line in f.readlines():
+#         data = json.loads(line)
+#
+# with:
+#
+#     for data in binary_trace.read_events(path):
+#
+# The group states (Trace.groupSetState) are stored once per group; read_events() expands them into one dict per host
+# (as in events.json) unless expand_groups is False, in which case a single dict is yielded with "origins" (the list of
+# the hosts of the group) instead of "origin".
+#
+# Compressed traces (events.bin.gz, simulator.output.compression = gzip) are read directly.
+#
+# The format is described in BinaryTraceFormat.scala. When run as a script, the binary trace is converted to json
+# lines on the standard output (please note that the canonical converter is BinaryTraceConverter).
+
+import gzip
+import json
+import struct
+import sys
+
+MAGIC = 0x56545243
+VERSION = 2  # Must match BinaryTraceFormat.VERSION
+
+POP_STATE = 1
+SET_VARIABLE = 2
+HAS_CRASHED = 3
+EXPERIMENT_INFORMATION = 4
+COMPUTING_RECONFIGURATION_PLAN = 5
+APPLYING_RECONFIGURATION_PLAN = 6
+RECONFIGURATION_PLAN_IS_DONE = 7
+IS_BOOKED = 8
+IS_FREE = 9
+FIRST_OUT_IS = 10
+FORWARDING_PARTITION = 11
+ASKING_MIGRATION = 12
+STARTING_MIGRATION = 13
+FINISHING_MIGRATION = 14
+ABORTING_MIGRATION = 15
+CURRENT_LOAD_IS = 16
+VIOLATION_DETECTED = 17
+UPDATE_MIGRATION_COUNT = 18
+POP_TYPED_STATE = 19
+POP_GROUP_STATE = 20
+
+ATTRIBUTE_STRING = 0
+ATTRIBUTE_LONG = 1
+
+SIMPLE_EVENTS = {
+    APPLYING_RECONFIGURATION_PLAN: "applying_reconfiguration_plan",
+    RECONFIGURATION_PLAN_IS_DONE: "applying_reconfiguration_plan_is_done",
+    IS_BOOKED: "is_booked",
+    IS_FREE: "is_free",
+    VIOLATION_DETECTED: "overload",
+}
+
+MIGRATION_EVENTS = {
+    ASKING_MIGRATION: "ask_migration",
+    STARTING_MIGRATION: "start_migration",
+    FINISHING_MIGRATION: "finish_migration",
+    ABORTING_MIGRATION: "abort_migration",
+}
+
+DOUBLE = struct.Struct(">d")
+ULONG = struct.Struct(">Q")
+MASK64 = (1 << 64) - 1
+
+
+class _Input(object):
+    """Buffered reader of the primitive types of the format"""
+
+    def __init__(self, f, chunk_size=1 << 20):
+        self.f = f
+        self.chunk_size = chunk_size
+        self.buf = b""
+        self.pos = 0
+
+    def _fill(self, n):
+        if self.pos + n > len(self.buf):
+            self.buf = self.buf[self.pos:] + self.f.read(max(n, self.chunk_size))
+            self.pos = 0
+            if n > len(self.buf):
+                raise EOFError("truncated binary trace")
+
+    def at_end(self):
+        if self.pos < len(self.buf):
+            return False
+        self.buf = self.f.read(self.chunk_size)
+        self.pos = 0
+        return len(self.buf) == 0
+
+    def byte(self):
+        self._fill(1)
+        b = bytearray(self.buf[self.pos:self.pos + 1])[0]
+        self.pos += 1
+        return b
+
+    def bytes(self, n):
+        self._fill(n)
+        data = self.buf[self.pos:self.pos + n]
+        self.pos += n
+        return data
+
+    def int32(self):
+        return struct.unpack(">i", self.bytes(4))[0]
+
+    def double(self):
+        return DOUBLE.unpack(self.bytes(8))[0]
+
+    def varlong(self):
+        result = 0
+        shift = 0
+        while True:
+            b = self.byte()
+            result |= (b & 0x7F) << shift
+            if not b & 0x80:
+                return result
+            shift += 7
+
+
+def _unzigzag(v):
+    return (v >> 1) ^ -(v & 1)
+
+
+def _java_double(v):
+    # Close to the java representation used in events.json (same value once parsed)
+    return repr(float(v))
+
+
+def _json_or_string(value):
+    if value.startswith("{") and value.endswith("}"):
+        return json.loads(value)
+    return value
+
+
+def read_events(path, expand_groups=True):
+    """Yield the records of the binary trace path (one dict per record, see the header of this file)"""
+    with (gzip.open(path, "rb") if path.endswith(".gz") else open(path, "rb")) as f:
+        inp = _Input(f)
+        if inp.int32() != MAGIC:
+            raise ValueError("%s is not a binary trace" % path)
+        version = inp.int32()
+        if version != VERSION:
+            raise ValueError("unsupported binary trace version %d (expected %d)" % (version, VERSION))
+
+        names = []
+        previous_bits = 0
+
+        def name():
+            ref = inp.varlong()
+            if ref == 0:
+                s = inp.bytes(inp.varlong()).decode("utf-8")
+                names.append(s)
+                return s
+            return names[ref - 1]
+
+        def string():
+            return inp.bytes(inp.varlong()).decode("utf-8")
+
+        def integer():
+            return _unzigzag(inp.varlong())
+
+        def typed_data():
+            data = {}
+            for _ in range(integer()):
+                key = name()
+                kind = inp.byte()
+                if kind == ATTRIBUTE_STRING:
+                    data[key] = name()
+                elif kind == ATTRIBUTE_LONG:
+                    data[key] = integer()
+                else:
+                    data[key] = inp.double()
+            return data
+
+        while not inp.at_end():
+            record_type = inp.byte()
+            previous_bits = (previous_bits + _unzigzag(inp.varlong())) & MASK64
+            time = _java_double(DOUBLE.unpack(ULONG.pack(previous_bits))[0])
+            origin = name()
+
+            if record_type == POP_STATE:
+                state = name()
+                value = name()
+                data = string()
+                yield {"event": "trace_event", "origin": origin, "state_name": state, "time": time,
+                       "value": _json_or_string(value), "data": _json_or_string(data), "duration": inp.double()}
+            elif record_type == POP_TYPED_STATE:
+                state = name()
+                value = name()
+                data = typed_data()
+                yield {"event": "trace_event", "origin": origin, "state_name": state, "time": time,
+                       "value": _json_or_string(value), "data": data, "duration": inp.double()}
+            elif record_type == POP_GROUP_STATE:
+                state = name()
+                value = _json_or_string(name())
+                origins = [origin] + [name() for _ in range(integer())]
+                data = typed_data() if inp.byte() != 0 else ""
+                duration = inp.double()
+                if expand_groups:
+                    for o in origins:
+                        yield {"event": "trace_event", "origin": o, "state_name": state, "time": time,
+                               "value": value, "data": data, "duration": duration}
+                else:
+                    yield {"event": "trace_event", "origins": origins, "state_name": state, "time": time,
+                           "value": value, "data": data, "duration": duration}
+            elif record_type == SET_VARIABLE:
+                variable = name()
+                value = inp.double()
+                yield {"event": "trace_event", "origin": origin, "state_name": "VARIABLE", "time": time,
+                       "value": _json_or_string(variable), "data": {"value": float("%f" % value)},
+                       "duration": inp.double()}
+            elif record_type == HAS_CRASHED:
+                yield {"event": "crash_event", "origin": origin}
+            elif record_type == EXPERIMENT_INFORMATION:
+                server_count = integer()
+                service_node_count = integer()
+                vm_count = integer()
+                yield {"event": "start_experiment", "origin": origin, "time": time, "server_count": server_count,
+                       "service_node_count": service_node_count, "vm_count": vm_count, "algo": name()}
+            elif record_type == COMPUTING_RECONFIGURATION_PLAN:
+                duration = inp.double()
+                psize = integer()
+                yield {"event": "computing_reconfiguration_plan", "origin": origin, "time": time, "psize": psize,
+                       "duration": duration, "state": name()}
+            elif record_type in SIMPLE_EVENTS:
+                yield {"event": SIMPLE_EVENTS[record_type], "origin": origin, "time": time}
+            elif record_type == FIRST_OUT_IS:
+                defined = inp.byte() != 0
+                yield {"event": "first_out_is", "origin": origin, "time": time,
+                       "first_out": name() if defined else "", "first_out_defined": defined}
+            elif record_type == FORWARDING_PARTITION:
+                initiator = name()
+                name()  # leader (events.json reports the initiator as leader)
+                nodes = [name() for _ in range(integer())]
+                yield {"event": "forwarding_partition", "origin": origin, "time": time, "initiator": initiator,
+                       "leader": initiator, "nodes": nodes, "to": name()}
+            elif record_type in MIGRATION_EVENTS:
+                event = {"event": MIGRATION_EVENTS[record_type], "origin": origin, "time": time,
+                         "vm": name(), "from": name(), "to": name()}
+                if record_type == FINISHING_MIGRATION:
+                    event["duration"] = inp.double()
+                yield event
+            elif record_type == CURRENT_LOAD_IS:
+                yield {"event": "cpu_load", "origin": origin, "time": time, "value": _java_double(inp.double())}
+            elif record_type == UPDATE_MIGRATION_COUNT:
+                yield {"event": "migration_count", "origin": origin, "time": time, "value": str(integer())}
+            else:
+                raise ValueError("unknown record type %d in %s" % (record_type, path))
+
+
+if __name__ == "__main__":
+    if len(sys.argv) < 2:
+        sys.stderr.write("Usage: %s <events.bin>\n" % sys.argv[0])
+        sys.exit(-1)
+    for event in read_events(sys.argv[1]):
+        sys.stdout.write(json.dumps(event) + "\n")
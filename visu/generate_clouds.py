@@ -33,6 +33,7 @@ import subprocess
 import time
 import os
 import json
+import trace_files
 import jinja2
 import traceback
 
@@ -83,8 +84,8 @@ algos = []
 for dirname, dirnames, filenames in os.walk('./events'):
     # print path to all subdirectories first.
     for filename in filenames:
-        if filename.endswith(".json"):
-            with open("%s/%s" % (dirname, filename), 'r') as f:
+        if trace_files.is_trace(filename):
+            with trace_files.open_trace("%s/%s" % (dirname, filename)) as f:
                 header_line = f.readline()
                 header_data = json.loads(header_line)
                 data = header_data["data"]
@@ -102,8 +103,8 @@ nodes_vms_tuples = []
 for dirname, dirnames, filenames in os.walk('./events'):
     # print path to all subdirectories first.
     for filename in filenames:
-        if filename.endswith(".json"):
-            with open("%s/%s" % (dirname, filename), 'r') as f:
+        if trace_files.is_trace(filename):
+            with trace_files.open_trace("%s/%s" % (dirname, filename)) as f:
                 header_line = f.readline()
                 header_data = json.loads(header_line)
                 data = header_data["data"]
@@ -158,8 +159,8 @@ max_plot_time = 0
 for dirname, dirnames, filenames in os.walk('./events'):
     # print path to all subdirectories first.
     for filename in filenames:
-        if filename.endswith(".json"):
-            with open("%s/%s" % (dirname, filename), 'r') as f:
+        if trace_files.is_trace(filename):
+            with trace_files.open_trace("%s/%s" % (dirname, filename)) as f:
                 header_line = f.readline()
                 header_data = json.loads(header_line)
                 data = header_data["data"]
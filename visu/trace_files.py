@@ -0,0 +1,20 @@
+#!/usr/bin/python
+# -*- coding: utf-8 -*-
+
+# Helpers to read the traces of the simulations, whether they have been compressed or not
+# (simulator.output.compression = gzip appends ".gz" to the name of the output files).
+
+import gzip
+import sys
+
+
+def is_trace(filename):
+    """Whether the file is a json trace (events.json or events.json.gz, possibly renamed)"""
+    return filename.endswith(".json") or filename.endswith(".json.gz")
+
+
+def open_trace(path):
+    """Open a (possibly compressed) text file for reading, line by line"""
+    if path.endswith(".gz"):
+        return gzip.open(path, "rt") if sys.version_info[0] >= 3 else gzip.open(path, "rb")
+    return open(path, "r")